@@ -0,0 +1,187 @@
+package jp.yamato373.fix.order;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jp.yamato373.fix.OutboundValidator;
+import jp.yamato373.fix.cluster.Cluster;
+import jp.yamato373.fix.metrics.Metrics;
+import jp.yamato373.fix.price.BenchmarkSupport;
+import jp.yamato373.fix.price.PriceStore;
+import jp.yamato373.fix.price.RateGeneratWorker;
+import jp.yamato373.fix.scenario.MarketConditions;
+import jp.yamato373.fix.util.Settings;
+import jp.yamato373.fix.util.SettingsStore;
+import quickfix.Application;
+import quickfix.DoNotSend;
+import quickfix.FieldNotFound;
+import quickfix.IncorrectDataFormat;
+import quickfix.IncorrectTagValue;
+import quickfix.Message;
+import quickfix.RejectLogon;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.UnsupportedMessageType;
+import quickfix.field.ClOrdID;
+import quickfix.field.MsgType;
+import quickfix.field.OrdStatus;
+import quickfix.field.OrdType;
+import quickfix.field.OrderQty;
+import quickfix.field.Price;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+import quickfix.field.TimeInForce;
+import quickfix.field.TransactTime;
+import quickfix.fix44.NewOrderSingle;
+
+/**
+ * NewOrderSingleを受けてから約定のExecutionReportを送るまで。注文は即時約定するIOCの指値。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+
+	RateGeneratWorker rateGeneratWorker;
+	OrderApplication orderApplication;
+	Session session;
+
+	// 約定・取消・リジェクトのExecutionReportを送った数
+	final AtomicLong completed = new AtomicLong();
+	NewOrderSingle newOrderSingle;
+	long clOrdID;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSupport.quietLogging();
+		Settings settings = BenchmarkSupport.createSettings();
+		SettingsStore settingsStore = new SettingsStore(settings);
+		MarketConditions marketConditions = new MarketConditions(settings);
+		rateGeneratWorker = BenchmarkSupport.createRateGeneratWorker(settings, settingsStore, marketConditions);
+
+		PriceStore priceStore = BenchmarkSupport.createPriceStore(rateGeneratWorker);
+		MatchingEngine matchingEngine = new MatchingEngine();
+		matchingEngine.rateGeneratWorker = rateGeneratWorker;
+		matchingEngine.priceStore = priceStore;
+		matchingEngine.init();
+
+		orderApplication = new OrderApplication();
+		orderApplication.matchingEngine = matchingEngine;
+		orderApplication.metrics = new Metrics();
+		orderApplication.settingsStore = settingsStore;
+		orderApplication.marketConditions = marketConditions;
+		orderApplication.cluster = new Cluster(settings);
+		orderApplication.priceStore = priceStore;
+		SessionSettings sessionSettings = BenchmarkSupport.loadSessionSettings("order.cfg",
+				OutboundValidator.Mode.ALL);
+		sessionSettings.setString(ExecutionLatency.EXECUTION_LATENCY_KEY, "fixed(0)");
+		sessionSettings.setString(ExecutionLatency.SEND_PENDING_NEW_KEY, "N");
+		orderApplication.setSessionSettings(sessionSettings);
+		session = BenchmarkSupport.createSession(new CompletionCounter(), sessionSettings);
+
+		newOrderSingle = new NewOrderSingle(new ClOrdID("0"), new Side(Side.BUY), new TransactTime(),
+				new OrdType(OrdType.LIMIT));
+		newOrderSingle.set(new Symbol("USD/JPY"));
+		newOrderSingle.set(new OrderQty(1000));
+		newOrderSingle.set(new Price(200));
+		newOrderSingle.set(new TimeInForce(TimeInForce.IMMEDIATE_OR_CANCEL));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		session.close();
+		orderApplication.stop();
+		rateGeneratWorker.stop();
+	}
+
+	/**
+	 * 受信スレッドでの処理。検証、注文作成、約定、ExecutionReportの組み立てと送信まで
+	 */
+	@Benchmark
+	public long onMessage() throws Exception {
+		newOrderSingle.set(new ClOrdID(Long.toString(++clOrdID)));
+		orderApplication.onMessage(newOrderSingle, session.getSessionID());
+		return completed.get();
+	}
+
+	/**
+	 * fromAppから注文処理スレッドを経由して約定のExecutionReportを送るまで
+	 */
+	@Benchmark
+	public long fromApp() throws Exception {
+		long target = completed.get() + 1;
+		newOrderSingle.set(new ClOrdID(Long.toString(++clOrdID)));
+		orderApplication.fromApp(newOrderSingle, session.getSessionID());
+		long count;
+		while ((count = completed.get()) < target) {
+			// 注文処理スレッドが送るまで待つ
+		}
+		return count;
+	}
+
+	/**
+	 * OrderApplicationに委譲し、最終状態のExecutionReportを数える
+	 */
+	private class CompletionCounter implements Application {
+
+		@Override
+		public void onCreate(SessionID sessionID) {
+			orderApplication.onCreate(sessionID);
+		}
+
+		@Override
+		public void onLogon(SessionID sessionID) {
+		}
+
+		@Override
+		public void onLogout(SessionID sessionID) {
+		}
+
+		@Override
+		public void toAdmin(Message message, SessionID sessionID) {
+		}
+
+		@Override
+		public void fromAdmin(Message message, SessionID sessionID)
+				throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
+		}
+
+		@Override
+		public void toApp(Message message, SessionID sessionID) throws DoNotSend {
+			orderApplication.toApp(message, sessionID);
+			try {
+				if (MsgType.EXECUTION_REPORT.equals(message.getHeader().getString(MsgType.FIELD))) {
+					char ordStatus = message.getChar(OrdStatus.FIELD);
+					if (ordStatus == OrdStatus.FILLED || ordStatus == OrdStatus.CANCELED
+							|| ordStatus == OrdStatus.REJECTED) {
+						completed.incrementAndGet();
+					}
+				}
+			} catch (FieldNotFound e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void fromApp(Message message, SessionID sessionID)
+				throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
+			orderApplication.fromApp(message, sessionID);
+		}
+	}
+}
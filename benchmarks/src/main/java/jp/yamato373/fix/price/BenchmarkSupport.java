@@ -0,0 +1,127 @@
+package jp.yamato373.fix.price;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import jp.yamato373.fix.OutboundValidator;
+import jp.yamato373.fix.cluster.Cluster;
+import jp.yamato373.fix.scenario.MarketConditions;
+import jp.yamato373.fix.store.StoreSettings;
+import jp.yamato373.fix.util.Settings;
+import jp.yamato373.fix.util.Settings.SymbolSettings;
+import jp.yamato373.fix.util.SettingsStore;
+import quickfix.Application;
+import quickfix.ConfigError;
+import quickfix.DefaultSessionFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+/**
+ * ベンチマーク用の部品。Springを起動せずにapplication.ymlと同じ通貨ペアで組み立てる。
+ */
+public final class BenchmarkSupport {
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * 計測中にログを出さないようにする
+	 */
+	public static void quietLogging() {
+		((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+	}
+
+	public static Settings createSettings() {
+		Settings settings = new Settings();
+		settings.setCp("oanda");
+		settings.setSymbol("USD/JPY");
+		settings.setIndicativeText("Indicative");
+		settings.setUpperLimit(new BigDecimal("125"));
+		settings.setLowerLimit(new BigDecimal("70"));
+		settings.setSpread(new BigDecimal("0.004"));
+		settings.setMove(new BigDecimal("0.01"));
+		// 生成スレッドに邪魔させない。ティックはベンチマーク側で進める
+		settings.setRateGenerateInterval(3600000);
+		settings.setGeneratorThreads(1);
+		settings.setSize(1000000000000L);
+
+		List<SymbolSettings> symbols = new ArrayList<>();
+		symbols.add(symbol("USD/JPY", null, null, null, null, null));
+		symbols.add(symbol("EUR/JPY", "135", "115", null, null, null));
+		symbols.add(symbol("EUR/USD", "1.2", "1.0", "0.00004", "0.0001", 5));
+		settings.setSymbols(symbols);
+		return settings;
+	}
+
+	private static SymbolSettings symbol(String symbol, String upperLimit, String lowerLimit, String spread,
+			String move, Integer scale) {
+		SymbolSettings symbolSettings = new SymbolSettings();
+		symbolSettings.setSymbol(symbol);
+		symbolSettings.setUpperLimit(upperLimit != null ? new BigDecimal(upperLimit) : null);
+		symbolSettings.setLowerLimit(lowerLimit != null ? new BigDecimal(lowerLimit) : null);
+		symbolSettings.setSpread(spread != null ? new BigDecimal(spread) : null);
+		symbolSettings.setMove(move != null ? new BigDecimal(move) : null);
+		symbolSettings.setScale(scale);
+		return symbolSettings;
+	}
+
+	public static RateGeneratWorker createRateGeneratWorker(Settings settings, SettingsStore settingsStore,
+			MarketConditions marketConditions) throws Exception {
+		RateGeneratWorker rateGeneratWorker = new RateGeneratWorker();
+		rateGeneratWorker.settings = settings;
+		rateGeneratWorker.settingsStore = settingsStore;
+		rateGeneratWorker.marketConditions = marketConditions;
+		rateGeneratWorker.cluster = new Cluster(settings);
+		rateGeneratWorker.init();
+		return rateGeneratWorker;
+	}
+
+	public static PriceStore createPriceStore(RateGeneratWorker rateGeneratWorker) {
+		PriceStore priceStore = new PriceStore();
+		priceStore.rateGeneratWorker = rateGeneratWorker;
+		priceStore.init();
+		// 送信スレッドの代わりに今のレートを配信したことにする
+		for (String symbol : rateGeneratWorker.getSymbols()) {
+			priceStore.publish(rateGeneratWorker.getRate(symbol).read(new Quote()), false);
+		}
+		return priceStore;
+	}
+
+	/**
+	 * クラスパスの.cfgを読み、メッセージストアをメモリ、ログなしにする
+	 */
+	public static SessionSettings loadSessionSettings(String cfg, OutboundValidator.Mode outboundValidation)
+			throws ConfigError {
+		SessionSettings sessionSettings = new SessionSettings(cfg);
+		sessionSettings.setString(StoreSettings.SETTING_MESSAGE_STORE_TYPE, StoreSettings.MessageStoreType.MEMORY.name());
+		sessionSettings.setString(StoreSettings.SETTING_LOG_TYPE, StoreSettings.LogType.NONE.name());
+		sessionSettings.setString(OutboundValidator.SETTING_OUTBOUND_VALIDATION, outboundValidation.name());
+		sessionSettings.setString("PersistMessages", "N");
+		return sessionSettings;
+	}
+
+	/**
+	 * ソケットなしのセッションを作る。ログオンしていないので送信はtoAppと文字列化までで、相手には届かない
+	 */
+	public static Session createSession(Application application, SessionSettings sessionSettings) throws Exception {
+		SessionID sessionID = getSessionID(sessionSettings);
+		return new DefaultSessionFactory(application, new MemoryStoreFactory(),
+				StoreSettings.createLogFactory(sessionSettings, "benchmark")).create(sessionID, sessionSettings);
+	}
+
+	private static SessionID getSessionID(SessionSettings sessionSettings) throws ConfigError {
+		Iterator<SessionID> it = sessionSettings.sectionIterator();
+		if (!it.hasNext()) {
+			throw new ConfigError("No session");
+		}
+		return it.next();
+	}
+}
@@ -0,0 +1,143 @@
+package jp.yamato373.fix.price;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jp.yamato373.fix.OutboundValidator;
+import jp.yamato373.fix.metrics.Metrics;
+import jp.yamato373.fix.scenario.MarketConditions;
+import jp.yamato373.fix.util.Settings;
+import jp.yamato373.fix.util.Settings.Pacing;
+import jp.yamato373.fix.util.SettingsStore;
+import quickfix.Session;
+import quickfix.SessionSettings;
+import quickfix.StringField;
+import quickfix.field.MDReqID;
+import quickfix.field.MarketDepth;
+import quickfix.field.SubscriptionRequestType;
+import quickfix.field.Symbol;
+import quickfix.fix44.MarketDataRequest;
+
+/**
+ * プライス配信側の組み立てと送信。validationがALLとNONEの差がDataDictionary検証のコスト。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceBenchmark {
+
+	@Param({ "ALL", "NONE" })
+	OutboundValidator.Mode validation;
+
+	RateGeneratWorker rateGeneratWorker;
+	Rate rate;
+	long bidPx;
+	long size;
+	long tick;
+	IncrementalRefreshEncoder incrementalRefreshEncoder;
+	PriceApplication priceApplication;
+	Session session;
+
+	List<String> symbols;
+	MarketDataRequest marketDataRequest;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSupport.quietLogging();
+		Settings settings = BenchmarkSupport.createSettings();
+		// ティック毎に送信する経路にする。生成スレッドは1秒に1ティックなので邪魔にならない
+		settings.setPacing(Pacing.PARK);
+		SettingsStore settingsStore = new SettingsStore(settings);
+		MarketConditions marketConditions = new MarketConditions(settings);
+		rateGeneratWorker = BenchmarkSupport.createRateGeneratWorker(settings, settingsStore, marketConditions);
+
+		incrementalRefreshEncoder = new IncrementalRefreshEncoder();
+		incrementalRefreshEncoder.rateGeneratWorker = rateGeneratWorker;
+		incrementalRefreshEncoder.settings = settings;
+		incrementalRefreshEncoder.settingsStore = settingsStore;
+		incrementalRefreshEncoder.marketConditions = marketConditions;
+		incrementalRefreshEncoder.priceStore = BenchmarkSupport.createPriceStore(rateGeneratWorker);
+
+		priceApplication = new PriceApplication();
+		priceApplication.rateGeneratWorker = rateGeneratWorker;
+		priceApplication.settings = settings;
+		priceApplication.settingsStore = settingsStore;
+		priceApplication.subscriptionManager = new SubscriptionManager();
+		priceApplication.incrementalRefreshEncoder = incrementalRefreshEncoder;
+		priceApplication.metrics = new Metrics();
+		priceApplication.marketConditions = marketConditions;
+		priceApplication.init();
+		SessionSettings sessionSettings = BenchmarkSupport.loadSessionSettings("price.cfg", validation);
+		priceApplication.setSessionSettings(sessionSettings);
+		session = BenchmarkSupport.createSession(priceApplication, sessionSettings);
+
+		rate = rateGeneratWorker.getRate(settings.getSymbol());
+		bidPx = rate.read(new Quote()).getBidPx();
+		size = settings.getSize();
+		symbols = new ArrayList<>(rateGeneratWorker.getSymbols());
+		priceApplication.subscriptionManager.add(new Subscription(session.getSessionID(), "MD1", symbols));
+
+		marketDataRequest = new MarketDataRequest(new MDReqID("SNAPSHOT"),
+				new SubscriptionRequestType(SubscriptionRequestType.SNAPSHOT_PLUS_UPDATES), new MarketDepth(1));
+		MarketDataRequest.NoRelatedSym noRelatedSym = new MarketDataRequest.NoRelatedSym();
+		for (String symbol : symbols) {
+			noRelatedSym.set(new Symbol(symbol));
+			marketDataRequest.addGroup(noRelatedSym);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		session.close();
+		priceApplication.stop();
+		rateGeneratWorker.stop();
+	}
+
+	/**
+	 * 通貨ペア毎のエントリの組み立て(と検証)だけ
+	 */
+	@Benchmark
+	public StringField buildIncrementalRefresh() {
+		incrementalRefreshEncoder.nextCycle();
+		StringField noMDEntries = incrementalRefreshEncoder.getNoMDEntries(symbols);
+		priceApplication.getOutboundValidator().validate(session,
+				() -> incrementalRefreshEncoder.getIncrementalRefresh(symbols));
+		return noMDEntries;
+	}
+
+	/**
+	 * 1ティック分の送信。リスナーから1購読に、組み立て、検証、ヘッダ付けと文字列化まで。
+	 * 毎回差分が出るように価格を1ポイントずつ揺らす
+	 */
+	@Benchmark
+	public void publishTick() {
+		long px = bidPx + (++tick & 1);
+		rateGeneratWorker.publish(rate, px, px + 4, size, size);
+	}
+
+	/**
+	 * 3通貨ペアの購読要求。SnapshotFullRefreshの組み立てとsendMessage
+	 */
+	@Benchmark
+	public void snapshotFullRefresh() throws Exception {
+		priceApplication.onMessage(marketDataRequest, session.getSessionID());
+		priceApplication.subscriptionManager.remove(session.getSessionID(), "SNAPSHOT");
+	}
+}
@@ -0,0 +1,92 @@
+package jp.yamato373.fix.price;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jp.yamato373.fix.price.model.ModelParameters;
+import jp.yamato373.fix.price.model.PriceModel;
+import jp.yamato373.fix.util.FixedPoint;
+import jp.yamato373.fix.util.Settings;
+
+/**
+ * レート生成とクォートの読み出し。生成は価格モデルでまとめて生成してレートを更新するまで
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateBenchmark {
+
+	@Param({ "TRIANGLE", "GBM", "OU", "JUMP" })
+	Settings.Model model;
+
+	final ModelParameters parameters = new ModelParameters();
+	PriceModel priceModel;
+	long[] mids;
+	double[] shocks;
+	int position;
+	long size;
+
+	Rate rate;
+	final Quote quote = new Quote();
+
+	@Setup
+	public void setUp() {
+		Settings settings = BenchmarkSupport.createSettings();
+		int scale = settings.getScale();
+		parameters.setUpperLimit(FixedPoint.toLong(settings.getUpperLimit(), scale));
+		parameters.setLowerLimit(FixedPoint.toLong(settings.getLowerLimit(), scale));
+		parameters.setSpread(FixedPoint.toLong(settings.getSpread(), scale));
+		parameters.setMove(FixedPoint.toLong(settings.getMove(), scale));
+		parameters.setDrift(settings.getDrift());
+		parameters.setVolatility(settings.getVolatility());
+		parameters.setMeanReversion(settings.getMeanReversion());
+		parameters.setJumpIntensity(settings.getJumpIntensity());
+		parameters.setJumpMean(settings.getJumpMean());
+		parameters.setJumpVolatility(settings.getJumpVolatility());
+		// 100ミリ秒毎
+		parameters.setDt(0.1 / TimeUnit.DAYS.toSeconds(365));
+
+		int batchSize = settings.getTickBatchSize();
+		priceModel = PriceModel.create(model, parameters, new SplittableRandom(1), batchSize);
+		mids = new long[batchSize];
+		shocks = new double[batchSize];
+		position = batchSize;
+		size = settings.getSize();
+		rate = new Rate(0, settings.getSymbol(), scale);
+		generateTick();
+	}
+
+	/**
+	 * レート生成1回分。まとめて生成する分を均したもの。リスナーは居ない
+	 */
+	@Benchmark
+	public Rate generateTick() {
+		if (position == mids.length) {
+			priceModel.fill(parameters, mids, shocks, mids.length);
+			position = 0;
+		}
+		long bidPx = mids[position++] - parameters.getSpread() / 2;
+		rate.update(bidPx, bidPx + parameters.getSpread(), size, size);
+		return rate;
+	}
+
+	@Benchmark
+	public Quote readRate() {
+		return rate.read(quote);
+	}
+}
@@ -0,0 +1,167 @@
+package jp.yamato373.fix;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.ConfigError;
+import quickfix.DataDictionary;
+import quickfix.DataDictionaryProvider;
+import quickfix.FieldConvertError;
+import quickfix.FixVersions;
+import quickfix.LogUtil;
+import quickfix.Message;
+import quickfix.MessageUtils;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.field.ApplVerID;
+
+/**
+ * 送信メッセージのDataDictionary検証。セッション毎に全件、N件に1件、検証なしを選べる。
+ *
+ * <pre>
+ * OutboundValidation=ALL|SAMPLE|NONE
+ * OutboundValidationSampleRate=100
+ * </pre>
+ */
+@Slf4j
+public class OutboundValidator {
+
+	public static final String SETTING_OUTBOUND_VALIDATION = "OutboundValidation";
+	public static final String SETTING_OUTBOUND_VALIDATION_SAMPLE_RATE = "OutboundValidationSampleRate";
+
+	private static final int DEFAULT_SAMPLE_RATE = 100;
+
+	public enum Mode {
+		ALL, SAMPLE, NONE
+	}
+
+	private final SessionSettings sessionSettings;
+	private final ConcurrentMap<SessionID, Policy> policies = new ConcurrentHashMap<>();
+
+	private final LongAdder validated = new LongAdder();
+	private final LongAdder skipped = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	public OutboundValidator(SessionSettings sessionSettings) {
+		this.sessionSettings = sessionSettings;
+	}
+
+	/**
+	 * @return 送信してよければtrue。検証しなかった場合もtrue
+	 */
+	public boolean validate(Session session, Message message) {
+		return validate(session, () -> message);
+	}
+
+	/**
+	 * 共有するメッセージの送信用。検証はセッション毎の設定に従って送信毎に数える
+	 *
+	 * @param message 検証する時だけ呼ぶ
+	 * @return 送信してよければtrue。検証しなかった場合もtrue
+	 */
+	public boolean validate(Session session, Supplier<? extends Message> message) {
+		SessionID sessionID = session.getSessionID();
+		if (!policies.computeIfAbsent(sessionID, this::createPolicy).shouldValidate()) {
+			skipped.increment();
+			return true;
+		}
+
+		Message target = message.get();
+		DataDictionary dataDictionary = getDataDictionary(session, target);
+		if (dataDictionary == null) {
+			skipped.increment();
+			return true;
+		}
+
+		try {
+			dataDictionary.validate(target, true);
+			validated.increment();
+			return true;
+		} catch (Exception e) {
+			failed.increment();
+			LogUtil.logThrowable(sessionID, "Outgoing message failed validation: " + e.getMessage(), e);
+			return false;
+		}
+	}
+
+	public Stats getStats() {
+		return new Stats(validated.sum(), skipped.sum(), failed.sum());
+	}
+
+	private Policy createPolicy(SessionID sessionID) {
+		try {
+			Mode mode = Mode.valueOf(getString(sessionID, SETTING_OUTBOUND_VALIDATION, Mode.ALL.name()).trim());
+			int sampleRate = Integer.parseInt(getString(sessionID, SETTING_OUTBOUND_VALIDATION_SAMPLE_RATE,
+					Integer.toString(DEFAULT_SAMPLE_RATE)).trim());
+			log.info("送信メッセージ検証: " + sessionID + " " + mode + (mode == Mode.SAMPLE ? " 1/" + sampleRate : ""));
+			return new Policy(mode, Math.max(1, sampleRate));
+		} catch (ConfigError | FieldConvertError | IllegalArgumentException e) {
+			log.error(e.getMessage(), e);
+			return new Policy(Mode.ALL, DEFAULT_SAMPLE_RATE);
+		}
+	}
+
+	private String getString(SessionID sessionID, String key, String defaultValue)
+			throws ConfigError, FieldConvertError {
+		if (sessionSettings.isSetting(sessionID, key)) {
+			return sessionSettings.getString(sessionID, key);
+		}
+		if (sessionSettings.isSetting(key)) {
+			return sessionSettings.getString(key);
+		}
+		return defaultValue;
+	}
+
+	private DataDictionary getDataDictionary(Session session, Message message) {
+		DataDictionaryProvider dataDictionaryProvider = session.getDataDictionaryProvider();
+		if (dataDictionaryProvider == null) {
+			return null;
+		}
+		return dataDictionaryProvider.getApplicationDataDictionary(getApplVerID(session, message));
+	}
+
+	private ApplVerID getApplVerID(Session session, Message message) {
+		String beginString = session.getSessionID().getBeginString();
+		if (FixVersions.BEGINSTRING_FIXT11.equals(beginString)) {
+			return new ApplVerID(ApplVerID.FIX50);
+		} else {
+			return MessageUtils.toApplVerID(beginString);
+		}
+	}
+
+	private static class Policy {
+
+		final Mode mode;
+		final int sampleRate;
+		final AtomicLong count = new AtomicLong();
+
+		Policy(Mode mode, int sampleRate) {
+			this.mode = mode;
+			this.sampleRate = sampleRate;
+		}
+
+		boolean shouldValidate() {
+			switch (mode) {
+			case NONE:
+				return false;
+			case SAMPLE:
+				return count.getAndIncrement() % sampleRate == 0;
+			default:
+				return true;
+			}
+		}
+	}
+
+	@Value
+	public static class Stats {
+		long validated;
+		long skipped;
+		long failed;
+	}
+}
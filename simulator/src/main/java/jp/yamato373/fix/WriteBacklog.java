@@ -0,0 +1,114 @@
+package jp.yamato373.fix;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.mina.core.service.IoAcceptor;
+import org.apache.mina.core.session.IoSession;
+
+import jp.yamato373.fix.util.SettingsSnapshot.SessionValues;
+import jp.yamato373.fix.util.SettingsStore;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.mina.SessionConnector;
+import quickfix.mina.acceptor.AbstractSocketAcceptor;
+
+/**
+ * セッション毎のソケットの送信待ち(MINAの書き込みキュー)のバイト数と、間引きを始める閾値。
+ * 閾値を超えたら間引きを始め、閾値の半分まで減ったらやめる。
+ * MINAの送信待ちの件数はエンコードの度にずれて負になるので、バイト数で見る。
+ * 閾値は実行中の設定のセッション毎の上書きがあればそちら。
+ *
+ * <pre>
+ * ConflationThresholdBytes=1048576
+ * </pre>
+ */
+@Slf4j
+public class WriteBacklog {
+
+	public static final String SETTING_CONFLATION_THRESHOLD_BYTES = "ConflationThresholdBytes";
+
+	private final SessionSettings sessionSettings;
+	private final SettingsStore settingsStore;
+	private final Map<SessionID, Long> thresholds = new ConcurrentHashMap<>();
+	private final Map<SessionID, IoSession> ioSessions = new ConcurrentHashMap<>();
+
+	private AbstractSocketAcceptor acceptor;
+
+	public WriteBacklog(SessionSettings sessionSettings, SettingsStore settingsStore) {
+		this.sessionSettings = sessionSettings;
+		this.settingsStore = settingsStore;
+	}
+
+	public void setAcceptor(AbstractSocketAcceptor acceptor) {
+		this.acceptor = acceptor;
+	}
+
+	/**
+	 * ログオン時に呼ぶ。セッションのソケットを探して覚える
+	 */
+	public void attach(SessionID sessionID) {
+		if (acceptor == null) {
+			return;
+		}
+		for (IoAcceptor endpoint : acceptor.getEndpoints()) {
+			for (IoSession ioSession : endpoint.getManagedSessions().values()) {
+				Object session = ioSession.getAttribute(SessionConnector.QF_SESSION);
+				if (session instanceof Session && sessionID.equals(((Session) session).getSessionID())) {
+					ioSessions.put(sessionID, ioSession);
+					return;
+				}
+			}
+		}
+		log.warn("セッションのソケットが見つからないよ！" + sessionID);
+	}
+
+	/**
+	 * ログアウト時に呼ぶ
+	 */
+	public void detach(SessionID sessionID) {
+		ioSessions.remove(sessionID);
+	}
+
+	/**
+	 * @return 送信待ちのバイト数。ソケットが無ければ0
+	 */
+	public long getScheduledWriteBytes(SessionID sessionID) {
+		IoSession ioSession = ioSessions.get(sessionID);
+		return ioSession != null ? ioSession.getScheduledWriteBytes() : 0;
+	}
+
+	/**
+	 * @param conflating 今間引いているか
+	 * @return 間引くならtrue。閾値が0以下なら間引かない
+	 */
+	public boolean isBehind(SessionID sessionID, boolean conflating) {
+		SessionValues sessionValues = settingsStore.getSnapshot().getSession(sessionID);
+		long threshold = sessionValues != null && sessionValues.getConflationThresholdBytes() != null
+				? sessionValues.getConflationThresholdBytes()
+				: thresholds.computeIfAbsent(sessionID, this::loadThreshold);
+		if (threshold <= 0) {
+			return false;
+		}
+		long backlog = getScheduledWriteBytes(sessionID);
+		return conflating ? backlog > threshold / 2 : backlog > threshold;
+	}
+
+	private long loadThreshold(SessionID sessionID) {
+		try {
+			if (sessionSettings.isSetting(sessionID, SETTING_CONFLATION_THRESHOLD_BYTES)) {
+				return sessionSettings.getLong(sessionID, SETTING_CONFLATION_THRESHOLD_BYTES);
+			}
+			if (sessionSettings.isSetting(SETTING_CONFLATION_THRESHOLD_BYTES)) {
+				return sessionSettings.getLong(SETTING_CONFLATION_THRESHOLD_BYTES);
+			}
+		} catch (ConfigError | FieldConvertError e) {
+			log.error(e.getMessage(), e);
+		}
+		return 0;
+	}
+}
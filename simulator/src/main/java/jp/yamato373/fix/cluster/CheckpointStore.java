@@ -0,0 +1,102 @@
+package jp.yamato373.fix.cluster;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * クラスタのレート生成のチェックポイント。通貨ペア毎に、区切りのティック番号とその時点の価格モデルの状態を1ファイルに書く。
+ * 乱数は区切り毎に作り直すので、起動時は最後のチェックポイントから生成し直せば起点から生成したのと同じ値になる。
+ * 設定(シード、起点、価格モデルの値)が変わったチェックポイントは使わない。
+ */
+@Slf4j
+public class CheckpointStore {
+
+	private static final String FINGERPRINT = "fingerprint";
+	private static final String TICK = "tick";
+	private static final String STATE = "state";
+
+	private final File dir;
+
+	public CheckpointStore(String dir) {
+		this.dir = new File(dir);
+		this.dir.mkdirs();
+	}
+
+	/**
+	 * 生成スレッドから呼ぶ。書き終えてから置き換えるので、途中で止まっても前のチェックポイントが残る
+	 *
+	 * @param fingerprint 値動きに関わる設定を文字列にしたもの
+	 */
+	public void save(String symbol, String fingerprint, long tick, double[] state) {
+		Properties properties = new Properties();
+		properties.setProperty(FINGERPRINT, fingerprint);
+		properties.setProperty(TICK, Long.toString(tick));
+		StringBuilder sb = new StringBuilder();
+		for (double value : state) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			// Double.toStringは読み戻すと同じ値になる
+			sb.append(value);
+		}
+		properties.setProperty(STATE, sb.toString());
+
+		File file = getFile(symbol);
+		try {
+			// 同じホストの他のノードも同じ内容を書くので、一時ファイルは別々にする
+			Path tmp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+			try (OutputStream out = Files.newOutputStream(tmp)) {
+				properties.store(out, symbol);
+			}
+			Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return symbolのチェックポイント。無いか設定が違えばnull
+	 */
+	public Checkpoint load(String symbol, String fingerprint) {
+		File file = getFile(symbol);
+		if (!file.exists()) {
+			return null;
+		}
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			properties.load(in);
+			if (!fingerprint.equals(properties.getProperty(FINGERPRINT))) {
+				log.warn("設定が違うからチェックポイントは使わないよ！" + file);
+				return null;
+			}
+			String[] values = properties.getProperty(STATE, "").split(",");
+			double[] state = new double[values.length];
+			for (int i = 0; i < values.length; i++) {
+				state[i] = Double.parseDouble(values[i]);
+			}
+			return new Checkpoint(Long.parseLong(properties.getProperty(TICK)), state);
+		} catch (IOException | RuntimeException e) {
+			log.warn("チェックポイントが読めないよ！" + file + " " + e.getMessage());
+			return null;
+		}
+	}
+
+	private File getFile(String symbol) {
+		return new File(dir, symbol.replace('/', '_') + ".checkpoint");
+	}
+
+	@Value
+	public static class Checkpoint {
+		long tick;
+		double[] state;
+	}
+}
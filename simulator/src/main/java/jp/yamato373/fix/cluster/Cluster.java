@@ -0,0 +1,188 @@
+package jp.yamato373.fix.cluster;
+
+import static quickfix.Acceptor.*;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import jp.yamato373.fix.util.Settings;
+import jp.yamato373.fix.util.Settings.Assignment;
+import jp.yamato373.fix.util.Settings.ClusterSettings;
+import jp.yamato373.fix.util.Settings.NodeSettings;
+import jp.yamato373.fix.util.Settings.Pacing;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.RejectLogon;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.field.MsgType;
+
+/**
+ * クラスタの中のこのノード。セッションはどれか1つのノードに割り当て、他のノードのセッションのログオンは断る。
+ * 通貨ペアは分けずに全ノードで生成する。シードと時刻の起点が同じなら同じ時刻に同じレートになるので、ノード間の通信は要らない。
+ */
+@Component
+@Slf4j
+public class Cluster {
+
+	@Getter
+	private final boolean enabled;
+	@Getter
+	private final int nodeId;
+	@Getter
+	private final List<NodeSettings> nodes;
+	private final Map<SessionID, Integer> assignments = new HashMap<>();
+	// 時刻の起点(エポックミリ秒)
+	@Getter
+	private final long epochMillis;
+
+	@Autowired
+	public Cluster(Settings settings) {
+		ClusterSettings cluster = settings.getCluster();
+		nodes = Collections.unmodifiableList(new ArrayList<>(cluster.getNodes()));
+		enabled = !nodes.isEmpty();
+		nodeId = cluster.getNodeId();
+		if (enabled) {
+			validate(settings);
+			for (Assignment assignment : cluster.getAssignments()) {
+				check(assignment.getNode() >= 0 && assignment.getNode() < nodes.size(),
+						"Invalid node: " + assignment);
+				assignments.put(new SessionID(assignment.getSession()), assignment.getNode());
+			}
+			epochMillis = parseEpoch(cluster.getEpoch());
+			log.info("クラスタで動かすよ！ nodeId=" + nodeId + " nodes=" + nodes.size() + " epoch=" + cluster.getEpoch());
+		} else {
+			epochMillis = 0;
+		}
+	}
+
+	private void validate(Settings settings) {
+		check(nodeId >= 0 && nodeId < nodes.size(), "nodeId must be 0-" + (nodes.size() - 1) + ": " + nodeId);
+		check(settings.getSeed() != 0, "cluster needs a fixed seed");
+		check(settings.getPacing() == Pacing.SCHEDULED, "cluster needs SCHEDULED pacing");
+		check(!StringUtils.hasText(settings.getReplayFile()), "cluster cannot replay");
+		check(settings.getRateGenerateInterval() > 0, "cluster needs rateGenerateInterval");
+		check(StringUtils.hasText(settings.getCluster().getEpoch()), "cluster needs an epoch");
+		check(settings.getCluster().getCheckpointTicks() > 0, "cluster needs checkpointTicks");
+		check(settings.getCluster().getMaxCatchUpTicks() >= 0, "maxCatchUpTicks must not be negative");
+	}
+
+	private static long parseEpoch(String epoch) {
+		try {
+			return Instant.parse(epoch).toEpochMilli();
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Invalid epoch: " + epoch, e);
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalArgumentException(message);
+		}
+	}
+
+	/**
+	 * @return sessionIDを受けるノード。割り当てが無ければセッションIDのハッシュ(String.hashCodeなのでどのノードでも同じ)で決める
+	 */
+	public int getNode(SessionID sessionID) {
+		if (!enabled) {
+			return nodeId;
+		}
+		Integer node = assignments.get(sessionID);
+		return node != null ? node : Math.floorMod(sessionID.toString().hashCode(), nodes.size());
+	}
+
+	public boolean isLocal(SessionID sessionID) {
+		return getNode(sessionID) == nodeId;
+	}
+
+	public Status getStatus() {
+		return new Status(enabled, nodeId, epochMillis, nodes);
+	}
+
+	/**
+	 * @return sessionIDを受けるノード。1台で動かしている時はnull
+	 */
+	public Placement getPlacement(SessionID sessionID) {
+		if (!enabled) {
+			return null;
+		}
+		int node = getNode(sessionID);
+		return new Placement(sessionID.toString(), node, nodes.get(node));
+	}
+
+	@Value
+	public static class Status {
+		boolean enabled;
+		int nodeId;
+		long epochMillis;
+		List<NodeSettings> nodes;
+	}
+
+	@Value
+	public static class Placement {
+		String session;
+		int node;
+		NodeSettings settings;
+	}
+
+	/**
+	 * fromAdminから呼ぶ。他のノードのセッションのログオンは、受けるノードをTextに入れて断る
+	 */
+	public void checkLogon(Message message, SessionID sessionID) throws FieldNotFound, RejectLogon {
+		if (!enabled || !MsgType.LOGON.equals(message.getHeader().getString(MsgType.FIELD))) {
+			return;
+		}
+		int node = getNode(sessionID);
+		if (node != nodeId) {
+			throw new RejectLogon("Wrong node. Use node " + node + " (" + nodes.get(node).getHost() + ")");
+		}
+	}
+
+	/**
+	 * @return 起点からintervalMillis毎に数えた今のティック番号。全ノードで同じ(時計が合っていれば)
+	 */
+	public long getTick(long intervalMillis) {
+		return Math.floorDiv(System.currentTimeMillis() - epochMillis, intervalMillis);
+	}
+
+	/**
+	 * @return tick番目のティックの時刻までのミリ秒
+	 */
+	public long getDelayToTick(long tick, long intervalMillis) {
+		return epochMillis + tick * intervalMillis - System.currentTimeMillis();
+	}
+
+	/**
+	 * このノードのポートが設定されていれば、sessionSettingsの全セクションのポートを置き換える。
+	 * 同じホストで複数ノードを動かす時に使う
+	 */
+	public void applyPort(SessionSettings sessionSettings, ToIntFunction<NodeSettings> port) {
+		if (!enabled) {
+			return;
+		}
+		int value = port.applyAsInt(nodes.get(nodeId));
+		if (value <= 0) {
+			return;
+		}
+		sessionSettings.setLong(SETTING_SOCKET_ACCEPT_PORT, value);
+		Iterator<SessionID> sectionIterator = sessionSettings.sectionIterator();
+		while (sectionIterator.hasNext()) {
+			sessionSettings.setLong(sectionIterator.next(), SETTING_SOCKET_ACCEPT_PORT, value);
+		}
+	}
+}
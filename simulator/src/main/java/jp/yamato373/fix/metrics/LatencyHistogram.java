@@ -0,0 +1,99 @@
+package jp.yamato373.fix.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Value;
+
+/**
+ * HdrHistogramと同じ考え方の対数線形ヒストグラム。2の累乗毎の区間を64個に分けるので誤差は約1.6%以内。
+ * 記録は配列の加算だけでオブジェクトを作らず、複数スレッドから呼んでよい。値はナノ秒、上限は約18分。
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_VALUE_BITS = 40;
+	private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+	private static final int LENGTH = 2 * SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT;
+
+	@Value
+	public static class Snapshot {
+		// 以下はマイクロ秒
+		long count;
+		double mean;
+		double p50;
+		double p90;
+		double p99;
+		double p999;
+		double max;
+	}
+
+	private final AtomicLongArray counts = new AtomicLongArray(LENGTH);
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+		long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+		counts.incrementAndGet(index(value));
+		sum.add(value);
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// 他スレッドと競合したらやり直す
+		}
+	}
+
+	public Snapshot getSnapshot() {
+		long[] copy = new long[LENGTH];
+		long count = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		if (count == 0) {
+			return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+		}
+		long maxValue = max.get();
+		return new Snapshot(count, toMicros(sum.sum() / count), toMicros(percentile(copy, count, 0.5, maxValue)),
+				toMicros(percentile(copy, count, 0.9, maxValue)), toMicros(percentile(copy, count, 0.99, maxValue)),
+				toMicros(percentile(copy, count, 0.999, maxValue)), toMicros(maxValue));
+	}
+
+	private static long percentile(long[] copy, long count, double ratio, long maxValue) {
+		long target = Math.max(1, (long) Math.ceil(count * ratio));
+		long seen = 0;
+		for (int i = 0; i < copy.length; i++) {
+			seen += copy[i];
+			if (seen >= target) {
+				return Math.min(upperBound(i), maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	static int index(long value) {
+		if (value < 2 * SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		// value >> shift が [SUB_BUCKET_COUNT, 2 * SUB_BUCKET_COUNT) に入るようにずらす
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKET_COUNT + (int) (value >> shift);
+	}
+
+	/**
+	 * indexのバケツに入る最大値
+	 */
+	static long upperBound(int index) {
+		if (index < 2 * SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long sub = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	private static double toMicros(long nanos) {
+		return nanos / 1000.0;
+	}
+}
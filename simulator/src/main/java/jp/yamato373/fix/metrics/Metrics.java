@@ -0,0 +1,146 @@
+package jp.yamato373.fix.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jp.yamato373.fix.util.Settings;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.SessionID;
+
+/**
+ * シミュレータ内部の計測値。記録側はオブジェクトを作らない。
+ *
+ * <ul>
+ * <li>tickToSend: ティック生成からIncrementalRefresh送信まで</li>
+ * <li>orderToExecutionReport: NewOrderSingle受信から最初のExecutionReport送信まで</li>
+ * <li>quoteToFill: 注文を受けた時に配信済みだったクォートの配信から、その注文の最初の約定まで</li>
+ * <li>セッション毎の送受信数と毎秒の件数</li>
+ * <li>キューの長さ等のゲージ</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class Metrics {
+
+	@Value
+	public static class Snapshot {
+		Map<String, LatencyHistogram.Snapshot> latencies;
+		Map<String, SessionSnapshot> sessions;
+		Map<String, Long> gauges;
+	}
+
+	@Value
+	public static class SessionSnapshot {
+		long sent;
+		long received;
+		long sentPerSec;
+		long receivedPerSec;
+	}
+
+	@Getter
+	private final LatencyHistogram tickToSend = new LatencyHistogram();
+	@Getter
+	private final LatencyHistogram orderToExecutionReport = new LatencyHistogram();
+	@Getter
+	private final LatencyHistogram quoteToFill = new LatencyHistogram();
+
+	private final Map<SessionID, SessionCounter> sessions = new ConcurrentHashMap<>();
+	private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+
+	@Autowired
+	Settings settings;
+
+	@PostConstruct
+	public void init() {
+		exec.scheduleAtFixedRate(this::updateRates, 1, 1, TimeUnit.SECONDS);
+		if (settings.getMetricsLogInterval() > 0) {
+			exec.scheduleAtFixedRate(() -> log.info("メトリクスだよ！ " + getSnapshot()),
+					settings.getMetricsLogInterval(), settings.getMetricsLogInterval(), TimeUnit.SECONDS);
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		exec.shutdownNow();
+	}
+
+	public void countSent(SessionID sessionID) {
+		getSessionCounter(sessionID).sent.increment();
+	}
+
+	public void countReceived(SessionID sessionID) {
+		getSessionCounter(sessionID).received.increment();
+	}
+
+	/**
+	 * スナップショットを取る時に呼ばれる値を登録する
+	 */
+	public void gauge(String name, LongSupplier supplier) {
+		gauges.put(name, supplier);
+	}
+
+	public Snapshot getSnapshot() {
+		Map<String, LatencyHistogram.Snapshot> latencies = new LinkedHashMap<>();
+		latencies.put("tickToSend", tickToSend.getSnapshot());
+		latencies.put("orderToExecutionReport", orderToExecutionReport.getSnapshot());
+		latencies.put("quoteToFill", quoteToFill.getSnapshot());
+
+		Map<String, SessionSnapshot> sessionSnapshots = new TreeMap<>();
+		sessions.forEach((sessionID, counter) -> sessionSnapshots.put(sessionID.toString(),
+				new SessionSnapshot(counter.sent.sum(), counter.received.sum(), counter.sentPerSec,
+						counter.receivedPerSec)));
+
+		Map<String, Long> gaugeValues = new TreeMap<>();
+		gauges.forEach((name, supplier) -> gaugeValues.put(name, supplier.getAsLong()));
+
+		return new Snapshot(latencies, sessionSnapshots, gaugeValues);
+	}
+
+	private SessionCounter getSessionCounter(SessionID sessionID) {
+		SessionCounter counter = sessions.get(sessionID);
+		if (counter == null) {
+			counter = sessions.computeIfAbsent(sessionID, key -> new SessionCounter());
+		}
+		return counter;
+	}
+
+	private void updateRates() {
+		for (SessionCounter counter : sessions.values()) {
+			long sent = counter.sent.sum();
+			long received = counter.received.sum();
+			counter.sentPerSec = sent - counter.lastSent;
+			counter.receivedPerSec = received - counter.lastReceived;
+			counter.lastSent = sent;
+			counter.lastReceived = received;
+		}
+	}
+
+	private static class SessionCounter {
+
+		final LongAdder sent = new LongAdder();
+		final LongAdder received = new LongAdder();
+
+		// 以下は集計スレッドが1秒毎に更新する
+		long lastSent;
+		long lastReceived;
+		volatile long sentPerSec;
+		volatile long receivedPerSec;
+	}
+}
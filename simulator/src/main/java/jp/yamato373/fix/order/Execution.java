@@ -0,0 +1,59 @@
+package jp.yamato373.fix.order;
+
+import jp.yamato373.fix.util.FixedPoint;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * マッチングエンジンの結果。板のロック中にその時点の注文の数量を写し取っておき、
+ * ロックを放してから{@link MatchingEngine.ExecutionHandler}に渡す。
+ */
+@Getter
+public class Execution {
+
+	enum Type {
+		NEW, TRADE, CANCELED
+	}
+
+	@Getter(AccessLevel.NONE)
+	final Type type;
+	private final Order order;
+	private final long cumQty;
+	// 約定数量×約定価格の合計
+	private final long cumAmount;
+	// 約定した時だけ
+	private final long lastQty;
+	private final long lastPx;
+	// 取消要求のClOrdID。IOC等の残数量の取消ならnull
+	private final String clOrdID;
+
+	private Execution(Type type, Order order, long lastQty, long lastPx, String clOrdID) {
+		this.type = type;
+		this.order = order;
+		this.cumQty = order.getCumQty();
+		this.cumAmount = order.getCumAmount();
+		this.lastQty = lastQty;
+		this.lastPx = lastPx;
+		this.clOrdID = clOrdID;
+	}
+
+	static Execution newOrder(Order order) {
+		return new Execution(Type.NEW, order, 0, 0, null);
+	}
+
+	static Execution trade(Order order, long lastQty, long lastPx) {
+		return new Execution(Type.TRADE, order, lastQty, lastPx, null);
+	}
+
+	static Execution canceled(Order order, String clOrdID) {
+		return new Execution(Type.CANCELED, order, 0, 0, clOrdID);
+	}
+
+	public long getLeavesQty() {
+		return order.getOrderQty() - cumQty;
+	}
+
+	public double getAvgPx() {
+		return cumQty == 0 ? 0 : FixedPoint.toDouble(cumAmount, order.getScale()) / cumQty;
+	}
+}
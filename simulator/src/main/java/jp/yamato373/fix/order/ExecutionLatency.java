@@ -0,0 +1,137 @@
+package jp.yamato373.fix.order;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jp.yamato373.fix.util.RandomSource;
+import jp.yamato373.fix.util.SettingsSnapshot;
+import jp.yamato373.fix.util.SettingsSnapshot.SessionValues;
+import jp.yamato373.fix.util.SettingsStore;
+
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+/**
+ * セッション・通貨ペア毎の約定遅延の設定。[default]に書けば全セッション、[session]に書けばそのセッションだけ。
+ * 乱数はセッションと注文処理スレッドの振り分けキー毎に分けるので、RandomSeedが同じなら同じ注文の流れで同じ遅延になる。
+ * 実行中の設定にセッション毎の上書きがあれば、全通貨ペアそれを使う。
+ *
+ * <pre>
+ * ExecutionLatency=lognormal(3,0.5)
+ * ExecutionLatency.EUR/USD=uniform(1,5)
+ * SendPendingNew=Y
+ * RandomSeed=12345
+ * </pre>
+ */
+class ExecutionLatency {
+
+	static final String EXECUTION_LATENCY_KEY = "ExecutionLatency";
+	static final String SEND_PENDING_NEW_KEY = "SendPendingNew";
+	static final String RANDOM_SEED_KEY = "RandomSeed";
+
+	private final Map<SessionID, SessionLatency> sessions = new HashMap<>();
+
+	private final SettingsStore settingsStore;
+	// 実行中の設定の上書きを変換したもの。版が変わったら作り直す
+	private volatile Overrides overrides;
+
+	ExecutionLatency(SessionSettings settings, SettingsStore settingsStore) throws ConfigError, FieldConvertError {
+		this.settingsStore = settingsStore;
+		for (Iterator<SessionID> it = settings.sectionIterator(); it.hasNext();) {
+			SessionID sessionID = it.next();
+			SessionLatency sessionLatency = new SessionLatency();
+			Properties properties = settings.getSessionProperties(sessionID, true);
+			for (String key : properties.stringPropertyNames()) {
+				if (key.equals(EXECUTION_LATENCY_KEY)) {
+					sessionLatency.defaultModel = LatencyModel.parse(properties.getProperty(key));
+				} else if (key.startsWith(EXECUTION_LATENCY_KEY + ".")) {
+					sessionLatency.symbolModels.put(key.substring(EXECUTION_LATENCY_KEY.length() + 1),
+							LatencyModel.parse(properties.getProperty(key)));
+				}
+			}
+			sessionLatency.sendPendingNew = settings.isSetting(sessionID, SEND_PENDING_NEW_KEY)
+					&& settings.getBool(sessionID, SEND_PENDING_NEW_KEY);
+			sessionLatency.randomSource = new RandomSource(
+					settings.isSetting(sessionID, RANDOM_SEED_KEY) ? settings.getLong(sessionID, RANDOM_SEED_KEY) : 0);
+			sessions.put(sessionID, sessionLatency);
+		}
+	}
+
+	/**
+	 * @param partitionKey 呼び出す注文処理スレッドの振り分けキー
+	 */
+	long nextNanos(SessionID sessionID, String symbol, String partitionKey) {
+		SessionLatency sessionLatency = sessions.get(sessionID);
+		if (sessionLatency == null) {
+			return 0;
+		}
+		LatencyModel model = getOverride(sessionID);
+		if (model == null) {
+			model = sessionLatency.symbolModels.getOrDefault(symbol, sessionLatency.defaultModel);
+		}
+		if (model == LatencyModel.ZERO) {
+			return 0;
+		}
+		SplittableRandom random = sessionLatency.randoms.get(partitionKey);
+		if (random == null) {
+			random = sessionLatency.randoms.computeIfAbsent(partitionKey,
+					key -> sessionLatency.randomSource.create(sessionID + "/" + key));
+		}
+		return model.nextNanos(random);
+	}
+
+	boolean isSendPendingNew(SessionID sessionID) {
+		SessionLatency sessionLatency = sessions.get(sessionID);
+		return sessionLatency != null && sessionLatency.sendPendingNew;
+	}
+
+	/**
+	 * 設定を差し替える前の検証。書式が正しくなければIllegalArgumentException
+	 */
+	static void validate(SettingsSnapshot snapshot) {
+		new Overrides(snapshot);
+	}
+
+	private LatencyModel getOverride(SessionID sessionID) {
+		SettingsSnapshot snapshot = settingsStore.getSnapshot();
+		Overrides current = overrides;
+		if (current == null || current.snapshot != snapshot) {
+			// 複数のスレッドが同時に作っても中身は同じ
+			current = new Overrides(snapshot);
+			overrides = current;
+		}
+		return current.models.get(sessionID);
+	}
+
+	private static class Overrides {
+
+		final SettingsSnapshot snapshot;
+		final Map<SessionID, LatencyModel> models = new HashMap<>();
+
+		Overrides(SettingsSnapshot snapshot) {
+			this.snapshot = snapshot;
+			for (Map.Entry<SessionID, SessionValues> entry : snapshot.getSessions().entrySet()) {
+				if (entry.getValue().getExecutionLatency() != null) {
+					models.put(entry.getKey(), LatencyModel.parse(entry.getValue().getExecutionLatency()));
+				}
+			}
+		}
+	}
+
+	private static class SessionLatency {
+
+		LatencyModel defaultModel = LatencyModel.ZERO;
+		final Map<String, LatencyModel> symbolModels = new HashMap<>();
+		boolean sendPendingNew;
+		RandomSource randomSource;
+		// 振り分けキー毎。同じキーは同じスレッドからしか使わない
+		final ConcurrentMap<String, SplittableRandom> randoms = new ConcurrentHashMap<>();
+	}
+}
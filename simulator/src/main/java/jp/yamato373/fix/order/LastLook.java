@@ -0,0 +1,100 @@
+package jp.yamato373.fix.order;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import jp.yamato373.fix.price.PriceStore;
+import jp.yamato373.fix.price.Quote;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.SessionSettings;
+
+/**
+ * ラストルック。注文を保留時間だけ待たせ、その時点で配信済みだったクォートが注文の価格から不利な方向に許容幅より動いていればリジェクトする。
+ * 注文の価格は指値、成行なら受けた時に配信済みだったクォート。
+ * その時点のクォートは{@link PriceStore#readAt}で配信の履歴から引くので、注文処理やタイマーが遅れても判断は変わらない。
+ * 許容幅は通貨ペア毎に決められ、無い通貨ペアは見ない。
+ * 保留時間は配信の履歴で遡れる時間より短くすること。それでも処理が遅れて履歴から溢れたら、判断できないのでリジェクトする。
+ *
+ * <pre>
+ * LastLookHoldMillis=5
+ * LastLookTolerancePoints=3
+ * LastLookTolerancePoints.EUR/USD=10
+ * </pre>
+ */
+class LastLook {
+
+	static final String HOLD_MILLIS_KEY = "LastLookHoldMillis";
+	static final String TOLERANCE_POINTS_KEY = "LastLookTolerancePoints";
+	static final String REJECT_TEXT = "Price moved";
+	static final String NO_HISTORY_TEXT = "Quote history exceeded";
+
+	private final long holdNanos;
+	// 通貨ペア毎の許容幅(ポイント)。無ければdefaultTolerance、それも無ければ見ない
+	private final Map<String, Long> tolerances = new HashMap<>();
+	private final Long defaultTolerance;
+
+	LastLook(SessionSettings settings) throws ConfigError, FieldConvertError {
+		holdNanos = settings.isSetting(HOLD_MILLIS_KEY)
+				? TimeUnit.MILLISECONDS.toNanos(settings.getLong(HOLD_MILLIS_KEY)) : 0;
+		Properties properties = settings.getDefaultProperties();
+		Long tolerance = null;
+		for (String key : properties.stringPropertyNames()) {
+			if (key.equals(TOLERANCE_POINTS_KEY)) {
+				tolerance = parse(key, properties.getProperty(key));
+			} else if (key.startsWith(TOLERANCE_POINTS_KEY + ".")) {
+				tolerances.put(key.substring(TOLERANCE_POINTS_KEY.length() + 1),
+						parse(key, properties.getProperty(key)));
+			}
+		}
+		defaultTolerance = tolerance;
+	}
+
+	private static Long parse(String key, String value) throws FieldConvertError {
+		try {
+			return Long.valueOf(value.trim());
+		} catch (NumberFormatException e) {
+			throw new FieldConvertError(key + ": " + value);
+		}
+	}
+
+	/**
+	 * @return symbolを見るか
+	 */
+	boolean isEnabled(String symbol) {
+		return defaultTolerance != null || tolerances.containsKey(symbol);
+	}
+
+	long getHoldNanos() {
+		return holdNanos;
+	}
+
+	/**
+	 * @param historyNanos 配信の履歴で遡れる時間({@link PriceStore#getHistoryNanos})
+	 */
+	void validate(long historyNanos) {
+		if ((defaultTolerance != null || !tolerances.isEmpty()) && holdNanos >= historyNanos) {
+			throw new IllegalArgumentException(HOLD_MILLIS_KEY + " must be shorter than the quote history ("
+					+ TimeUnit.NANOSECONDS.toMillis(historyNanos) + "ms)");
+		}
+	}
+
+	/**
+	 * @param quote 保留が終わる時点で配信済みだったクォート。まだ配信していなければnullで、見ない
+	 * @param referencePx 注文の価格
+	 * @return リジェクトするならそのText。しないならnull
+	 */
+	String check(Quote quote, boolean buy, long referencePx) {
+		if (quote == null) {
+			return null;
+		}
+		Long tolerance = tolerances.get(quote.getSymbol());
+		if (tolerance == null) {
+			tolerance = defaultTolerance;
+		}
+		long moved = buy ? quote.getAskPx() - referencePx : referencePx - quote.getBidPx();
+		return moved > tolerance ? REJECT_TEXT : null;
+	}
+}
@@ -0,0 +1,141 @@
+package jp.yamato373.fix.order;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import jp.yamato373.fix.util.Gaussian;
+
+/**
+ * 注文を受けてから約定処理するまでの遅延の分布。値はミリ秒で書く。乱数は呼び出し側が渡す。
+ *
+ * <pre>
+ * fixed(5)             常に5ms
+ * uniform(1,10)        1〜10msの一様分布
+ * lognormal(3,0.5)     中央値3ms、σ0.5の対数正規分布
+ * histogram(path)      「ミリ秒,重み」の行を並べたファイルの分布
+ * </pre>
+ */
+public interface LatencyModel {
+
+	LatencyModel ZERO = random -> 0;
+
+	long nextNanos(SplittableRandom random);
+
+	static LatencyModel parse(String spec) {
+		String value = spec.trim();
+		int open = value.indexOf('(');
+		if (open < 0 || !value.endsWith(")")) {
+			throw new IllegalArgumentException("Invalid latency: " + spec);
+		}
+		String type = value.substring(0, open).trim().toLowerCase();
+		String args = value.substring(open + 1, value.length() - 1).trim();
+		String[] params = args.split("\\s*,\\s*");
+		switch (type) {
+		case "fixed":
+			long nanos = toNanos(Double.parseDouble(params[0]));
+			return nanos == 0 ? ZERO : random -> nanos;
+		case "uniform":
+			return new Uniform(toNanos(Double.parseDouble(params[0])), toNanos(Double.parseDouble(params[1])));
+		case "lognormal":
+			return new LogNormal(Double.parseDouble(params[0]), Double.parseDouble(params[1]));
+		case "histogram":
+			return Histogram.load(args);
+		default:
+			throw new IllegalArgumentException("Invalid latency: " + spec);
+		}
+	}
+
+	static long toNanos(double millis) {
+		return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	class Uniform implements LatencyModel {
+
+		private final long min;
+		private final long max;
+
+		Uniform(long min, long max) {
+			this.min = min;
+			this.max = Math.max(min, max);
+		}
+
+		@Override
+		public long nextNanos(SplittableRandom random) {
+			return min == max ? min : random.nextLong(min, max + 1);
+		}
+	}
+
+	class LogNormal implements LatencyModel {
+
+		private final double mu;
+		private final double sigma;
+
+		LogNormal(double medianMillis, double sigma) {
+			this.mu = Math.log(toNanos(medianMillis));
+			this.sigma = sigma;
+		}
+
+		@Override
+		public long nextNanos(SplittableRandom random) {
+			return (long) Math.exp(mu + sigma * Gaussian.next(random));
+		}
+	}
+
+	class Histogram implements LatencyModel {
+
+		private final long[] values;
+		// 重みの累積
+		private final double[] cumulative;
+
+		private Histogram(long[] values, double[] cumulative) {
+			this.values = values;
+			this.cumulative = cumulative;
+		}
+
+		static Histogram load(String path) {
+			List<String> lines;
+			try {
+				lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Cannot read latency histogram: " + path, e);
+			}
+			List<Long> latencies = new ArrayList<>();
+			List<Double> weights = new ArrayList<>();
+			for (String line : lines) {
+				String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+					continue;
+				}
+				String[] columns = trimmed.split("\\s*[,\\s]\\s*");
+				latencies.add(toNanos(Double.parseDouble(columns[0])));
+				weights.add(columns.length > 1 ? Double.parseDouble(columns[1]) : 1);
+			}
+			if (latencies.isEmpty()) {
+				throw new IllegalArgumentException("Empty latency histogram: " + path);
+			}
+			long[] values = new long[latencies.size()];
+			double[] cumulative = new double[latencies.size()];
+			double sum = 0;
+			for (int i = 0; i < values.length; i++) {
+				values[i] = latencies.get(i);
+				sum += weights.get(i);
+				cumulative[i] = sum;
+			}
+			return new Histogram(values, cumulative);
+		}
+
+		@Override
+		public long nextNanos(SplittableRandom random) {
+			double r = random.nextDouble(cumulative[cumulative.length - 1]);
+			int index = Arrays.binarySearch(cumulative, r);
+			return values[index >= 0 ? Math.min(index + 1, values.length - 1) : -index - 1];
+		}
+	}
+}
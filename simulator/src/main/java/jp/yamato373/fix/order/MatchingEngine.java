@@ -0,0 +1,264 @@
+package jp.yamato373.fix.order;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jp.yamato373.fix.order.OrderBook.PriceLevel;
+import jp.yamato373.fix.price.PriceStore;
+import jp.yamato373.fix.price.Quote;
+import jp.yamato373.fix.price.Rate;
+import jp.yamato373.fix.price.RateGeneratWorker;
+import jp.yamato373.fix.util.PartitionedExecutor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.SessionID;
+import quickfix.field.TimeInForce;
+
+/**
+ * 配信したクォート({@link PriceStore})のレートとサイズに対して注文を約定させる。まだ配信していない通貨ペアは約定しない。
+ *
+ * <ul>
+ * <li>新規注文は最後に配信したクォートに対して約定する。成行とレートを跨いだ指値が対象で、約定価格はクォート+スリッページ(指値を超えない)</li>
+ * <li>約定数量はクォートのサイズまで。同じクォートで約定した分は差し引く</li>
+ * <li>残りはIOCと成行なら取消、FOKは全量約定できなければ取消、それ以外は板に載せる</li>
+ * <li>板の注文はクォートを配信する毎に価格優先・時間優先で約定する。約定価格は指値</li>
+ * </ul>
+ * 結果は板のロック中に{@link Execution}として積み、ExecutionReportの送信はロックを放してから行う。
+ * 配信毎の板の約定は送信スレッドではなく注文処理スレッドで行うので、注文セッションの送信が遅くても配信は止まらない。
+ */
+@Component
+@Slf4j
+public class MatchingEngine {
+
+	/**
+	 * 約定結果の通知先。板のロックを放してから、通貨ペア毎に1スレッドずつ起きた順に呼ばれる
+	 */
+	public interface ExecutionHandler {
+
+		void onNew(Execution execution);
+
+		void onTrade(Execution execution);
+
+		void onCanceled(Execution execution);
+	}
+
+	private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+
+	@Setter
+	private ExecutionHandler executionHandler;
+
+	// 成行・即時約定に不利な方向に付けるポイント数(価格の最小単位)
+	@Setter
+	private long slippagePoints;
+
+	// 配信毎の板の約定を行う注文処理スレッド。無ければ送信スレッドで行う
+	@Setter
+	private PartitionedExecutor tickExecutor;
+
+	@Autowired
+	RateGeneratWorker rateGeneratWorker;
+
+	@Autowired
+	PriceStore priceStore;
+
+	@PostConstruct
+	public void init() {
+		priceStore.addListener(this::onTick);
+	}
+
+	public int getScale(String symbol) {
+		Rate rate = rateGeneratWorker.getRate(symbol);
+		return rate != null ? rate.getScale() : -1;
+	}
+
+	public boolean contains(SessionID sessionID, String clOrdID, String symbol) {
+		OrderBook book = books.get(symbol);
+		if (book == null) {
+			return false;
+		}
+		synchronized (book) {
+			return book.contains(sessionID, clOrdID);
+		}
+	}
+
+	/**
+	 * 新規注文を受け付ける。通貨ペアは{@link #getScale(String)}で存在を確認しておくこと
+	 */
+	public void submit(Order order) {
+		OrderBook book = books.computeIfAbsent(order.getSymbol(), OrderBook::new);
+		synchronized (book) {
+			execute(book, order, priceStore.read(order.getSymbol(), book.quote));
+		}
+		dispatch(book);
+	}
+
+	/**
+	 * @param quote 配信済みのクォート。まだ配信していなければnullで、約定しない
+	 */
+	private void execute(OrderBook book, Order order, Quote quote) {
+		boolean buy = order.isBuy();
+		long marketPx = quote == null ? 0 : buy ? quote.getAskPx() : quote.getBidPx();
+		boolean marketable = quote != null && (order.isMarket()
+				|| (buy ? order.getPrice() >= marketPx : order.getPrice() <= marketPx));
+		long fillQty = marketable ? Math.min(order.getLeavesQty(), book.available(buy)) : 0;
+
+		char timeInForce = order.getTimeInForce();
+		if (timeInForce == TimeInForce.FILL_OR_KILL && fillQty < order.getLeavesQty()) {
+			book.executions.add(Execution.canceled(order, null));
+			return;
+		}
+		boolean rest = !order.isMarket() && timeInForce != TimeInForce.IMMEDIATE_OR_CANCEL
+				&& timeInForce != TimeInForce.FILL_OR_KILL;
+		if (rest && fillQty < order.getLeavesQty()) {
+			book.executions.add(Execution.newOrder(order));
+		}
+
+		if (fillQty > 0) {
+			long fillPx = buy ? marketPx + slippagePoints : marketPx - slippagePoints;
+			if (!order.isMarket()) {
+				fillPx = buy ? Math.min(fillPx, order.getPrice()) : Math.max(fillPx, order.getPrice());
+			}
+			book.take(buy, fillQty);
+			order.fill(fillQty, fillPx);
+			book.executions.add(Execution.trade(order, fillQty, fillPx));
+		}
+
+		if (order.getLeavesQty() > 0) {
+			if (rest) {
+				book.add(order);
+			} else {
+				book.executions.add(Execution.canceled(order, null));
+			}
+		}
+	}
+
+	/**
+	 * @return 板に無ければnull
+	 */
+	public Order cancel(SessionID sessionID, String origClOrdID, String symbol, String clOrdID) {
+		OrderBook book = books.get(symbol);
+		if (book == null) {
+			return null;
+		}
+		Order order;
+		synchronized (book) {
+			order = book.get(sessionID, origClOrdID);
+			if (order == null) {
+				return null;
+			}
+			book.remove(order);
+			book.executions.add(Execution.canceled(order, clOrdID));
+		}
+		dispatch(book);
+		return order;
+	}
+
+	/**
+	 * 送信スレッドから呼ばれる。板に注文があれば注文処理スレッドに渡す。
+	 * 渡したタスクが動くまでに次の配信があっても、タスクは1つだけで最新のクォートに対して約定する
+	 */
+	private void onTick(Rate rate) {
+		OrderBook book = books.get(rate.getSymbol());
+		if (book == null || tickExecutor == null) {
+			onTick(book, rate);
+			return;
+		}
+		if (!book.tickPending.compareAndSet(false, true)) {
+			return;
+		}
+		if (!tickExecutor.execute(rate.getSymbol(), () -> {
+			book.tickPending.set(false);
+			onTick(book, rate);
+		})) {
+			// 次の配信でまた渡す
+			book.tickPending.set(false);
+			log.warn("注文処理が詰まってるから板の約定を見送ったよ！" + rate.getSymbol());
+		}
+	}
+
+	private void onTick(OrderBook book, Rate rate) {
+		if (book == null) {
+			return;
+		}
+		synchronized (book) {
+			if (book.size() == 0) {
+				return;
+			}
+			Quote quote = rate.read(book.quote);
+			match(book, book.bids, true, quote.getAskPx());
+			match(book, book.asks, false, quote.getBidPx());
+		}
+		dispatch(book);
+	}
+
+	private void match(OrderBook book, TreeMap<Long, PriceLevel> side, boolean buy, long marketPx) {
+		while (!side.isEmpty()) {
+			PriceLevel level = side.firstEntry().getValue();
+			if (buy ? level.price < marketPx : level.price > marketPx) {
+				return;
+			}
+			// レベルの注文が全部約定するとbook.removeでレベルごと消える
+			while (level.head != null) {
+				long available = book.available(buy);
+				if (available == 0) {
+					return;
+				}
+				Order order = level.head;
+				long fillQty = Math.min(order.getLeavesQty(), available);
+				book.take(buy, fillQty);
+				order.fill(fillQty, level.price);
+				if (order.getLeavesQty() == 0) {
+					book.remove(order);
+				}
+				book.executions.add(Execution.trade(order, fillQty, level.price));
+			}
+		}
+	}
+
+	/**
+	 * 板に積んだ約定結果をロックの外で通知する。他のスレッドが通知中ならそのスレッドに任せる
+	 */
+	private void dispatch(OrderBook book) {
+		while (book.dispatching.compareAndSet(false, true)) {
+			try {
+				Execution execution;
+				while ((execution = poll(book)) != null) {
+					handle(execution);
+				}
+			} finally {
+				book.dispatching.set(false);
+			}
+			// 放す直前に積まれた分があれば拾い直す
+			synchronized (book) {
+				if (book.executions.isEmpty()) {
+					return;
+				}
+			}
+		}
+	}
+
+	private Execution poll(OrderBook book) {
+		synchronized (book) {
+			return book.executions.poll();
+		}
+	}
+
+	private void handle(Execution execution) {
+		switch (execution.type) {
+		case NEW:
+			executionHandler.onNew(execution);
+			break;
+		case TRADE:
+			executionHandler.onTrade(execution);
+			break;
+		default:
+			executionHandler.onCanceled(execution);
+		}
+	}
+}
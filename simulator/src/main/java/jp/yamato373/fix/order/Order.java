@@ -0,0 +1,78 @@
+package jp.yamato373.fix.order;
+
+import jp.yamato373.fix.util.FixedPoint;
+import lombok.Getter;
+import quickfix.SessionID;
+import quickfix.field.OrdType;
+import quickfix.field.Side;
+
+/**
+ * マッチングエンジンが扱う注文。価格は通貨ペアの桁数の固定小数点。
+ * 板に載っている間は{@link OrderBook}の連結リストの要素になる。
+ */
+@Getter
+public class Order {
+
+	private final SessionID sessionID;
+	private final String orderID;
+	private final String clOrdID;
+	private final String account;
+	private final String symbol;
+	private final char side;
+	private final char ordType;
+	private final char timeInForce;
+	private final long orderQty;
+	// 成行は0
+	private final long price;
+	private final int scale;
+
+	// 計測用。受信時のSystem.nanoTime()。最初のExecutionReportを送ったら0にする
+	long receivedNanoTime;
+	// 計測用。受けた時に配信済みだったクォートの配信時のSystem.nanoTime()。最初に約定したら0にする
+	long quoteNanoTime;
+
+	long cumQty;
+	// 約定数量×約定価格の合計
+	long cumAmount;
+
+	// 板の中の位置
+	OrderBook.PriceLevel level;
+	Order prev;
+	Order next;
+
+	public Order(SessionID sessionID, String orderID, String clOrdID, String account, String symbol, char side,
+			char ordType, char timeInForce, long orderQty, long price, int scale) {
+		this.sessionID = sessionID;
+		this.orderID = orderID;
+		this.clOrdID = clOrdID;
+		this.account = account;
+		this.symbol = symbol;
+		this.side = side;
+		this.ordType = ordType;
+		this.timeInForce = timeInForce;
+		this.orderQty = orderQty;
+		this.price = price;
+		this.scale = scale;
+	}
+
+	public boolean isBuy() {
+		return side == Side.BUY;
+	}
+
+	public boolean isMarket() {
+		return ordType == OrdType.MARKET || ordType == OrdType.FOREX_MARKET;
+	}
+
+	public long getLeavesQty() {
+		return orderQty - cumQty;
+	}
+
+	public double getAvgPx() {
+		return cumQty == 0 ? 0 : FixedPoint.toDouble(cumAmount, scale) / cumQty;
+	}
+
+	void fill(long qty, long px) {
+		cumQty += qty;
+		cumAmount += qty * px;
+	}
+}
@@ -0,0 +1,593 @@
+package jp.yamato373.fix.order;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jp.yamato373.fix.OutboundValidator;
+import jp.yamato373.fix.cluster.Cluster;
+import jp.yamato373.fix.metrics.Metrics;
+import jp.yamato373.fix.price.PriceStore;
+import jp.yamato373.fix.price.Quote;
+import jp.yamato373.fix.scenario.MarketConditions;
+import jp.yamato373.fix.util.FixedPoint;
+import jp.yamato373.fix.util.IdGenerator;
+import jp.yamato373.fix.util.PartitionedExecutor;
+import jp.yamato373.fix.util.SettingsStore;
+import jp.yamato373.fix.util.TimerWheel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.Application;
+import quickfix.ConfigError;
+import quickfix.DoNotSend;
+import quickfix.FieldConvertError;
+import quickfix.FieldNotFound;
+import quickfix.IncorrectDataFormat;
+import quickfix.IncorrectTagValue;
+import quickfix.LogUtil;
+import quickfix.Message;
+import quickfix.MessageCracker;
+import quickfix.RejectLogon;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionNotFound;
+import quickfix.SessionSettings;
+import quickfix.UnsupportedMessageType;
+import quickfix.field.Account;
+import quickfix.field.AvgPx;
+import quickfix.field.ClOrdID;
+import quickfix.field.CumQty;
+import quickfix.field.CxlRejReason;
+import quickfix.field.CxlRejResponseTo;
+import quickfix.field.ExecID;
+import quickfix.field.ExecType;
+import quickfix.field.LastPx;
+import quickfix.field.LastQty;
+import quickfix.field.LeavesQty;
+import quickfix.field.OrdRejReason;
+import quickfix.field.OrdStatus;
+import quickfix.field.OrdType;
+import quickfix.field.OrderID;
+import quickfix.field.OrderQty;
+import quickfix.field.OrigClOrdID;
+import quickfix.field.Price;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+import quickfix.field.Text;
+import quickfix.field.TimeInForce;
+import quickfix.field.TransactTime;
+import quickfix.fix44.ExecutionReport;
+import quickfix.fix44.NewOrderSingle;
+import quickfix.fix44.OrderCancelReject;
+import quickfix.fix44.OrderCancelRequest;
+
+@Component
+@Slf4j
+public class OrderApplication extends MessageCracker implements Application {
+
+	// OrderIDとExecIDで共用
+	private IdGenerator idGenerator;
+
+	private static final String SLIPPAGE_POINTS_KEY = "SlippagePoints";
+	private static final String ID_NODE_ID_KEY = "IdNodeId";
+	private static final String ORDER_PARTITIONS_KEY = "OrderPartitions";
+	private static final String ORDER_QUEUE_SIZE_KEY = "OrderQueueSize";
+	private static final String ORDER_PARTITION_KEY_KEY = "OrderPartitionKey";
+	private static final String LATENCY_TIMER_TICK_MICROS_KEY = "LatencyTimerTickMicros";
+	private static final String VALID_ORDER_TYPES_KEY = "ValidOrderTypes";
+
+	private final HashSet<String> validOrderTypes = new HashSet<>();
+	private QuoteChecker quoteChecker;
+	private LastLook lastLook;
+	private final LongAdder lastLookRejects = new LongAdder();
+	@Getter
+	private OutboundValidator outboundValidator;
+
+	// 注文処理スレッド。通貨ペア(またはアカウント)毎に順番を保つ
+	@Getter
+	private PartitionedExecutor orderExecutor;
+	private boolean partitionByAccount;
+
+	private ExecutionLatency executionLatency;
+	// 遅延させた注文・キャンセルを待たせておく
+	@Getter
+	private TimerWheel timerWheel;
+	private final ExecutionReportSender executionReportSender = new ExecutionReportSender();
+	// 受け付けてからマッチングエンジンに渡し終わるまでの注文(遅延・ラストルック・キューで待っている間)と、渡す予定のnanoTime。
+	// マッチングエンジンは板に載った注文しか知らないので、ClOrdIDの重複はこちらも見る。キャンセルは渡す前に追い越さない
+	private final ConcurrentMap<OrderBook.Key, Long> inFlight = new ConcurrentHashMap<>();
+
+	@Autowired
+	MatchingEngine matchingEngine;
+
+	@Autowired
+	Metrics metrics;
+
+	@Autowired
+	SettingsStore settingsStore;
+
+	@Autowired
+	MarketConditions marketConditions;
+
+	@Autowired
+	Cluster cluster;
+
+	@Autowired
+	PriceStore priceStore;
+
+	// 注文処理スレッドで処理中のメッセージの受信時刻
+	private final ThreadLocal<long[]> receivedNanoTime = ThreadLocal.withInitial(() -> new long[1]);
+	// 注文処理スレッド毎に使い回す
+	private final ThreadLocal<Quote> quotes = ThreadLocal.withInitial(Quote::new);
+
+	public void setSessionSettings(SessionSettings sessionSettings) throws ConfigError, FieldConvertError {
+		outboundValidator = new OutboundValidator(sessionSettings);
+		initializeIdGenerator(sessionSettings);
+		initializeValidOrderTypes(sessionSettings);
+		settingsStore.addSessions(sessionSettings);
+		quoteChecker = new QuoteChecker(sessionSettings);
+		lastLook = new LastLook(sessionSettings);
+		try {
+			lastLook.validate(priceStore.getHistoryNanos(settingsStore.getSnapshot()));
+		} catch (IllegalArgumentException e) {
+			throw new ConfigError(e.getMessage());
+		}
+		// 送信間隔などを変えても保留中に履歴が溢れないように
+		settingsStore.addValidator(snapshot -> lastLook.validate(priceStore.getHistoryNanos(snapshot)));
+		if (sessionSettings.isSetting(SLIPPAGE_POINTS_KEY)) {
+			matchingEngine.setSlippagePoints(sessionSettings.getLong(SLIPPAGE_POINTS_KEY));
+		}
+		matchingEngine.setExecutionHandler(executionReportSender);
+		initializeOrderExecutor(sessionSettings);
+		matchingEngine.setTickExecutor(orderExecutor);
+		initializeExecutionLatency(sessionSettings);
+
+		metrics.gauge("order.queueDepth", () -> {
+			long depth = 0;
+			for (int queueDepth : orderExecutor.getStats().getQueueDepths()) {
+				depth += queueDepth;
+			}
+			return depth;
+		});
+		metrics.gauge("order.delayed", timerWheel::getPending);
+		metrics.gauge("order.lastLookRejects", lastLookRejects::sum);
+	}
+
+	private void initializeExecutionLatency(SessionSettings settings) throws ConfigError, FieldConvertError {
+		executionLatency = new ExecutionLatency(settings, settingsStore);
+		settingsStore.addValidator(ExecutionLatency::validate);
+		long tickMicros = settings.isSetting(LATENCY_TIMER_TICK_MICROS_KEY)
+				? settings.getLong(LATENCY_TIMER_TICK_MICROS_KEY) : 100;
+		timerWheel = new TimerWheel("ExecutionLatency", tickMicros, TimeUnit.MICROSECONDS, 4096);
+	}
+
+	private void initializeIdGenerator(SessionSettings settings) throws ConfigError, FieldConvertError {
+		int nodeId;
+		if (cluster.isEnabled()) {
+			// クラスタならノード番号を使う
+			nodeId = cluster.getNodeId();
+		} else if (settings.isSetting(ID_NODE_ID_KEY)) {
+			nodeId = (int) settings.getLong(ID_NODE_ID_KEY);
+		} else {
+			// 未設定ならプロセスから決める。複数台で動かす時は重複しないように設定すること
+			nodeId = ManagementFactory.getRuntimeMXBean().getName().hashCode() & IdGenerator.MAX_NODE_ID;
+			log.warn(ID_NODE_ID_KEY + " is not set. Using " + nodeId + ".");
+		}
+		idGenerator = new IdGenerator(nodeId);
+	}
+
+	private void initializeOrderExecutor(SessionSettings settings) throws ConfigError, FieldConvertError {
+		int partitions = settings.isSetting(ORDER_PARTITIONS_KEY) ? (int) settings.getLong(ORDER_PARTITIONS_KEY)
+				: 0;
+		int queueSize = settings.isSetting(ORDER_QUEUE_SIZE_KEY) ? (int) settings.getLong(ORDER_QUEUE_SIZE_KEY)
+				: 1024;
+		partitionByAccount = settings.isSetting(ORDER_PARTITION_KEY_KEY)
+				&& "ACCOUNT".equalsIgnoreCase(settings.getString(ORDER_PARTITION_KEY_KEY));
+		orderExecutor = new PartitionedExecutor("Order", partitions, queueSize);
+		log.info("注文処理スレッド作ったよ！ " + orderExecutor.getStats().getPartitions() + "本 queueSize="
+				+ queueSize + " key=" + (partitionByAccount ? "ACCOUNT" : "SYMBOL"));
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		timerWheel.stop();
+		orderExecutor.shutdown();
+	}
+
+	private void initializeValidOrderTypes(SessionSettings settings) throws ConfigError, FieldConvertError {
+		if (settings.isSetting(VALID_ORDER_TYPES_KEY)) {
+			List<String> orderTypes = Arrays
+					.asList(settings.getString(VALID_ORDER_TYPES_KEY).trim().split("\\s*,\\s*"));
+			validOrderTypes.addAll(orderTypes);
+		} else {
+			validOrderTypes.add(OrdType.LIMIT + "");
+		}
+	}
+
+	@Override
+	public void onCreate(SessionID sessionID) {
+		Session.lookupSession(sessionID).getLog().onEvent("Valid order types: " + validOrderTypes);
+	}
+
+	@Override
+	public void onLogon(SessionID sessionID) {
+	}
+
+	@Override
+	public void onLogout(SessionID sessionID) {
+	}
+
+	@Override
+	public void toAdmin(quickfix.Message message, SessionID sessionID) {
+	}
+
+	@Override
+	public void toApp(quickfix.Message message, SessionID sessionID) throws DoNotSend {
+		metrics.countSent(sessionID);
+	}
+
+	@Override
+	public void fromAdmin(quickfix.Message message, SessionID sessionID)
+			throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
+		cluster.checkLogon(message, sessionID);
+		marketConditions.checkLogon(message, sessionID);
+	}
+
+	@Override
+	public void fromApp(quickfix.Message message, SessionID sessionID)
+			throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
+
+		metrics.countReceived(sessionID);
+		long received = System.nanoTime();
+		if (message instanceof NewOrderSingle || message instanceof OrderCancelRequest) {
+			String key = getPartitionKey(message.getString(Symbol.FIELD),
+					message.isSetField(Account.FIELD) ? message.getString(Account.FIELD) : null);
+			if (!orderExecutor.execute(key, () -> process(message, sessionID, received))) {
+				log.warn("注文処理が詰まってるからリジェクトしたよ！ " + orderExecutor.getStats());
+				if (message instanceof NewOrderSingle) {
+					sendReject((NewOrderSingle) message, sessionID, OrdRejReason.OTHER, "Busy");
+				} else {
+					sendCancelReject((OrderCancelRequest) message, sessionID, CxlRejReason.OTHER, "Busy");
+				}
+			}
+			return;
+		}
+		crack(message, sessionID);
+	}
+
+	private String getPartitionKey(String symbol, String account) {
+		if (partitionByAccount) {
+			return account != null ? account : "";
+		}
+		return symbol;
+	}
+
+	/**
+	 * 遅延が無ければすぐに、あればタイマーで待ってから同じ注文処理スレッドで実行する
+	 */
+	private void executeAfter(long delayNanos, String partitionKey, Runnable task, Runnable onBusy) {
+		if (delayNanos <= 0) {
+			task.run();
+			return;
+		}
+		timerWheel.schedule(delayNanos, TimeUnit.NANOSECONDS, () -> {
+			if (!orderExecutor.execute(partitionKey, task)) {
+				log.warn("注文処理が詰まってるからリジェクトしたよ！ " + orderExecutor.getStats());
+				onBusy.run();
+			}
+		});
+	}
+
+	private void process(quickfix.Message message, SessionID sessionID, long received) {
+		receivedNanoTime.get()[0] = received;
+		try {
+			crack(message, sessionID);
+		} catch (FieldNotFound | UnsupportedMessageType | IncorrectTagValue e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	public void onMessage(NewOrderSingle newOrderSingle, SessionID sessionID)
+			throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
+
+		log.info("オーダー来たよ！" + newOrderSingle);
+
+		String symbol = newOrderSingle.getSymbol().getValue();
+		char ordType = newOrderSingle.getOrdType().getValue();
+		boolean market = ordType == OrdType.MARKET || ordType == OrdType.FOREX_MARKET;
+		int scale = matchingEngine.getScale(symbol);
+
+		if (scale < 0) {
+			sendReject(newOrderSingle, sessionID, OrdRejReason.UNKNOWN_SYMBOL);
+			return;
+		}
+		if (!validOrderTypes.contains(String.valueOf(ordType))
+				|| (!market && ordType != OrdType.LIMIT && ordType != OrdType.FOREX_LIMIT)
+				|| (!market && !newOrderSingle.isSetPrice())) {
+			sendReject(newOrderSingle, sessionID, OrdRejReason.UNSUPPORTED_ORDER_CHARACTERISTIC);
+			return;
+		}
+		// 数量は整数だけ。端数を切り捨てて0や別の数量で約定させない
+		double orderQty = newOrderSingle.getOrderQty().getValue();
+		if (orderQty < 1 || orderQty != Math.rint(orderQty) || orderQty >= Long.MAX_VALUE) {
+			sendReject(newOrderSingle, sessionID, OrdRejReason.INCORRECT_QUANTITY);
+			return;
+		}
+		String clOrdID = newOrderSingle.getClOrdID().getValue();
+		OrderBook.Key key = new OrderBook.Key(sessionID, clOrdID);
+		if (inFlight.containsKey(key) || matchingEngine.contains(sessionID, clOrdID, symbol)) {
+			sendReject(newOrderSingle, sessionID, OrdRejReason.DUPLICATE_ORDER);
+			return;
+		}
+		String partitionKey = getPartitionKey(symbol,
+				newOrderSingle.isSetAccount() ? newOrderSingle.getAccount().getValue() : null);
+		String rejectText = marketConditions.checkReject(sessionID, symbol, partitionKey);
+		if (rejectText != null) {
+			sendReject(newOrderSingle, sessionID, OrdRejReason.OTHER, rejectText);
+			return;
+		}
+		// クライアントが見たクォートと比べる
+		char side = newOrderSingle.getSide().getValue();
+		long price = market ? 0 : FixedPoint.toLong(BigDecimal.valueOf(newOrderSingle.getPrice().getValue()), scale);
+		Quote quote = priceStore.read(symbol, quotes.get());
+		rejectText = quoteChecker.check(quote, side == Side.BUY, market, price);
+		if (rejectText != null) {
+			sendReject(newOrderSingle, sessionID, OrdRejReason.OTHER, rejectText);
+			return;
+		}
+
+		Order order = new Order(sessionID, generatOrderId(), clOrdID,
+				newOrderSingle.isSetAccount() ? newOrderSingle.getAccount().getValue() : null, symbol, side, ordType,
+				newOrderSingle.isSetTimeInForce() ? newOrderSingle.getTimeInForce().getValue() : TimeInForce.DAY,
+				(long) orderQty, price, scale);
+		order.receivedNanoTime = receivedNanoTime.get()[0];
+		order.quoteNanoTime = quote != null ? quote.getNanoTime() : 0;
+		long delayNanos = executionLatency.nextNanos(sessionID, symbol, partitionKey);
+		Runnable task = () -> matchingEngine.submit(order);
+		// 成行でまだ配信していなければ比べる価格が無いので見ない。約定もしない
+		if (lastLook.isEnabled(symbol) && (!market || quote != null)) {
+			delayNanos += lastLook.getHoldNanos();
+			long referencePx = !market ? price : side == Side.BUY ? quote.getAskPx() : quote.getBidPx();
+			long atNanoTime = System.nanoTime() + delayNanos;
+			boolean quoted = quote != null;
+			task = () -> submitAfterLastLook(order, referencePx, atNanoTime, quoted);
+		}
+		if (inFlight.putIfAbsent(key, System.nanoTime() + delayNanos) != null) {
+			sendReject(newOrderSingle, sessionID, OrdRejReason.DUPLICATE_ORDER);
+			return;
+		}
+		if (executionLatency.isSendPendingNew(sessionID)) {
+			executionReportSender.onPendingNew(order);
+		}
+		Runnable submit = task;
+		executeAfter(delayNanos, partitionKey, () -> {
+			try {
+				submit.run();
+			} finally {
+				// 板に載ったらマッチングエンジンが重複を見る
+				inFlight.remove(key);
+			}
+		}, () -> {
+			inFlight.remove(key);
+			executionReportSender.onRejected(order, "Busy");
+		});
+	}
+
+	/**
+	 * @param quoted 受けた時に配信済みだったか。それなら保留が終わる時点のクォートも有るはずで、無ければ履歴から溢れている
+	 */
+	private void submitAfterLastLook(Order order, long referencePx, long atNanoTime, boolean quoted) {
+		Quote quote = priceStore.readAt(order.getSymbol(), atNanoTime, quotes.get());
+		String text = quote == null && quoted ? LastLook.NO_HISTORY_TEXT
+				: lastLook.check(quote, order.isBuy(), referencePx);
+		if (text != null) {
+			log.info("ラストルックでリジェクトしたよ！" + order.getClOrdID());
+			lastLookRejects.increment();
+			executionReportSender.onRejected(order, text);
+			return;
+		}
+		matchingEngine.submit(order);
+	}
+
+	public void onMessage(OrderCancelRequest orderCancelRequest, SessionID sessionID)
+			throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
+
+		log.info("キャンセル来たよ！" + orderCancelRequest);
+
+		String symbol = orderCancelRequest.getSymbol().getValue();
+		String account = orderCancelRequest.isSetAccount() ? orderCancelRequest.getAccount().getValue() : null;
+		String partitionKey = getPartitionKey(symbol, account);
+		long delayNanos = executionLatency.nextNanos(sessionID, symbol, partitionKey);
+		Long due = inFlight.get(new OrderBook.Key(sessionID, orderCancelRequest.getOrigClOrdID().getValue()));
+		if (due != null) {
+			// 待っている注文より先に取り消さない。タイマーは同じ時刻なら登録順で、注文処理スレッドも投入順なので注文の後になる
+			delayNanos = Math.max(1, Math.max(delayNanos, due - System.nanoTime()));
+		}
+		executeAfter(delayNanos, partitionKey,
+				() -> cancel(orderCancelRequest, sessionID),
+				() -> sendCancelReject(orderCancelRequest, sessionID, CxlRejReason.OTHER, "Busy"));
+	}
+
+	private void cancel(OrderCancelRequest orderCancelRequest, SessionID sessionID) {
+		try {
+			Order order = matchingEngine.cancel(sessionID, orderCancelRequest.getOrigClOrdID().getValue(),
+					orderCancelRequest.getSymbol().getValue(), orderCancelRequest.getClOrdID().getValue());
+			if (order == null) {
+				sendCancelReject(orderCancelRequest, sessionID, CxlRejReason.UNKNOWN_ORDER, null);
+			}
+		} catch (FieldNotFound e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	private void sendCancelReject(OrderCancelRequest orderCancelRequest, SessionID sessionID, int cxlRejReason,
+			String text) {
+		try {
+			OrderCancelReject orderCancelReject = new OrderCancelReject(new OrderID("NONE"),
+					orderCancelRequest.getClOrdID(), orderCancelRequest.getOrigClOrdID(),
+					new OrdStatus(OrdStatus.REJECTED), new CxlRejResponseTo(CxlRejResponseTo.ORDER_CANCEL_REQUEST));
+			orderCancelReject.set(new CxlRejReason(cxlRejReason));
+			if (text != null) {
+				orderCancelReject.set(new Text(text));
+			}
+			sendMessage(sessionID, orderCancelReject);
+		} catch (FieldNotFound e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	private void sendReject(NewOrderSingle newOrderSingle, SessionID sessionID, int ordRejReason)
+			throws FieldNotFound {
+		sendReject(newOrderSingle, sessionID, ordRejReason, null);
+	}
+
+	private void sendReject(NewOrderSingle newOrderSingle, SessionID sessionID, int ordRejReason, String text)
+			throws FieldNotFound {
+		ExecutionReport executionReport = new ExecutionReport(new OrderID(generatOrderId()),
+				new ExecID(generatExecId()), new ExecType(ExecType.REJECTED), new OrdStatus(OrdStatus.REJECTED),
+				newOrderSingle.getSide(), new LeavesQty(0), new CumQty(0), new AvgPx(0));
+		executionReport.set(new OrdRejReason(ordRejReason));
+		if (text != null) {
+			executionReport.set(new Text(text));
+		}
+		executionReport.set(newOrderSingle.getClOrdID());
+		if (newOrderSingle.isSetAccount()) {
+			executionReport.set(newOrderSingle.getAccount());
+		}
+		executionReport.set(newOrderSingle.getSymbol());
+		executionReport.set(newOrderSingle.getOrderQty());
+		executionReport.set(newOrderSingle.getOrdType());
+		if (newOrderSingle.isSetPrice()) {
+			executionReport.set(newOrderSingle.getPrice());
+		}
+		if (newOrderSingle.isSetTimeInForce()) {
+			executionReport.set(newOrderSingle.getTimeInForce());
+		}
+		executionReport.set(new TransactTime(new Date()));
+
+		long received = receivedNanoTime.get()[0];
+		if (received != 0) {
+			metrics.getOrderToExecutionReport().record(System.nanoTime() - received);
+		}
+		sendMessage(sessionID, executionReport);
+	}
+
+	/**
+	 * マッチングエンジンの結果をExecutionReportにして送る
+	 */
+	private class ExecutionReportSender implements MatchingEngine.ExecutionHandler {
+
+		// 以下の2つはマッチングエンジンに渡す前なので、まだ約定していない
+		void onPendingNew(Order order) {
+			send(order, create(order, ExecType.PENDING_NEW, OrdStatus.PENDING_NEW, order.getOrderQty(), 0, 0));
+		}
+
+		void onRejected(Order order, String text) {
+			ExecutionReport executionReport = create(order, ExecType.REJECTED, OrdStatus.REJECTED, 0, 0, 0);
+			executionReport.set(new OrdRejReason(OrdRejReason.OTHER));
+			executionReport.set(new Text(text));
+			send(order, executionReport);
+		}
+
+		@Override
+		public void onNew(Execution execution) {
+			send(execution.getOrder(), create(execution, ExecType.NEW, OrdStatus.NEW));
+		}
+
+		@Override
+		public void onTrade(Execution execution) {
+			Order order = execution.getOrder();
+			if (order.quoteNanoTime != 0) {
+				metrics.getQuoteToFill().record(System.nanoTime() - order.quoteNanoTime);
+				order.quoteNanoTime = 0;
+			}
+			ExecutionReport executionReport = create(execution, ExecType.TRADE,
+					execution.getLeavesQty() == 0 ? OrdStatus.FILLED : OrdStatus.PARTIALLY_FILLED);
+			executionReport.set(new LastQty(execution.getLastQty()));
+			executionReport.set(new LastPx(FixedPoint.toDouble(execution.getLastPx(), order.getScale())));
+			send(order, executionReport);
+		}
+
+		@Override
+		public void onCanceled(Execution execution) {
+			Order order = execution.getOrder();
+			ExecutionReport executionReport = create(execution, ExecType.CANCELED, OrdStatus.CANCELED);
+			if (execution.getClOrdID() != null) {
+				executionReport.set(new ClOrdID(execution.getClOrdID()));
+				executionReport.set(new OrigClOrdID(order.getClOrdID()));
+			}
+			send(order, executionReport);
+		}
+
+		private void send(Order order, ExecutionReport executionReport) {
+			if (order.receivedNanoTime != 0) {
+				metrics.getOrderToExecutionReport().record(System.nanoTime() - order.receivedNanoTime);
+				order.receivedNanoTime = 0;
+			}
+			sendMessage(order.getSessionID(), executionReport);
+		}
+
+		private ExecutionReport create(Execution execution, char execType, char ordStatus) {
+			return create(execution.getOrder(), execType, ordStatus, execution.getLeavesQty(), execution.getCumQty(),
+					execution.getAvgPx());
+		}
+
+		private ExecutionReport create(Order order, char execType, char ordStatus, long leavesQty, long cumQty,
+				double avgPx) {
+			boolean done = ordStatus == OrdStatus.CANCELED || ordStatus == OrdStatus.REJECTED;
+			ExecutionReport executionReport = new ExecutionReport(new OrderID(order.getOrderID()),
+					new ExecID(generatExecId()), new ExecType(execType), new OrdStatus(ordStatus),
+					new Side(order.getSide()), new LeavesQty(done ? 0 : leavesQty), new CumQty(cumQty),
+					new AvgPx(avgPx));
+			executionReport.set(new ClOrdID(order.getClOrdID()));
+			if (order.getAccount() != null) {
+				executionReport.set(new Account(order.getAccount()));
+			}
+			executionReport.set(new Symbol(order.getSymbol()));
+			executionReport.set(new OrderQty(order.getOrderQty()));
+			executionReport.set(new OrdType(order.getOrdType()));
+			if (!order.isMarket()) {
+				executionReport.set(new Price(FixedPoint.toDouble(order.getPrice(), order.getScale())));
+			}
+			executionReport.set(new TimeInForce(order.getTimeInForce()));
+			executionReport.set(new TransactTime(new Date()));
+			return executionReport;
+		}
+	}
+
+	private void sendMessage(SessionID sessionID, Message message) {
+		try {
+			Session session = Session.lookupSession(sessionID);
+			if (session == null) {
+				throw new SessionNotFound(sessionID.toString());
+			}
+
+			if (!outboundValidator.validate(session, message)) {
+				return;
+			}
+			session.send(message);
+		} catch (SessionNotFound e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	private String generatOrderId() {
+		return idGenerator.nextString();
+	}
+
+	private String generatExecId() {
+		return idGenerator.nextString();
+	}
+}
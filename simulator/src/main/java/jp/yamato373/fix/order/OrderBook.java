@@ -0,0 +1,132 @@
+package jp.yamato373.fix.order;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jp.yamato373.fix.price.Quote;
+import lombok.Value;
+import quickfix.SessionID;
+
+/**
+ * 通貨ペア毎の待機注文の板。価格毎のレベルをTreeMapで持ち、レベルの中は時間順の連結リスト。
+ * 追加は価格レベルの検索だけ、取消はClOrdIDから直接外せるので、注文数が多くても軽い。
+ * スレッドセーフではないので、{@link MatchingEngine}が板毎にロックして使う。
+ */
+class OrderBook {
+
+	@Value
+	static class Key {
+		SessionID sessionID;
+		String clOrdID;
+	}
+
+	static class PriceLevel {
+
+		final long price;
+		Order head;
+		Order tail;
+
+		PriceLevel(long price) {
+			this.price = price;
+		}
+	}
+
+	final String symbol;
+	final TreeMap<Long, PriceLevel> bids = new TreeMap<>(Collections.reverseOrder());
+	final TreeMap<Long, PriceLevel> asks = new TreeMap<>();
+	private final Map<Key, Order> orders = new HashMap<>();
+
+	// 読み出し用。ロック中だけ使う
+	final Quote quote = new Quote();
+
+	// 通知待ちの約定結果。ロック中に積み、ロックの外で通知する
+	final ArrayDeque<Execution> executions = new ArrayDeque<>();
+	// 通知中のスレッドがいるか。通知は1スレッドずつ積んだ順に行う
+	final AtomicBoolean dispatching = new AtomicBoolean();
+	// 配信毎の約定を注文処理スレッドに渡して、まだ動いていないか
+	final AtomicBoolean tickPending = new AtomicBoolean();
+
+	// 今のクォートで既に約定した数量。クォートが変わったらリセット
+	private long quoteSeqNum = -1;
+	private long bidTaken;
+	private long askTaken;
+
+	OrderBook(String symbol) {
+		this.symbol = symbol;
+	}
+
+	int size() {
+		return orders.size();
+	}
+
+	boolean contains(SessionID sessionID, String clOrdID) {
+		return orders.containsKey(new Key(sessionID, clOrdID));
+	}
+
+	Order get(SessionID sessionID, String clOrdID) {
+		return orders.get(new Key(sessionID, clOrdID));
+	}
+
+	void add(Order order) {
+		TreeMap<Long, PriceLevel> side = order.isBuy() ? bids : asks;
+		PriceLevel level = side.computeIfAbsent(order.getPrice(), PriceLevel::new);
+		order.level = level;
+		order.prev = level.tail;
+		order.next = null;
+		if (level.tail == null) {
+			level.head = order;
+		} else {
+			level.tail.next = order;
+		}
+		level.tail = order;
+		orders.put(new Key(order.getSessionID(), order.getClOrdID()), order);
+	}
+
+	void remove(Order order) {
+		PriceLevel level = order.level;
+		if (level == null) {
+			return;
+		}
+		if (order.prev == null) {
+			level.head = order.next;
+		} else {
+			order.prev.next = order.next;
+		}
+		if (order.next == null) {
+			level.tail = order.prev;
+		} else {
+			order.next.prev = order.prev;
+		}
+		if (level.head == null) {
+			(order.isBuy() ? bids : asks).remove(level.price);
+		}
+		order.level = null;
+		order.prev = null;
+		order.next = null;
+		orders.remove(new Key(order.getSessionID(), order.getClOrdID()));
+	}
+
+	/**
+	 * 今のクォートでまだ約定できる数量
+	 */
+	long available(boolean buy) {
+		if (quote.getSeqNum() != quoteSeqNum) {
+			quoteSeqNum = quote.getSeqNum();
+			bidTaken = 0;
+			askTaken = 0;
+		}
+		return buy ? Math.max(0, quote.getAskSize() - askTaken) : Math.max(0, quote.getBidSize() - bidTaken);
+	}
+
+	void take(boolean buy, long qty) {
+		if (buy) {
+			askTaken += qty;
+		} else {
+			bidTaken += qty;
+		}
+	}
+}
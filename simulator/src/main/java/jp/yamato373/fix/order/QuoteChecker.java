@@ -0,0 +1,59 @@
+package jp.yamato373.fix.order;
+
+import jp.yamato373.fix.price.Quote;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.SessionSettings;
+
+/**
+ * 注文を配信済みのクォート({@link jp.yamato373.fix.price.PriceStore})と比べてリジェクトするか決める。
+ * 0かNなら見ない。
+ *
+ * <pre>
+ * # 配信からこのミリ秒より古いクォートしか無ければリジェクト(まだ配信していなくても)
+ * MaxQuoteAgeMillis=10000
+ * # 指値がクォートからこのポイント(価格の最小単位)より離れていればリジェクト
+ * OffMarketPoints=500
+ * # 気配値(サイズ0)で配信している間はリジェクト
+ * RejectIndicative=Y
+ * </pre>
+ */
+class QuoteChecker {
+
+	static final String MAX_QUOTE_AGE_MILLIS_KEY = "MaxQuoteAgeMillis";
+	static final String OFF_MARKET_POINTS_KEY = "OffMarketPoints";
+	static final String REJECT_INDICATIVE_KEY = "RejectIndicative";
+
+	private final long maxQuoteAgeMillis;
+	private final long offMarketPoints;
+	private final boolean rejectIndicative;
+
+	QuoteChecker(SessionSettings settings) throws ConfigError, FieldConvertError {
+		maxQuoteAgeMillis = settings.isSetting(MAX_QUOTE_AGE_MILLIS_KEY)
+				? settings.getLong(MAX_QUOTE_AGE_MILLIS_KEY) : 0;
+		offMarketPoints = settings.isSetting(OFF_MARKET_POINTS_KEY) ? settings.getLong(OFF_MARKET_POINTS_KEY) : 0;
+		rejectIndicative = settings.isSetting(REJECT_INDICATIVE_KEY) && settings.getBool(REJECT_INDICATIVE_KEY);
+	}
+
+	/**
+	 * @param quote 配信済みのクォート。まだ配信していなければnull
+	 * @param price 指値。成行なら見ない
+	 * @return リジェクトするならそのText。しないならnull
+	 */
+	String check(Quote quote, boolean buy, boolean market, long price) {
+		if (quote == null) {
+			return maxQuoteAgeMillis > 0 || offMarketPoints > 0 || rejectIndicative ? "No price" : null;
+		}
+		if (maxQuoteAgeMillis > 0 && System.currentTimeMillis() - quote.getTime() > maxQuoteAgeMillis) {
+			return "Stale price";
+		}
+		if (rejectIndicative && (buy ? quote.getAskSize() : quote.getBidSize()) == 0) {
+			return "Indicative price";
+		}
+		if (offMarketPoints > 0 && !market
+				&& Math.abs(price - (buy ? quote.getAskPx() : quote.getBidPx())) > offMarketPoints) {
+			return "Off market";
+		}
+		return null;
+	}
+}
@@ -0,0 +1,224 @@
+package jp.yamato373.fix.price;
+
+import jp.yamato373.fix.util.SplitMix64;
+import lombok.Getter;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDUpdateAction;
+
+/**
+ * 通貨ペア毎のN段の板。最後に配信した板を配列で持ち、次の板との差分を価格をキーにしたNEW/CHANGE/DELETEで出す。
+ * 最良の段はレートの価格とサイズで、2段目以降はdepthStep刻み。2段目以降のサイズは価格毎に引き継ぎ、時々変える。
+ * 送信スレッドのみが使う。
+ */
+class DepthBook {
+
+	@Getter
+	private final String symbol;
+	@Getter
+	private final int scale;
+	@Getter
+	private final Ladder bids;
+	@Getter
+	private final Ladder offers;
+
+	// 最良の段を気配値(サイズ0)で出しているか
+	@Getter
+	private boolean indicative;
+	@Getter
+	private boolean built;
+	// 最後にupdateしたクォートのティック番号
+	@Getter
+	private long tick;
+	// 計測用。最後にupdateしたクォートのSystem.nanoTime()
+	@Getter
+	private long quoteNanoTime;
+	// 今の板を1度でも購読に送ったか。板が変わるまでは送り直してもPriceStoreには書かない
+	private boolean streamed;
+
+	// 直前のupdateの差分。1段ずつNEWとDELETEが出るのが最大
+	private final char[] deltaActions;
+	private final char[] deltaTypes;
+	private final long[] deltaPxs;
+	private final long[] deltaSizes;
+	// 最良の段か。気配値ならTextを付ける
+	private final boolean[] deltaTops;
+	@Getter
+	private int deltaCount;
+
+	DepthBook(String symbol, int scale, int depth) {
+		this.symbol = symbol;
+		this.scale = scale;
+		bids = new Ladder(MDEntryType.BID, depth);
+		offers = new Ladder(MDEntryType.OFFER, depth);
+		int capacity = 4 * depth;
+		deltaActions = new char[capacity];
+		deltaTypes = new char[capacity];
+		deltaPxs = new long[capacity];
+		deltaSizes = new long[capacity];
+		deltaTops = new boolean[capacity];
+	}
+
+	/**
+	 * quoteから次の板を作り、差分を残して配信済みにする
+	 *
+	 * @param step 段の間隔(ポイント)
+	 */
+	void update(Quote quote, long step, boolean indicative, SplitMix64 random) {
+		deltaCount = 0;
+		boolean indicativeChanged = indicative != this.indicative;
+		this.indicative = indicative;
+		bids.update(quote.getBidPx(), indicative ? 0 : quote.getBidSize(), step, indicativeChanged, random);
+		offers.update(quote.getAskPx(), indicative ? 0 : quote.getAskSize(), step, indicativeChanged, random);
+		tick = quote.getTick();
+		quoteNanoTime = quote.getNanoTime();
+		if (deltaCount > 0) {
+			streamed = false;
+		}
+		built = true;
+	}
+
+	/**
+	 * 今の板を購読に送ったら呼ぶ
+	 *
+	 * @return 今の板を送ったのが初めてならtrue
+	 */
+	boolean markStreamed() {
+		if (streamed || !built) {
+			return false;
+		}
+		streamed = true;
+		return true;
+	}
+
+	/**
+	 * 板を変えずに差分を空にする(配信を止めている間)
+	 */
+	void hold() {
+		deltaCount = 0;
+	}
+
+	char getDeltaAction(int i) {
+		return deltaActions[i];
+	}
+
+	char getDeltaType(int i) {
+		return deltaTypes[i];
+	}
+
+	long getDeltaPx(int i) {
+		return deltaPxs[i];
+	}
+
+	long getDeltaSize(int i) {
+		return deltaSizes[i];
+	}
+
+	boolean isDeltaTop(int i) {
+		return deltaTops[i];
+	}
+
+	private void addDelta(char action, char type, long px, long size, boolean top) {
+		deltaActions[deltaCount] = action;
+		deltaTypes[deltaCount] = type;
+		deltaPxs[deltaCount] = px;
+		deltaSizes[deltaCount] = size;
+		deltaTops[deltaCount] = top;
+		deltaCount++;
+	}
+
+	/**
+	 * 片側の段。[0]が最良で、bidは価格の降順、offerは昇順
+	 */
+	class Ladder {
+
+		@Getter
+		private final char type;
+		private long[] prices;
+		private long[] sizes;
+		@Getter
+		private int count;
+
+		// 次の板を作る作業用。差分を出したら入れ替える
+		private long[] nextPrices;
+		private long[] nextSizes;
+
+		Ladder(char type, int depth) {
+			this.type = type;
+			prices = new long[depth];
+			sizes = new long[depth];
+			nextPrices = new long[depth];
+			nextSizes = new long[depth];
+		}
+
+		long getPrice(int level) {
+			return prices[level];
+		}
+
+		long getSize(int level) {
+			return sizes[level];
+		}
+
+		private boolean isBid() {
+			return type == MDEntryType.BID;
+		}
+
+		// 板の並びでaがbより前か
+		private boolean before(long a, long b) {
+			return isBid() ? a > b : a < b;
+		}
+
+		void update(long topPx, long topSize, long step, boolean indicativeChanged, SplitMix64 random) {
+			int nextCount = 0;
+			int previous = 0;
+			for (int level = 0; level < nextPrices.length; level++) {
+				long px = isBid() ? topPx - level * step : topPx + level * step;
+				if (px <= 0) {
+					break;
+				}
+				long size = topSize;
+				if (level > 0) {
+					while (previous < count && before(prices[previous], px)) {
+						previous++;
+					}
+					// 前回2段目以降に有った価格ならサイズを引き継ぐ。1/10の確率で変える
+					boolean keep = previous > 0 && previous < count && prices[previous] == px
+							&& random.nextInt(10) != 0;
+					size = keep ? sizes[previous] : (random.nextInt(10) + 1) * 100000L * (level + 1);
+				}
+				nextPrices[nextCount] = px;
+				nextSizes[nextCount] = size;
+				nextCount++;
+			}
+
+			diff(nextCount, indicativeChanged);
+
+			long[] swap = prices;
+			prices = nextPrices;
+			nextPrices = swap;
+			swap = sizes;
+			sizes = nextSizes;
+			nextSizes = swap;
+			count = nextCount;
+		}
+
+		private void diff(int nextCount, boolean indicativeChanged) {
+			int a = 0;
+			int b = 0;
+			while (a < count || b < nextCount) {
+				if (b == nextCount || (a < count && before(prices[a], nextPrices[b]))) {
+					addDelta(MDUpdateAction.DELETE, type, prices[a], sizes[a], false);
+					a++;
+				} else if (a == count || before(nextPrices[b], prices[a])) {
+					addDelta(MDUpdateAction.NEW, type, nextPrices[b], nextSizes[b], b == 0);
+					b++;
+				} else {
+					if (sizes[a] != nextSizes[b] || (b == 0 && indicativeChanged)) {
+						addDelta(MDUpdateAction.CHANGE, type, nextPrices[b], nextSizes[b], b == 0);
+					}
+					a++;
+					b++;
+				}
+			}
+		}
+	}
+}
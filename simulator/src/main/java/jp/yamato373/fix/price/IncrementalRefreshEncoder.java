@@ -0,0 +1,349 @@
+package jp.yamato373.fix.price;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jp.yamato373.fix.scenario.MarketConditions;
+import jp.yamato373.fix.scenario.SymbolCondition;
+import jp.yamato373.fix.util.FixedPoint;
+import jp.yamato373.fix.util.Settings;
+import jp.yamato373.fix.util.Settings.SymbolSettings;
+import jp.yamato373.fix.util.SettingsSnapshot;
+import jp.yamato373.fix.util.SettingsStore;
+import jp.yamato373.fix.util.SplitMix64;
+import quickfix.StringField;
+import quickfix.field.MDEntryDate;
+import quickfix.field.MDEntryPx;
+import quickfix.field.MDEntrySize;
+import quickfix.field.MDEntryTime;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MDUpdateAction;
+import quickfix.field.NoMDEntries;
+import quickfix.field.Symbol;
+import quickfix.field.Text;
+import quickfix.field.converter.UtcDateOnlyConverter;
+import quickfix.field.converter.UtcTimeOnlyConverter;
+import quickfix.fix44.MarketDataIncrementalRefresh;
+
+/**
+ * IncrementalRefreshのNoMDEntriesを送信周期毎・通貨ペア毎に1度だけ文字列に書き、全購読で共有する。
+ * 購読毎に違うのはMDReqIDとヘッダだけなので、購読側はこのフィールドを差し替えて送信する。
+ * 中身は{@link DepthBook}の前回の配信からの差分だけで、変わっていない段は送らない。
+ * 文字列はQuickFIX/Jのメッセージを介さずに直接書く。フィールドの並びと書式はメッセージにした時と同じで、
+ * 検証するセッションがある時だけ同じ中身のメッセージを組み立てる。時刻は送信周期毎に1つ。
+ * 送信スレッドのみが使う。
+ */
+@Component
+public class IncrementalRefreshEncoder {
+
+	private static final char SOH = '\001';
+
+	@Autowired
+	RateGeneratWorker rateGeneratWorker;
+
+	@Autowired
+	Settings settings;
+
+	@Autowired
+	SettingsStore settingsStore;
+
+	@Autowired
+	MarketConditions marketConditions;
+
+	@Autowired
+	PriceStore priceStore;
+
+	private final Quote quote = new Quote();
+
+	private final Map<String, DepthBook> books = new HashMap<>();
+	// 通貨ペア毎の乱数のキーと、ティック毎にシードを入れ直して使い回す乱数
+	private final Map<String, String> randomKeys = new HashMap<>();
+	private final Map<String, SplitMix64> randoms = new HashMap<>();
+
+	// 段の間隔(ポイント)。設定の版が変わったら変換し直す
+	private SettingsSnapshot applied;
+	private final Map<String, Long> depthSteps = new HashMap<>();
+
+	// 今回の送信周期の時刻。MDEntryDate/MDEntryTimeは最初に使う時に文字列にする
+	private long cycleTime;
+	private Date cycleDate;
+	private String cycleDateText;
+	private String cycleTimeText;
+	private final StringBuilder entriesText = new StringBuilder();
+	private final StringBuilder noMDEntriesText = new StringBuilder();
+
+	// 今回の送信周期で組み立て済みのもの
+	private final Map<String, Entries> entriesBySymbol = new HashMap<>();
+	private final Map<List<String>, StringField> noMDEntriesBySymbols = new HashMap<>();
+	private final Map<List<String>, MarketDataIncrementalRefresh> messagesBySymbols = new HashMap<>();
+
+	/**
+	 * 送信周期の始めに呼ぶ。全通貨ペアの板を進める
+	 */
+	public void nextCycle() {
+		clear();
+		for (String symbol : rateGeneratWorker.getSymbols()) {
+			update(getOrCreateBook(symbol));
+		}
+	}
+
+	/**
+	 * ティック毎の送信の始めに呼ぶ。symbolの板だけ進める
+	 */
+	public void nextCycle(String symbol) {
+		clear();
+		update(getOrCreateBook(symbol));
+	}
+
+	/**
+	 * SnapshotFullRefresh用。前回配信した板で、まだ1度も配信していなければ今作る
+	 */
+	DepthBook getBook(String symbol) {
+		DepthBook book = getOrCreateBook(symbol);
+		if (!book.isBuilt()) {
+			update(book);
+		}
+		return book;
+	}
+
+	/**
+	 * @return symbolsの差分を含むNoMDEntries。文字列化済みなので送信毎の組み立てはない。差分が無ければnull
+	 */
+	public StringField getNoMDEntries(List<String> symbols) {
+		StringField noMDEntries = noMDEntriesBySymbols.get(symbols);
+		if (noMDEntries == null) {
+			int count = 0;
+			StringBuilder sb = noMDEntriesText;
+			sb.setLength(0);
+			for (String symbol : symbols) {
+				Entries entries = getEntries(symbol);
+				if (entries.count > 0) {
+					count += entries.count;
+					sb.append(entries.text);
+				}
+			}
+			if (count == 0) {
+				return null;
+			}
+			noMDEntries = new StringField(NoMDEntries.FIELD, sb.insert(0, count).toString());
+			noMDEntriesBySymbols.put(symbols, noMDEntries);
+		}
+		return noMDEntries;
+	}
+
+	/**
+	 * 検証用。{@link #getNoMDEntries(List)}と同じ中身のIncrementalRefresh。検証するセッションがある時だけ組み立てる
+	 */
+	public MarketDataIncrementalRefresh getIncrementalRefresh(List<String> symbols) {
+		MarketDataIncrementalRefresh marketDataIncrementalRefresh = messagesBySymbols.get(symbols);
+		if (marketDataIncrementalRefresh == null) {
+			marketDataIncrementalRefresh = new MarketDataIncrementalRefresh();
+			// 検証用。送信時は購読毎のMDReqIDになる
+			marketDataIncrementalRefresh.set(new MDReqID(String.join(",", symbols)));
+			for (String symbol : symbols) {
+				if (getEntries(symbol).count > 0) {
+					addGroups(marketDataIncrementalRefresh, books.get(symbol));
+				}
+			}
+			messagesBySymbols.put(symbols, marketDataIncrementalRefresh);
+		}
+		return marketDataIncrementalRefresh;
+	}
+
+	/**
+	 * symbolsの今の板を購読に送ったら呼ぶ。板が変わってから初めて送った通貨ペアだけ、最良気配を{@link PriceStore}に書く。
+	 * 購読が無い、間引いている、差分が無いなどで送っていない板は書かないので、約定は誰かに配信したクォートに対してだけ行う
+	 */
+	public void streamed(List<String> symbols) {
+		for (int i = 0; i < symbols.size(); i++) {
+			DepthBook book = books.get(symbols.get(i));
+			if (book == null || !book.markStreamed()) {
+				continue;
+			}
+			DepthBook.Ladder bids = book.getBids();
+			DepthBook.Ladder offers = book.getOffers();
+			if (bids.getCount() == 0 || offers.getCount() == 0) {
+				continue;
+			}
+			quote.setSymbol(book.getSymbol());
+			quote.setScale(book.getScale());
+			quote.setBidPx(bids.getPrice(0));
+			quote.setAskPx(offers.getPrice(0));
+			quote.setBidSize(bids.getSize(0));
+			quote.setAskSize(offers.getSize(0));
+			quote.setTick(book.getTick());
+			priceStore.publish(quote, book.isIndicative());
+		}
+	}
+
+	/**
+	 * 計測用
+	 *
+	 * @return 今回の送信周期でsymbolの差分の元にしたクォートのSystem.nanoTime()。差分が無ければ0
+	 */
+	public long getQuoteNanoTime(String symbol) {
+		Entries entries = entriesBySymbol.get(symbol);
+		return entries != null && entries.count > 0 ? books.get(symbol).getQuoteNanoTime() : 0;
+	}
+
+	private Entries getEntries(String symbol) {
+		Entries entries = entriesBySymbol.get(symbol);
+		if (entries == null) {
+			entries = encodeEntries(symbol);
+			entriesBySymbol.put(symbol, entries);
+		}
+		return entries;
+	}
+
+	private void clear() {
+		cycleTime = System.currentTimeMillis();
+		cycleDate = null;
+		cycleDateText = null;
+		cycleTimeText = null;
+		entriesBySymbol.clear();
+		noMDEntriesBySymbols.clear();
+		messagesBySymbols.clear();
+	}
+
+	private DepthBook getOrCreateBook(String symbol) {
+		DepthBook book = books.get(symbol);
+		if (book == null) {
+			SymbolSettings symbolSettings = getSymbolSettings(symbol);
+			int depth = symbolSettings != null && symbolSettings.getDepth() != null ? symbolSettings.getDepth()
+					: settings.getDepth();
+			book = new DepthBook(symbol, rateGeneratWorker.getRate(symbol).getScale(), Math.max(1, depth));
+			books.put(symbol, book);
+			randomKeys.put(symbol, "IncrementalRefreshEncoder." + symbol);
+			randoms.put(symbol, new SplitMix64(0));
+		}
+		return book;
+	}
+
+	private SymbolSettings getSymbolSettings(String symbol) {
+		for (SymbolSettings symbolSettings : settings.getSymbols()) {
+			if (symbol.equals(symbolSettings.getSymbol())) {
+				return symbolSettings;
+			}
+		}
+		return null;
+	}
+
+	private void update(DepthBook book) {
+		SymbolCondition condition = marketConditions.get(book.getSymbol());
+		if (condition.isFrozen() && book.isBuilt()) {
+			book.hold();
+			return;
+		}
+		rateGeneratWorker.getRate(book.getSymbol()).read(quote);
+		// 送信周期ではなくティックと通貨ペアから乱数を作るので、送信間隔やノードによらずティック毎に同じ板になる
+		SplitMix64 random = randoms.get(book.getSymbol());
+		random.setSeed(rateGeneratWorker.getRandomSource().seed(randomKeys.get(book.getSymbol()), quote.getTick()));
+		// 1/10の確率で気配値で送信。シナリオで気配値だけの間は常に
+		boolean indicative = random.nextInt(10) == 0 || condition.isIndicative();
+		book.update(quote, getDepthStep(book), indicative, random);
+	}
+
+	private long getDepthStep(DepthBook book) {
+		SettingsSnapshot snapshot = settingsStore.getSnapshot();
+		if (snapshot != applied) {
+			applied = snapshot;
+			depthSteps.clear();
+		}
+		return depthSteps.computeIfAbsent(book.getSymbol(), symbol -> {
+			BigDecimal depthStep = snapshot.getSymbol(symbol).getDepthStep();
+			return depthStep != null ? Math.max(1, FixedPoint.toLong(depthStep, book.getScale())) : 1L;
+		});
+	}
+
+	/**
+	 * @return 通貨ペアの差分を文字列にしたもの。NoMDEntriesの件数は含まず、各フィールドの前にSOHを付ける
+	 */
+	private Entries encodeEntries(String symbol) {
+		DepthBook book = books.get(symbol);
+		if (book == null || book.getDeltaCount() == 0) {
+			return Entries.EMPTY;
+		}
+		StringBuilder sb = entriesText;
+		sb.setLength(0);
+		for (int i = 0; i < book.getDeltaCount(); i++) {
+			// MarketDataIncrementalRefresh.NoMDEntriesのフィールドの並び
+			sb.append(SOH).append(MDUpdateAction.FIELD).append('=').append(book.getDeltaAction(i));
+			sb.append(SOH).append(MDEntryType.FIELD).append('=').append(book.getDeltaType(i));
+			sb.append(SOH).append(Symbol.FIELD).append('=').append(book.getSymbol());
+			sb.append(SOH).append(MDEntryPx.FIELD).append('=');
+			FixedPoint.append(sb, book.getDeltaPx(i), book.getScale());
+			if (book.getDeltaAction(i) != MDUpdateAction.DELETE) {
+				sb.append(SOH).append(MDEntrySize.FIELD).append('=').append(book.getDeltaSize(i));
+				sb.append(SOH).append(MDEntryDate.FIELD).append('=').append(getCycleDateText());
+				sb.append(SOH).append(MDEntryTime.FIELD).append('=').append(getCycleTimeText());
+				if (book.isDeltaTop(i) && book.isIndicative()) {
+					sb.append(SOH).append(Text.FIELD).append('=')
+							.append(settingsStore.getSnapshot().getIndicativeText());
+				}
+			}
+		}
+		return new Entries(book.getDeltaCount(), sb.toString());
+	}
+
+	private void addGroups(MarketDataIncrementalRefresh marketDataIncrementalRefresh, DepthBook book) {
+		MarketDataIncrementalRefresh.NoMDEntries noMDEntries = new MarketDataIncrementalRefresh.NoMDEntries();
+		Date now = getCycleDate();
+		for (int i = 0; i < book.getDeltaCount(); i++) {
+			noMDEntries.clear();
+			noMDEntries.set(new MDUpdateAction(book.getDeltaAction(i)));
+			noMDEntries.set(new MDEntryType(book.getDeltaType(i)));
+			noMDEntries.set(new Symbol(book.getSymbol()));
+			noMDEntries.set(new MDEntryPx(FixedPoint.toDouble(book.getDeltaPx(i), book.getScale())));
+			if (book.getDeltaAction(i) != MDUpdateAction.DELETE) {
+				noMDEntries.set(new MDEntrySize(book.getDeltaSize(i)));
+				noMDEntries.set(new MDEntryDate(now));
+				noMDEntries.set(new MDEntryTime(now));
+				if (book.isDeltaTop(i) && book.isIndicative()) {
+					noMDEntries.set(new Text(settingsStore.getSnapshot().getIndicativeText()));
+				}
+			}
+			marketDataIncrementalRefresh.addGroup(noMDEntries);
+		}
+	}
+
+	private Date getCycleDate() {
+		if (cycleDate == null) {
+			cycleDate = new Date(cycleTime);
+		}
+		return cycleDate;
+	}
+
+	private String getCycleDateText() {
+		if (cycleDateText == null) {
+			cycleDateText = UtcDateOnlyConverter.convert(getCycleDate());
+		}
+		return cycleDateText;
+	}
+
+	private String getCycleTimeText() {
+		if (cycleTimeText == null) {
+			cycleTimeText = UtcTimeOnlyConverter.convert(getCycleDate(), true);
+		}
+		return cycleTimeText;
+	}
+
+	private static class Entries {
+
+		static final Entries EMPTY = new Entries(0, "");
+
+		final int count;
+		final String text;
+
+		Entries(int count, String text) {
+			this.count = count;
+			this.text = text;
+		}
+	}
+}
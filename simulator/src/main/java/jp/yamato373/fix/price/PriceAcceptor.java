@@ -2,6 +2,8 @@ package jp.yamato373.fix.price;
 
 import static quickfix.Acceptor.*;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -15,16 +17,17 @@ import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import jp.yamato373.fix.cluster.Cluster;
+import jp.yamato373.fix.store.StoreSettings;
+import jp.yamato373.fix.util.Settings.NodeSettings;
 import lombok.extern.slf4j.Slf4j;
 import quickfix.Application;
 import quickfix.ConfigError;
 import quickfix.DefaultMessageFactory;
 import quickfix.FieldConvertError;
-import quickfix.FileStoreFactory;
 import quickfix.LogFactory;
 import quickfix.MessageFactory;
 import quickfix.MessageStoreFactory;
-import quickfix.ScreenLogFactory;
 import quickfix.SessionID;
 import quickfix.SessionSettings;
 import quickfix.SocketAcceptor;
@@ -42,9 +45,12 @@ public class PriceAcceptor {
 
     private PriceApplication priceApplication;
 
+    private LogFactory logFactory;
+
     @Autowired
-    public PriceAcceptor(PriceApplication priceApplication) throws ConfigError, FieldConvertError{
+    public PriceAcceptor(PriceApplication priceApplication, Cluster cluster) throws ConfigError, FieldConvertError{
     	sessionSettings = new SessionSettings("price.cfg");
+    	cluster.applyPort(sessionSettings, NodeSettings::getPricePort);
     	priceApplication.setSessionSettings(sessionSettings);
     	this.priceApplication = priceApplication;
     }
@@ -52,11 +58,12 @@ public class PriceAcceptor {
     @PostConstruct
 	public void init() {
 		try {
-			MessageStoreFactory messageStoreFactory = new FileStoreFactory(sessionSettings);
-			LogFactory logFactory = new ScreenLogFactory(true, true, true);
+			MessageStoreFactory messageStoreFactory = StoreSettings.createMessageStoreFactory(sessionSettings);
+			logFactory = StoreSettings.createLogFactory(sessionSettings, "price");
 			MessageFactory messageFactory = new DefaultMessageFactory();
 
 			acceptor = new SocketAcceptor(priceApplication, messageStoreFactory, sessionSettings, logFactory, messageFactory);
+			priceApplication.getWriteBacklog().setAcceptor(acceptor);
 
 			configureDynamicSessions(sessionSettings, priceApplication, messageStoreFactory, logFactory, messageFactory);
 
@@ -67,9 +74,23 @@ public class PriceAcceptor {
 		}
 	}
 
+    /**
+     * @return 動的セッションを含む全セッション
+     */
+    public List<SessionID> getSessions() {
+    	return acceptor.getSessions();
+    }
+
     @PreDestroy
 	public void stop() {
     	acceptor.stop();
+    	if (logFactory instanceof Closeable) {
+    		try {
+    			((Closeable) logFactory).close();
+    		} catch (IOException e) {
+    			log.error(e.getMessage(), e);
+    		}
+    	}
 	}
 
     private void configureDynamicSessions(SessionSettings settings, Application application,
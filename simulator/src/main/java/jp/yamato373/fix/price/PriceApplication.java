@@ -0,0 +1,415 @@
+package jp.yamato373.fix.price;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jp.yamato373.fix.OutboundValidator;
+import jp.yamato373.fix.WriteBacklog;
+import jp.yamato373.fix.cluster.Cluster;
+import jp.yamato373.fix.metrics.Metrics;
+import jp.yamato373.fix.price.DepthBook.Ladder;
+import jp.yamato373.fix.scenario.MarketConditions;
+import jp.yamato373.fix.util.FixedPoint;
+import jp.yamato373.fix.util.Settings;
+import jp.yamato373.fix.util.SettingsStore;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.Application;
+import quickfix.ConfigError;
+import quickfix.DoNotSend;
+import quickfix.FieldConvertError;
+import quickfix.FieldNotFound;
+import quickfix.IncorrectDataFormat;
+import quickfix.IncorrectTagValue;
+import quickfix.LogUtil;
+import quickfix.Message;
+import quickfix.MessageCracker;
+import quickfix.RejectLogon;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionNotFound;
+import quickfix.SessionSettings;
+import quickfix.StringField;
+import quickfix.UnsupportedMessageType;
+import quickfix.field.MDEntryDate;
+import quickfix.field.MDEntryPx;
+import quickfix.field.MDEntrySize;
+import quickfix.field.MDEntryTime;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MDReqRejReason;
+import quickfix.field.MsgType;
+import quickfix.field.NoRelatedSym;
+import quickfix.field.OrdType;
+import quickfix.field.SubscriptionRequestType;
+import quickfix.field.Symbol;
+import quickfix.field.Text;
+import quickfix.fix44.MarketDataIncrementalRefresh;
+import quickfix.fix44.MarketDataRequest;
+import quickfix.fix44.MarketDataRequestReject;
+import quickfix.fix44.MarketDataSnapshotFullRefresh;
+
+@Component
+@Slf4j
+public class PriceApplication extends MessageCracker implements Application {
+
+	private static final String VALID_ORDER_TYPES_KEY = "ValidOrderTypes";
+
+	private final HashSet<String> validOrderTypes = new HashSet<>();
+	@Getter
+	private OutboundValidator outboundValidator;
+	@Getter
+	private WriteBacklog writeBacklog;
+
+	@Autowired
+	RateGeneratWorker rateGeneratWorker;
+
+	@Autowired
+	Settings settings;
+
+	@Autowired
+	SettingsStore settingsStore;
+
+	@Autowired
+	SubscriptionManager subscriptionManager;
+
+	// 全購読へのIncrementalRefresh送信を1スレッドで行う
+	ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+
+	@Autowired
+	IncrementalRefreshEncoder incrementalRefreshEncoder;
+
+	@Autowired
+	Metrics metrics;
+
+	@Autowired
+	MarketConditions marketConditions;
+
+	@Autowired
+	Cluster cluster;
+
+	// 送信待ちが溜まって間引いたIncrementalRefreshの数
+	private final LongAdder coalesced = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		metrics.gauge("price.subscriptions", subscriptionManager::size);
+		metrics.gauge("price.coalesced", coalesced::sum);
+		metrics.gauge("price.conflating",
+				() -> subscriptionManager.getSubscriptions().stream().filter(Subscription::isConflating).count());
+		if (rateGeneratWorker.isTickDriven()) {
+			// 再生時と高頻度生成時はティック毎に送信する
+			rateGeneratWorker.addTickListener(this::publishIncrementalRefresh);
+		} else {
+			scheduleIncrementalRefresh();
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		exec.shutdownNow();
+	}
+
+	public void setSessionSettings(SessionSettings sessionSettings) throws ConfigError, FieldConvertError {
+		outboundValidator = new OutboundValidator(sessionSettings);
+		writeBacklog = new WriteBacklog(sessionSettings, settingsStore);
+		initializeValidOrderTypes(sessionSettings);
+		settingsStore.addSessions(sessionSettings);
+	}
+
+	private void initializeValidOrderTypes(SessionSettings settings) throws ConfigError, FieldConvertError {
+		if (settings.isSetting(VALID_ORDER_TYPES_KEY)) {
+			List<String> orderTypes = Arrays
+					.asList(settings.getString(VALID_ORDER_TYPES_KEY).trim().split("\\s*,\\s*"));
+			validOrderTypes.addAll(orderTypes);
+		} else {
+			validOrderTypes.add(OrdType.LIMIT + "");
+		}
+	}
+
+	@Override
+	public void onCreate(SessionID sessionID) {
+		Session.lookupSession(sessionID).getLog().onEvent("Valid order types: " + validOrderTypes);
+	}
+
+	@Override
+	public void onLogon(SessionID sessionID) {
+		writeBacklog.attach(sessionID);
+	}
+
+	@Override
+	public void onLogout(SessionID sessionID) {
+		subscriptionManager.removeAll(sessionID);
+		writeBacklog.detach(sessionID);
+	}
+
+	@Override
+	public void toAdmin(quickfix.Message message, SessionID sessionID) {
+	}
+
+	@Override
+	public void toApp(quickfix.Message message, SessionID sessionID) throws DoNotSend {
+		metrics.countSent(sessionID);
+	}
+
+	@Override
+	public void fromAdmin(quickfix.Message message, SessionID sessionID)
+			throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
+		cluster.checkLogon(message, sessionID);
+		marketConditions.checkLogon(message, sessionID);
+	}
+
+	@Override
+	public void fromApp(quickfix.Message message, SessionID sessionID)
+			throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
+
+		metrics.countReceived(sessionID);
+		if (MsgType.MARKET_DATA_REQUEST.equals(message.getHeader().getString(MsgType.FIELD))) {
+
+			// サブスクライブ
+			if (SubscriptionRequestType.SNAPSHOT_PLUS_UPDATES == message.getChar(SubscriptionRequestType.FIELD)) {
+				crack(message, sessionID);
+
+				// アンサブスクライブ
+			} else if (SubscriptionRequestType.DISABLE_PREVIOUS_SNAPSHOT_PLUS_UPDATE_REQUEST
+					== message.getChar(SubscriptionRequestType.FIELD)) {
+				String mDReqID = message.getString(MDReqID.FIELD);
+				log.info("アンサブスクライブきたよ！" + mDReqID);
+				subscriptionManager.remove(sessionID, mDReqID);
+			}
+		}
+	}
+
+	public void onMessage(MarketDataRequest request, SessionID sessionID)
+			throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
+		try {
+			String mDReqID = request.getMDReqID().getValue();
+			if (subscriptionManager.contains(sessionID, mDReqID)) {
+				sendMarketDataRequestReject(sessionID, request, MDReqRejReason.DUPLICATE_MDREQID);
+				return;
+			}
+
+			List<String> requestSymbols = getRequestSymbols(request);
+			if (requestSymbols.isEmpty()) {
+				sendMarketDataRequestReject(sessionID, request, MDReqRejReason.UNKNOWN_SYMBOL);
+				return;
+			}
+
+			// 配信中の板と食い違わないよう、送信周期の間に送って購読に加える
+			synchronized (this) {
+				for (String symbol : requestSymbols) {
+					sendSnapshotFullRefresh(sessionID, mDReqID, symbol);
+				}
+
+				subscriptionManager.add(new Subscription(sessionID, mDReqID, requestSymbols));
+			}
+			log.info("サブスクライブきたよ！" + mDReqID + " " + requestSymbols + " 購読数=" + subscriptionManager.size());
+		} catch (RuntimeException e) {
+			LogUtil.logThrowable(sessionID, e.getMessage(), e);
+		}
+	}
+
+	private void sendSnapshotFullRefresh(SessionID sessionID, String mDReqID, String symbol) {
+		MarketDataSnapshotFullRefresh marketDataSnapshotFullRefresh = new MarketDataSnapshotFullRefresh();
+
+		marketDataSnapshotFullRefresh.set(new MDReqID(mDReqID));
+		marketDataSnapshotFullRefresh.set(new Symbol(symbol));
+
+		DepthBook book = incrementalRefreshEncoder.getBook(symbol);
+		addSnapshotEntries(marketDataSnapshotFullRefresh, book, book.getBids());
+		addSnapshotEntries(marketDataSnapshotFullRefresh, book, book.getOffers());
+
+		if (sendMessage(sessionID, marketDataSnapshotFullRefresh)) {
+			incrementalRefreshEncoder.streamed(Collections.singletonList(symbol));
+		}
+	}
+
+	private void addSnapshotEntries(MarketDataSnapshotFullRefresh marketDataSnapshotFullRefresh, DepthBook book,
+			Ladder ladder) {
+		MarketDataSnapshotFullRefresh.NoMDEntries noMDEntries = new MarketDataSnapshotFullRefresh.NoMDEntries();
+		Date now = new Date();
+		for (int level = 0; level < ladder.getCount(); level++) {
+			noMDEntries.clear();
+			noMDEntries.set(new MDEntryType(ladder.getType()));
+			noMDEntries.set(new MDEntryPx(FixedPoint.toDouble(ladder.getPrice(level), book.getScale())));
+			noMDEntries.set(new MDEntrySize(ladder.getSize(level)));
+			noMDEntries.set(new MDEntryDate(now));
+			noMDEntries.set(new MDEntryTime(now));
+			if (level == 0 && book.isIndicative()) {
+				noMDEntries.set(new Text(settingsStore.getSnapshot().getIndicativeText()));
+			}
+			marketDataSnapshotFullRefresh.addGroup(noMDEntries);
+		}
+	}
+
+	private void sendMarketDataRequestReject(SessionID sessionID, MarketDataRequest request, char reason)
+			throws FieldNotFound {
+		MarketDataRequestReject marketDataRequestReject = new MarketDataRequestReject(request.getMDReqID());
+		marketDataRequestReject.set(new MDReqRejReason(reason));
+		sendMessage(sessionID, marketDataRequestReject);
+	}
+
+	private List<String> getRequestSymbols(MarketDataRequest request) throws FieldNotFound {
+		List<String> requestSymbols = new ArrayList<>();
+		MarketDataRequest.NoRelatedSym noRelatedSym = new MarketDataRequest.NoRelatedSym();
+		for (int i = 1; i <= request.getGroupCount(NoRelatedSym.FIELD); i++) {
+			request.getGroup(i, noRelatedSym);
+			String symbol = noRelatedSym.getSymbol().getValue();
+			if (rateGeneratWorker.getRate(symbol) != null) {
+				requestSymbols.add(symbol);
+			} else {
+				log.warn("知らない通貨ペアだよ！" + symbol);
+			}
+		}
+		// 通貨ペア指定なしはデフォルトの通貨ペア
+		if (request.getGroupCount(NoRelatedSym.FIELD) == 0 && rateGeneratWorker.getRate(settings.getSymbol()) != null) {
+			requestSymbols.add(settings.getSymbol());
+		}
+		return requestSymbols;
+	}
+
+	private void scheduleIncrementalRefresh() {
+		exec.schedule(() -> {
+			publishIncrementalRefresh();
+			scheduleIncrementalRefresh();
+		}, settingsStore.getSnapshot().getSendInterval(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 全購読にIncrementalRefreshを送信する。本文は通貨ペア毎に1度だけ組み立て、購読毎にはヘッダとMDReqIDだけが変わる。
+	 */
+	private synchronized void publishIncrementalRefresh() {
+		incrementalRefreshEncoder.nextCycle();
+		for (Subscription subscription : subscriptionManager.getSubscriptions()) {
+			sendIncrementalRefresh(subscription, subscription.getSymbols());
+		}
+	}
+
+	/**
+	 * rateの通貨ペアを購読している全購読に、その通貨ペアだけのIncrementalRefreshを送信する。
+	 * 高頻度生成とCSVを併用するとスレッドが2つになるので同期する
+	 */
+	private synchronized void publishIncrementalRefresh(Rate rate) {
+		incrementalRefreshEncoder.nextCycle(rate.getSymbol());
+		List<String> symbols = Collections.singletonList(rate.getSymbol());
+		for (Subscription subscription : subscriptionManager.getSubscriptions()) {
+			if (subscription.getSymbols().contains(rate.getSymbol())) {
+				sendIncrementalRefresh(subscription, symbols);
+			}
+		}
+	}
+
+	private void sendIncrementalRefresh(Subscription subscription, List<String> requestSymbols) {
+		SessionID sessionID = subscription.getSessionID();
+		try {
+			Session session = Session.lookupSession(sessionID);
+			if (session == null) {
+				throw new SessionNotFound(sessionID.toString());
+			}
+
+			List<String> symbols = conflate(subscription, requestSymbols);
+			if (symbols.isEmpty()) {
+				return;
+			}
+
+			StringField noMDEntries = incrementalRefreshEncoder.getNoMDEntries(symbols);
+			if (noMDEntries == null) {
+				return;
+			}
+			// 本文は共有するので、検証はセッション毎の設定で送信毎に決める
+			if (!outboundValidator.validate(session, () -> incrementalRefreshEncoder.getIncrementalRefresh(symbols))) {
+				return;
+			}
+
+			MarketDataIncrementalRefresh marketDataIncrementalRefresh = subscription.getIncrementalRefresh();
+			marketDataIncrementalRefresh.setField(noMDEntries);
+			if (!session.send(marketDataIncrementalRefresh)) {
+				return;
+			}
+			incrementalRefreshEncoder.streamed(symbols);
+
+			// 送った板の元になったティックから数える。生成側の最新のティックは送っていないこともある
+			long now = System.nanoTime();
+			for (int i = 0; i < symbols.size(); i++) {
+				long quoteNanoTime = incrementalRefreshEncoder.getQuoteNanoTime(symbols.get(i));
+				if (quoteNanoTime != 0) {
+					metrics.getTickToSend().record(now - quoteNanoTime);
+				}
+			}
+		} catch (SessionNotFound e) {
+			log.error(e.getMessage(), e);
+		} catch (RuntimeException e) {
+			LogUtil.logThrowable(sessionID, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 送信待ちが閾値を超えた購読には追いつくまで送らず、通貨ペアだけ覚えておく。
+	 * 追いついたら覚えておいた通貨ペアの今の板をSnapshotFullRefreshで送る。今回の差分はそれに含まれる
+	 *
+	 * @return 今回IncrementalRefreshで送る通貨ペア
+	 */
+	private List<String> conflate(Subscription subscription, List<String> symbols) {
+		SessionID sessionID = subscription.getSessionID();
+		boolean behind = writeBacklog.isBehind(sessionID, subscription.isConflating());
+		if (behind) {
+			if (!subscription.isConflating()) {
+				subscription.setConflating(true);
+				log.warn("送信が追いつかないから間引くよ！" + sessionID + " " + subscription.getMDReqID() + " 送信待ち="
+						+ writeBacklog.getScheduledWriteBytes(sessionID) + "バイト");
+			}
+			subscription.coalesce(symbols);
+			coalesced.increment();
+			return Collections.emptyList();
+		}
+		if (!subscription.isConflating()) {
+			return symbols;
+		}
+
+		subscription.setConflating(false);
+		log.info("追いついたから最新の板を送るよ！" + sessionID + " " + subscription.getMDReqID() + " 間引いた数="
+				+ subscription.getCoalesced());
+		for (String symbol : subscription.getStaleSymbols()) {
+			sendSnapshotFullRefresh(sessionID, subscription.getMDReqID(), symbol);
+		}
+		List<String> rest = new ArrayList<>(symbols);
+		rest.removeAll(subscription.getStaleSymbols());
+		subscription.getStaleSymbols().clear();
+		return rest;
+	}
+
+	/**
+	 * @return 送ったらtrue
+	 */
+	private boolean sendMessage(SessionID sessionID, Message message) {
+		try {
+			Session session = Session.lookupSession(sessionID);
+			if (session == null) {
+				throw new SessionNotFound(sessionID.toString());
+			}
+
+			if (!outboundValidator.validate(session, message)) {
+				return false;
+			}
+
+			return session.send(message);
+		} catch (SessionNotFound e) {
+			log.error(e.getMessage(), e);
+			return false;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package jp.yamato373.fix.price;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jp.yamato373.fix.price.RateGeneratWorker.TickListener;
+import jp.yamato373.fix.util.SettingsSnapshot;
+
+/**
+ * 配信したクォートの置き場。送信スレッドが板を購読に送った時に最良気配を書き、注文側は配信した通りの値を読んで判断する。
+ * {@link RateGeneratWorker}の最新レートは配信前のティックも含むので、クライアントが見た値とは限らない。
+ * 通貨ペア毎に{@link Rate}を1つ持つので、読み込みはロックも割り当ても無い。気配値はサイズ0で書く。
+ * 書くのは購読に送った板だけで、最良気配が変わらなければ書かない。約定も配信したクォートに対して行うので、書くたびにリスナーに通知する。
+ */
+@Component
+public class PriceStore {
+
+	private Map<String, Rate> rates = Collections.emptyMap();
+
+	private volatile TickListener[] listeners = new TickListener[0];
+
+	// 書く前に最後の値と比べる作業用。送信スレッドのみが使う
+	private final Quote last = new Quote();
+
+	@Autowired
+	RateGeneratWorker rateGeneratWorker;
+
+	@PostConstruct
+	public void init() {
+		Map<String, Rate> map = new HashMap<>();
+		for (String symbol : rateGeneratWorker.getSymbols()) {
+			Rate rate = rateGeneratWorker.getRate(symbol);
+			map.put(symbol, new Rate(rate.getIndex(), symbol, rate.getScale()));
+		}
+		rates = Collections.unmodifiableMap(map);
+	}
+
+	/**
+	 * @param listener 配信したクォート毎に送信スレッドから呼ばれる。配信を止めないよう、重い処理は別のスレッドに渡すこと
+	 */
+	public synchronized void addListener(TickListener listener) {
+		TickListener[] array = Arrays.copyOf(listeners, listeners.length + 1);
+		array[array.length - 1] = listener;
+		listeners = array;
+	}
+
+	/**
+	 * 送信スレッドから呼ぶ。最後に書いた最良気配と同じならseqNumを進めず、リスナーにも通知しない
+	 */
+	void publish(Quote quote, boolean indicative) {
+		Rate rate = rates.get(quote.getSymbol());
+		if (rate == null) {
+			return;
+		}
+		long bidSize = indicative ? 0 : quote.getBidSize();
+		long askSize = indicative ? 0 : quote.getAskSize();
+		rate.read(last);
+		if (last.getSeqNum() > 0 && last.getBidPx() == quote.getBidPx() && last.getAskPx() == quote.getAskPx()
+				&& last.getBidSize() == bidSize && last.getAskSize() == askSize) {
+			return;
+		}
+		rate.update(quote.getBidPx(), quote.getAskPx(), bidSize, askSize, quote.getTick());
+		for (TickListener listener : listeners) {
+			listener.onTick(rate);
+		}
+	}
+
+	/**
+	 * 最後に配信したクォートをquoteに書き写す。timeとnanoTimeは配信した時刻
+	 *
+	 * @return まだ配信していないか知らない通貨ペアならnull
+	 */
+	public Quote read(String symbol, Quote quote) {
+		Rate rate = rates.get(symbol);
+		if (rate == null) {
+			return null;
+		}
+		rate.read(quote);
+		return quote.getSeqNum() > 0 ? quote : null;
+	}
+
+	/**
+	 * nanoTime(System.nanoTime())の時点で配信済みだったクォートをquoteに書き写す。直近{@link Rate#HISTORY_SIZE}件まで遡る
+	 *
+	 * @return その時点でまだ配信していなかったか、履歴から溢れたか、知らない通貨ペアならnull
+	 */
+	public Quote readAt(String symbol, long nanoTime, Quote quote) {
+		Rate rate = rates.get(symbol);
+		return rate != null ? rate.readAt(nanoTime, quote) : null;
+	}
+
+	/**
+	 * 配信は通貨ペア毎に送信周期(ティック毎に配信するならティック)に1回までなので、履歴はその{@link Rate#HISTORY_SIZE}回分を遡れる
+	 *
+	 * @return {@link #readAt}で必ず遡れる時間(ナノ秒)。再生やCSVで配信の間隔が決まっていなければLong.MAX_VALUE
+	 */
+	public long getHistoryNanos(SettingsSnapshot snapshot) {
+		long interval = rateGeneratWorker.isTickDriven() ? rateGeneratWorker.getMinTickNanos(snapshot)
+				: TimeUnit.MILLISECONDS.toNanos(snapshot.getSendInterval());
+		return interval > 0 ? interval * Rate.HISTORY_SIZE : Long.MAX_VALUE;
+	}
+}
@@ -0,0 +1,23 @@
+package jp.yamato373.fix.price;
+
+import lombok.Data;
+
+/**
+ * {@link Rate}から読み出した一時点のレート。送信スレッド毎に使い回す。
+ */
+@Data
+public class Quote {
+
+	String symbol;
+	int scale;
+	long bidPx;
+	long askPx;
+	long bidSize;
+	long askSize;
+	long seqNum;
+	// 生成元のティック番号。クラスタでは全ノードで同じ
+	long tick;
+	long time;
+	// 計測用。更新したときのSystem.nanoTime()
+	long nanoTime;
+}
@@ -0,0 +1,155 @@
+package jp.yamato373.fix.price;
+
+import java.util.concurrent.locks.StampedLock;
+
+import lombok.Getter;
+
+/**
+ * 通貨ペア毎の最新レート。書き込みはレート生成スレッドのみで、
+ * 読み込みは楽観的読み込み(シーケンスロック)でbid/askの組が崩れないようにする。
+ * 価格は小数点以下scale桁の固定小数点。直近{@link #HISTORY_SIZE}件はリングバッファに残し、時刻を指定して読める。
+ */
+public class Rate {
+
+	public static final int HISTORY_SIZE = 64;
+	private static final int HISTORY_MASK = HISTORY_SIZE - 1;
+
+	// 通貨ペアの通し番号
+	@Getter
+	private final int index;
+	@Getter
+	private final String symbol;
+	@Getter
+	private final int scale;
+
+	private final StampedLock lock = new StampedLock();
+
+	private long bidPx;
+	private long askPx;
+	private long bidSize;
+	private long askSize;
+	private long seqNum;
+	// 生成元のティック番号。クラスタでは全ノードで同じ
+	private long tick;
+	private long time;
+	// 計測用。最後に更新したときのSystem.nanoTime()
+	@Getter
+	private volatile long tickNanoTime;
+
+	// 直近の履歴。seqNum番目の更新は(seqNum - 1) & HISTORY_MASKに入る
+	private final long[] bidPxs = new long[HISTORY_SIZE];
+	private final long[] askPxs = new long[HISTORY_SIZE];
+	private final long[] bidSizes = new long[HISTORY_SIZE];
+	private final long[] askSizes = new long[HISTORY_SIZE];
+	private final long[] ticks = new long[HISTORY_SIZE];
+	private final long[] times = new long[HISTORY_SIZE];
+	private final long[] nanoTimes = new long[HISTORY_SIZE];
+
+	public Rate(int index, String symbol, int scale) {
+		this.index = index;
+		this.symbol = symbol;
+		this.scale = scale;
+	}
+
+	/**
+	 * ティック番号は更新の通し番号(最初が0)
+	 */
+	void update(long bidPx, long askPx, long bidSize, long askSize) {
+		update(bidPx, askPx, bidSize, askSize, seqNum);
+	}
+
+	void update(long bidPx, long askPx, long bidSize, long askSize, long tick) {
+		long stamp = lock.writeLock();
+		try {
+			this.bidPx = bidPx;
+			this.askPx = askPx;
+			this.bidSize = bidSize;
+			this.askSize = askSize;
+			this.tick = tick;
+			this.time = System.currentTimeMillis();
+			this.tickNanoTime = System.nanoTime();
+			int i = (int) (seqNum & HISTORY_MASK);
+			bidPxs[i] = bidPx;
+			askPxs[i] = askPx;
+			bidSizes[i] = bidSize;
+			askSizes[i] = askSize;
+			ticks[i] = tick;
+			times[i] = time;
+			nanoTimes[i] = tickNanoTime;
+			seqNum++;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * 最新レートをquoteに書き写す。ロックは取らず、書き込みと重なったら読み直す。
+	 */
+	public Quote read(Quote quote) {
+		while (true) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) {
+				continue;
+			}
+			quote.symbol = symbol;
+			quote.scale = scale;
+			quote.bidPx = bidPx;
+			quote.askPx = askPx;
+			quote.bidSize = bidSize;
+			quote.askSize = askSize;
+			quote.seqNum = seqNum;
+			quote.tick = tick;
+			quote.time = time;
+			quote.nanoTime = tickNanoTime;
+			if (lock.validate(stamp)) {
+				return quote;
+			}
+		}
+	}
+
+	/**
+	 * nanoTime(System.nanoTime())の時点のレートをquoteに書き写す。履歴を新しい方から探すので、最近の時刻ほど速い。ロックは取らない
+	 *
+	 * @return その時点でまだ更新が無かったか、その後{@link #HISTORY_SIZE}件より多く更新して履歴から溢れていればnull
+	 */
+	public Quote readAt(long nanoTime, Quote quote) {
+		while (true) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) {
+				continue;
+			}
+			long count = seqNum;
+			if (count == 0) {
+				if (lock.validate(stamp)) {
+					return null;
+				}
+				continue;
+			}
+			long oldest = Math.max(0, count - HISTORY_SIZE);
+			long n = count - 1;
+			while (n >= oldest && nanoTimes[(int) (n & HISTORY_MASK)] - nanoTime > 0) {
+				n--;
+			}
+			if (n < oldest) {
+				if (lock.validate(stamp)) {
+					return null;
+				}
+				continue;
+			}
+			int i = (int) (n & HISTORY_MASK);
+			quote.symbol = symbol;
+			quote.scale = scale;
+			quote.bidPx = bidPxs[i];
+			quote.askPx = askPxs[i];
+			quote.bidSize = bidSizes[i];
+			quote.askSize = askSizes[i];
+			quote.seqNum = n + 1;
+			quote.tick = ticks[i];
+			quote.time = times[i];
+			quote.nanoTime = nanoTimes[i];
+			if (lock.validate(stamp)) {
+				return quote;
+			}
+		}
+	}
+}
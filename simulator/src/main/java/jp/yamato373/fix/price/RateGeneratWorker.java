@@ -0,0 +1,657 @@
+package jp.yamato373.fix.price;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import jp.yamato373.fix.cluster.CheckpointStore;
+import jp.yamato373.fix.cluster.CheckpointStore.Checkpoint;
+import jp.yamato373.fix.cluster.Cluster;
+import jp.yamato373.fix.metrics.Metrics;
+import jp.yamato373.fix.price.model.ModelParameters;
+import jp.yamato373.fix.price.model.PriceModel;
+import jp.yamato373.fix.price.tick.CsvTickSource;
+import jp.yamato373.fix.price.tick.CsvTickSource.CsvFile;
+import jp.yamato373.fix.price.tick.TickFile.SymbolEntry;
+import jp.yamato373.fix.price.tick.TickRecorder;
+import jp.yamato373.fix.price.tick.TickReplayer;
+import jp.yamato373.fix.scenario.MarketConditions;
+import jp.yamato373.fix.scenario.SymbolCondition;
+import jp.yamato373.fix.util.FixedPoint;
+import jp.yamato373.fix.util.Pacer;
+import jp.yamato373.fix.util.RandomSource;
+import jp.yamato373.fix.util.Settings;
+import jp.yamato373.fix.util.Settings.Pacing;
+import jp.yamato373.fix.util.Settings.SymbolSettings;
+import jp.yamato373.fix.util.SettingsSnapshot;
+import jp.yamato373.fix.util.SettingsSnapshot.SymbolValues;
+import jp.yamato373.fix.util.SettingsStore;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class RateGeneratWorker {
+
+	/**
+	 * ティック毎に呼ばれる。呼び出し元はレート生成(再生)スレッド
+	 */
+	public interface TickListener {
+		void onTick(Rate rate);
+	}
+
+	private Map<String, Rate> rates = Collections.emptyMap();
+	private Rate[] rateArray = new Rate[0];
+	// rateArrayと同じ順のシナリオの状態
+	private SymbolCondition[] conditions = new SymbolCondition[0];
+
+	private volatile TickListener[] tickListeners = new TickListener[0];
+
+	private TickRecorder tickRecorder;
+	private TickReplayer tickReplayer;
+
+	@Getter
+	private boolean replay;
+	// ティック毎に配信するか。再生時と高頻度生成時
+	@Getter
+	private boolean tickDriven;
+	private int generatorCount;
+	// 価格モデルで生成する通貨ペア。CSVと再生の通貨ペアは含まない
+	private Set<String> generatedSymbols = Collections.emptySet();
+
+	// プライス側の乱数はすべてここから作る
+	@Getter
+	private RandomSource randomSource;
+
+	ScheduledExecutorService exec;
+	ScheduledExecutorService csvExec;
+
+	// クラスタの時だけ
+	private CheckpointStore checkpointStore;
+
+	@Autowired
+	Settings settings;
+
+	// 実行中に変わる値はこちらから読む
+	@Autowired
+	SettingsStore settingsStore;
+
+	@Autowired
+	Metrics metrics;
+
+	@Autowired
+	MarketConditions marketConditions;
+
+	@Autowired
+	Cluster cluster;
+
+	@PostConstruct
+	public void init() throws IOException {
+		randomSource = new RandomSource(settings.getSeed());
+		replay = StringUtils.hasText(settings.getReplayFile());
+		tickDriven = replay || settings.getPacing() != Pacing.SCHEDULED;
+		if (replay) {
+			initReplay();
+		} else {
+			initGenerate();
+		}
+	}
+
+	private void initGenerate() throws IOException {
+		int threads = settings.getPacing() != Pacing.SCHEDULED ? 1
+				: settings.getGeneratorThreads() > 0 ? settings.getGeneratorThreads()
+						: Runtime.getRuntime().availableProcessors();
+		exec = Executors.newScheduledThreadPool(threads);
+
+		List<Rate> list = new ArrayList<>();
+		List<Generator> generators = new ArrayList<>();
+		List<CsvFile> csvFiles = new ArrayList<>();
+		generatorCount = (int) getSymbolSettings().stream()
+				.filter(symbolSettings -> !StringUtils.hasText(symbolSettings.getCsvFile())).count();
+		// 通貨ペアの順に分けるので、シードが同じならスレッド数によらず同じ値動きになる
+		SplittableRandom random = randomSource.create("RateGeneratWorker");
+		if (cluster.isEnabled()) {
+			checkpointStore = new CheckpointStore(settings.getCluster().getCheckpointDir());
+		}
+		for (SymbolSettings symbolSettings : getSymbolSettings()) {
+			if (StringUtils.hasText(symbolSettings.getCsvFile())) {
+				int scale = symbolSettings.getScale() != null ? symbolSettings.getScale() : settings.getScale();
+				list.add(new Rate(list.size(), symbolSettings.getSymbol(), scale));
+				csvFiles.add(new CsvFile(list.size() - 1, new File(symbolSettings.getCsvFile()), scale));
+			} else {
+				Generator generator = new Generator(list.size(), symbolSettings, random.split());
+				list.add(generator.rate);
+				generators.add(generator);
+			}
+		}
+		setRates(list);
+		generatedSymbols = generators.stream().map(generator -> generator.rate.getSymbol())
+				.collect(Collectors.toCollection(HashSet::new));
+
+		if (StringUtils.hasText(settings.getRecordFile())) {
+			tickRecorder = new TickRecorder(new File(settings.getRecordFile()), rates.values().stream()
+					.map(rate -> new SymbolEntry(rate.getSymbol(), rate.getScale())).collect(Collectors.toList()));
+		}
+
+		log.info("レート生成開始したよ！ symbols=" + rates.keySet() + " threads=" + threads + " pacing="
+				+ settings.getPacing());
+		if (cluster.isEnabled()) {
+			lockSettings();
+			catchUp(generators);
+		}
+		generators.forEach(Generator::publish);
+		if (cluster.isEnabled()) {
+			generators.forEach(generator -> scheduleAligned(generator, settings.getRateGenerateInterval()));
+		} else if (settings.getPacing() == Pacing.SCHEDULED) {
+			generators.forEach(this::schedule);
+		} else if (!generators.isEmpty()) {
+			Generator[] array = generators.toArray(new Generator[generators.size()]);
+			exec.execute(() -> generateLoop(array));
+		}
+
+		if (!csvFiles.isEmpty()) {
+			CsvTickSource csvTickSource = new CsvTickSource(csvFiles);
+			csvExec = Executors.newSingleThreadScheduledExecutor();
+			csvExec.execute(() -> replayCsv(csvTickSource));
+		}
+	}
+
+	private void replayCsv(CsvTickSource csvTickSource) {
+		log.info("CSV再生開始したよ！ files=" + settings.getSymbols().stream().map(SymbolSettings::getCsvFile)
+				.filter(StringUtils::hasText).collect(Collectors.toList()) + " speed=" + settings.getReplaySpeed());
+		try {
+			do {
+				long count = csvTickSource.replay(settings.getReplaySpeed(),
+						(symbolIndex, bidPx, askPx, bidSize, askSize) -> publish(rateArray[symbolIndex], bidPx, askPx,
+								bidSize > 0 ? bidSize : settingsStore.getSnapshot().getSize(),
+								askSize > 0 ? askSize : settingsStore.getSnapshot().getSize()));
+				log.info("CSV再生終了したよ！ " + count + "件");
+			} while (settings.isReplayLoop() && !Thread.currentThread().isInterrupted());
+		} catch (IOException | RuntimeException e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	private void initReplay() throws IOException {
+		tickReplayer = new TickReplayer(new File(settings.getReplayFile()));
+		List<Rate> list = new ArrayList<>();
+		for (SymbolEntry entry : tickReplayer.getSymbols()) {
+			list.add(new Rate(list.size(), entry.getSymbol(), entry.getScale()));
+		}
+		setRates(list);
+
+		exec = Executors.newSingleThreadScheduledExecutor();
+		exec.execute(this::replay);
+	}
+
+	private void replay() {
+		log.info("ティック再生開始したよ！ symbols=" + rates.keySet() + " speed=" + settings.getReplaySpeed());
+		try {
+			do {
+				long count = tickReplayer.replay(settings.getReplaySpeed(),
+						(symbolIndex, bidPx, askPx, bidSize, askSize) -> publish(rateArray[symbolIndex], bidPx, askPx,
+								bidSize, askSize));
+				log.info("ティック再生終了したよ！ " + count + "件");
+			} while (settings.isReplayLoop() && !Thread.currentThread().isInterrupted());
+		} catch (IOException | RuntimeException e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	private void setRates(List<Rate> list) {
+		Map<String, Rate> map = new LinkedHashMap<>();
+		list.forEach(rate -> map.put(rate.getSymbol(), rate));
+		rates = Collections.unmodifiableMap(map);
+		rateArray = list.toArray(new Rate[list.size()]);
+		conditions = list.stream().map(rate -> marketConditions.get(rate.getSymbol()))
+				.toArray(SymbolCondition[]::new);
+	}
+
+	@PreDestroy
+	public void stop() throws IOException, InterruptedException {
+		exec.shutdownNow();
+		exec.awaitTermination(1, TimeUnit.SECONDS);
+		if (csvExec != null) {
+			csvExec.shutdownNow();
+			csvExec.awaitTermination(1, TimeUnit.SECONDS);
+		}
+		if (tickRecorder != null) {
+			tickRecorder.close();
+		}
+		if (tickReplayer != null) {
+			tickReplayer.close();
+		}
+	}
+
+	private List<SymbolSettings> getSymbolSettings() {
+		if (!settings.getSymbols().isEmpty()) {
+			return settings.getSymbols();
+		}
+		SymbolSettings symbolSettings = new SymbolSettings();
+		symbolSettings.setSymbol(settings.getSymbol());
+		return Collections.singletonList(symbolSettings);
+	}
+
+	private void schedule(Generator generator) {
+		exec.schedule(() -> {
+			try {
+				generator.next();
+			} catch (RuntimeException e) {
+				log.error(e.getMessage(), e);
+			}
+			schedule(generator);
+		}, settingsStore.getSnapshot().getRateGenerateInterval(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 値動きに関わる設定を1つのノードだけ変えると揃わなくなるので、クラスタでは実行中に変えられないようにする。
+	 * 変えるなら全ノードの設定ファイルを変えて再起動する
+	 */
+	private void lockSettings() {
+		SettingsSnapshot initial = settingsStore.getSnapshot();
+		settingsStore.addValidator(snapshot -> {
+			checkUnchanged(snapshot.getRateGenerateInterval() == initial.getRateGenerateInterval(),
+					"rateGenerateInterval");
+			checkUnchanged(snapshot.getSize() == initial.getSize(), "size");
+			checkUnchanged(snapshot.getMaxSpreadMultiplier() == initial.getMaxSpreadMultiplier(),
+					"maxSpreadMultiplier");
+			for (String symbol : rates.keySet()) {
+				checkUnchanged(snapshot.getSymbol(symbol).equals(initial.getSymbol(symbol)), symbol);
+			}
+		});
+	}
+
+	private static void checkUnchanged(boolean unchanged, String name) {
+		if (!unchanged) {
+			throw new IllegalArgumentException(name + " cannot be changed in cluster");
+		}
+	}
+
+	/**
+	 * 今のティックまで配信せずに生成する。最後のチェックポイントがあればそこから、無ければクラスタの起点から。
+	 * どちらでも全ノードが同じ値になる。チェックポイントは動いているノードがcheckpointTicks毎に書くので、
+	 * checkpointDirを共有していれば生成し直すのはcheckpointTicks件まで。
+	 * 共有していない新しいノードや、全ノードを長く止めた後はそれより多くなるので、maxCatchUpTicksを超えたら起動しない
+	 */
+	private void catchUp(List<Generator> generators) {
+		long interval = settings.getRateGenerateInterval();
+		if (generators.size() < getSymbolSettings().size()) {
+			log.warn("CSVの通貨ペアはノード間で揃わないよ！");
+		}
+		long start = System.nanoTime();
+		long tick = cluster.getTick(interval);
+		long maxCatchUpTicks = settings.getCluster().getMaxCatchUpTicks() > 0
+				? settings.getCluster().getMaxCatchUpTicks() : settings.getCluster().getCheckpointTicks();
+		List<Checkpoint> checkpoints = new ArrayList<>();
+		for (Generator generator : generators) {
+			Checkpoint checkpoint = checkpointStore.load(generator.rate.getSymbol(), generator.getFingerprint());
+			if (checkpoint != null && checkpoint.getTick() > tick) {
+				checkpoint = null;
+			}
+			long from = checkpoint != null ? checkpoint.getTick() : 0;
+			if (tick - from > maxCatchUpTicks) {
+				throw new IllegalStateException(generator.rate.getSymbol() + ": " + (tick - from)
+						+ " ticks to catch up exceed maxCatchUpTicks=" + maxCatchUpTicks
+						+ " (share checkpointDir between nodes or start a new epoch)");
+			}
+			checkpoints.add(checkpoint);
+		}
+		for (int i = 0; i < generators.size(); i++) {
+			Generator generator = generators.get(i);
+			if (checkpoints.get(i) != null) {
+				generator.restore(checkpoints.get(i));
+			}
+			generator.skipTo(tick);
+		}
+		log.info("クラスタの時刻に合わせたよ！ tick=" + tick + " "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+	}
+
+	/**
+	 * クラスタの時は、起点からinterval毎の時刻に、そのティックまで進めて配信する。遅れたら間のティックは配信しない
+	 */
+	private void scheduleAligned(Generator generator, long interval) {
+		long tick = cluster.getTick(interval) + 1;
+		exec.schedule(() -> {
+			try {
+				generator.advanceTo(tick);
+			} catch (RuntimeException e) {
+				log.error(e.getMessage(), e);
+			}
+			scheduleAligned(generator, interval);
+		}, cluster.getDelayToTick(tick, interval), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 高頻度生成。1スレッドでPacerの間隔毎に通貨ペアを順番に1つずつ生成する
+	 */
+	private void generateLoop(Generator[] generators) {
+		long ticksPerSecond = getTicksPerSecond(generators.length);
+		Pacer pacer = new Pacer(Pacer.WaitStrategy.valueOf(settings.getPacing().name()),
+				TimeUnit.SECONDS.toNanos(1) / ticksPerSecond,
+				TimeUnit.MILLISECONDS.toNanos(settings.getPacingCatchUpLimit()));
+		metrics.gauge("price.pacingResets", pacer::getResets);
+		log.info("高頻度生成開始したよ！ ticksPerSecond=" + ticksPerSecond);
+
+		int index = 0;
+		while (!Thread.currentThread().isInterrupted()) {
+			// 設定の変更は次のティックから
+			long current = getTicksPerSecond(generators.length);
+			if (current != ticksPerSecond) {
+				ticksPerSecond = current;
+				pacer.setIntervalNanos(TimeUnit.SECONDS.toNanos(1) / ticksPerSecond);
+				log.info("ティック数変えたよ！ ticksPerSecond=" + ticksPerSecond);
+			}
+
+			pacer.awaitNext();
+			try {
+				generators[index].next();
+			} catch (RuntimeException e) {
+				log.error(e.getMessage(), e);
+			}
+			if (++index == generators.length) {
+				index = 0;
+			}
+		}
+	}
+
+	/**
+	 * @return 通貨ペア毎の1ティックの間隔(年)
+	 */
+	private double getTickYears() {
+		long nanos = settings.getPacing() == Pacing.SCHEDULED
+				? TimeUnit.MILLISECONDS.toNanos(settingsStore.getSnapshot().getRateGenerateInterval())
+				: TimeUnit.SECONDS.toNanos(1) * generatorCount / getTicksPerSecond(generatorCount);
+		return nanos / (double) TimeUnit.DAYS.toNanos(365);
+	}
+
+	/**
+	 * @return 通貨ペア毎のティックの最短間隔(ナノ秒)。再生やCSVで決まっていなければ0
+	 */
+	public long getMinTickNanos(SettingsSnapshot snapshot) {
+		if (replay || generatorCount < rateArray.length) {
+			return 0;
+		}
+		return settings.getPacing() == Pacing.SCHEDULED
+				? TimeUnit.MILLISECONDS.toNanos(snapshot.getRateGenerateInterval())
+				: TimeUnit.SECONDS.toNanos(1) * generatorCount / getTicksPerSecond(snapshot, generatorCount);
+	}
+
+	private long getTicksPerSecond(int symbols) {
+		return getTicksPerSecond(settingsStore.getSnapshot(), symbols);
+	}
+
+	private long getTicksPerSecond(SettingsSnapshot snapshot, int symbols) {
+		if (snapshot.getTicksPerSecond() > 0) {
+			return snapshot.getTicksPerSecond();
+		}
+		return Math.max(1,
+				symbols * TimeUnit.SECONDS.toMillis(1) / Math.max(1, snapshot.getRateGenerateInterval()));
+	}
+
+	/**
+	 * ティックの入口。レートを更新し、記録とリスナーへの通知を行う。シナリオで止めている間は捨てる
+	 */
+	void publish(Rate rate, long bidPx, long askPx, long bidSize, long askSize) {
+		publish(rate, bidPx, askPx, bidSize, askSize, -1);
+	}
+
+	/**
+	 * @param tick 生成したティックの番号。再生等で無ければ負
+	 */
+	private void publish(Rate rate, long bidPx, long askPx, long bidSize, long askSize, long tick) {
+		if (conditions[rate.getIndex()].isFrozen()) {
+			return;
+		}
+		if (tick < 0) {
+			rate.update(bidPx, askPx, bidSize, askSize);
+		} else {
+			rate.update(bidPx, askPx, bidSize, askSize, tick);
+		}
+		if (tickRecorder != null) {
+			tickRecorder.record(rate.getIndex(), bidPx, askPx, bidSize, askSize);
+		}
+		for (TickListener tickListener : tickListeners) {
+			tickListener.onTick(rate);
+		}
+	}
+
+	public synchronized void addTickListener(TickListener tickListener) {
+		TickListener[] listeners = Arrays.copyOf(tickListeners, tickListeners.length + 1);
+		listeners[listeners.length - 1] = tickListener;
+		tickListeners = listeners;
+	}
+
+	public Rate getRate(String symbol) {
+		return rates.get(symbol);
+	}
+
+	public Set<String> getSymbols() {
+		return rates.keySet();
+	}
+
+	/**
+	 * @return symbolを価格モデルで生成しているか。CSVと再生の通貨ペアはfalse
+	 */
+	public boolean isGenerated(String symbol) {
+		return generatedSymbols.contains(symbol);
+	}
+
+	/**
+	 * 通貨ペア毎のレート生成。価格モデルでtickBatchSize件ずつまとめて生成しておき、1件ずつ配信する。
+	 * 設定の版が変わったら読み直し、値が変わっていたら残りを捨てて生成し直す。
+	 * クラスタではcheckpointTicks毎に区切り、区切り毎に通貨ペアと区切りの番号から乱数を作り直してチェックポイントを書く
+	 */
+	private class Generator {
+
+		final SymbolSettings symbolSettings;
+		final int scale;
+		final Rate rate;
+		final ModelParameters parameters = new ModelParameters();
+		final PriceModel model;
+		final SymbolCondition condition;
+		double spreadWidening;
+		double maxSpreadMultiplier;
+		long size;
+		long mid;
+		long bidPx;
+		long askPx;
+		// 生成したティックの数。最初の1件が0
+		long tick;
+
+		final long[] mids;
+		final double[] shocks;
+		int position;
+		int count;
+
+		// 読んだ設定の版
+		SettingsSnapshot applied;
+
+		Generator(int index, SymbolSettings symbolSettings, SplittableRandom random) {
+			this.symbolSettings = symbolSettings;
+			scale = symbolSettings.getScale() != null ? symbolSettings.getScale() : settings.getScale();
+			rate = new Rate(index, symbolSettings.getSymbol(), scale);
+			condition = marketConditions.get(rate.getSymbol());
+			int batchSize = Math.max(1, settings.getTickBatchSize());
+			mids = new long[batchSize];
+			shocks = new double[batchSize];
+			refresh();
+			model = PriceModel.create(symbolSettings.getModel() != null ? symbolSettings.getModel()
+					: settings.getModel(), parameters, random, batchSize);
+			if (checkpointStore != null) {
+				model.reseed(randomSource.create(rate.getSymbol(), 0));
+			}
+			take();
+		}
+
+		void next() {
+			step();
+			publish();
+		}
+
+		/**
+		 * targetのティックまで進めて配信する。もう進んでいれば何もしない
+		 */
+		void advanceTo(long target) {
+			if (skipTo(target)) {
+				publish();
+			}
+		}
+
+		/**
+		 * targetのティックまで配信せずに進める
+		 *
+		 * @return 進めたらtrue
+		 */
+		boolean skipTo(long target) {
+			if (target <= tick) {
+				return false;
+			}
+			while (tick < target) {
+				step();
+			}
+			return true;
+		}
+
+		private void step() {
+			tick++;
+			if (checkpointStore != null && tick % settings.getCluster().getCheckpointTicks() == 0) {
+				startBlock();
+			}
+			if (refresh()) {
+				position = count;
+			}
+			BigDecimal gap = condition.takeGap();
+			if (gap != null) {
+				// 生成済みの残りは捨てて、今配信している価格から飛ばす
+				model.moveTo(parameters, mid + FixedPoint.toLong(gap, scale));
+				position = count;
+			}
+			take();
+		}
+
+		/**
+		 * 区切りの始めのティック。生成済みの残りは捨て、この区切りの乱数で生成し直す
+		 */
+		private void startBlock() {
+			long block = tick / settings.getCluster().getCheckpointTicks();
+			model.reseed(randomSource.create(rate.getSymbol(), block));
+			position = count;
+			checkpointStore.save(rate.getSymbol(), getFingerprint(), tick, model.getState());
+		}
+
+		/**
+		 * チェックポイントのティックの直前に戻す。次のstepで区切りの始めから生成し直す
+		 */
+		void restore(Checkpoint checkpoint) {
+			tick = checkpoint.getTick() - 1;
+			model.setState(checkpoint.getState());
+			position = count;
+		}
+
+		/**
+		 * @return 値動きに関わる設定。違うノードや前回の起動のチェックポイントを使ってよいかの判定に使う
+		 */
+		String getFingerprint() {
+			return "seed=" + randomSource.getSeed() + " epoch=" + settings.getCluster().getEpoch() + " interval="
+					+ settings.getRateGenerateInterval() + " checkpointTicks="
+					+ settings.getCluster().getCheckpointTicks() + " batchSize=" + mids.length + " model="
+					+ model.getClass().getSimpleName() + " scale=" + scale + " " + applied.getSymbol(rate.getSymbol());
+		}
+
+		void publish() {
+			RateGeneratWorker.this.publish(rate, bidPx, askPx, size, size, tick);
+		}
+
+		private void take() {
+			if (position == count) {
+				parameters.setDt(getTickYears());
+				model.fill(parameters, mids, shocks, mids.length);
+				position = 0;
+				count = mids.length;
+			}
+			long spread = parameters.getSpread();
+			if (spreadWidening > 0) {
+				spread = (long) (spread * Math.min(1 + spreadWidening * shocks[position], maxSpreadMultiplier));
+			}
+			// シナリオで広げる分はmaxSpreadMultiplierで抑えない
+			double spreadMultiplier = condition.getSpreadMultiplier();
+			if (spreadMultiplier != 1) {
+				spread = (long) (spread * spreadMultiplier);
+			}
+			mid = mids[position++];
+			bidPx = mid - spread / 2;
+			askPx = bidPx + spread;
+		}
+
+		/**
+		 * @return 設定が変わったらtrue
+		 */
+		private boolean refresh() {
+			SettingsSnapshot snapshot = settingsStore.getSnapshot();
+			if (snapshot == applied) {
+				return false;
+			}
+			applied = snapshot;
+			SymbolValues values = snapshot.getSymbol(rate.getSymbol());
+
+			boolean changed = false;
+			changed |= refresh(values.getMove(), parameters.getMove(), parameters::setMove);
+			changed |= refresh(values.getUpperLimit(), parameters.getUpperLimit(), parameters::setUpperLimit);
+			changed |= refresh(values.getLowerLimit(), parameters.getLowerLimit(), parameters::setLowerLimit);
+			changed |= refresh(values.getSpread(), parameters.getSpread(), parameters::setSpread);
+			changed |= refresh(values.getDrift(), parameters.getDrift(), parameters::setDrift);
+			changed |= refresh(values.getVolatility(), parameters.getVolatility(), parameters::setVolatility);
+			changed |= refresh(values.getMeanReversion(), parameters.getMeanReversion(),
+					parameters::setMeanReversion);
+			changed |= refresh(values.getJumpIntensity(), parameters.getJumpIntensity(),
+					parameters::setJumpIntensity);
+			changed |= refresh(values.getJumpMean(), parameters.getJumpMean(), parameters::setJumpMean);
+			changed |= refresh(values.getJumpVolatility(), parameters.getJumpVolatility(),
+					parameters::setJumpVolatility);
+			spreadWidening = values.getSpreadWidening();
+			maxSpreadMultiplier = Math.max(1, snapshot.getMaxSpreadMultiplier());
+			size = snapshot.getSize();
+			return changed;
+		}
+
+		private boolean refresh(BigDecimal value, long current, LongConsumer setter) {
+			long longValue = FixedPoint.toLong(value, scale);
+			if (longValue == current) {
+				return false;
+			}
+			setter.accept(longValue);
+			return true;
+		}
+
+		private boolean refresh(double value, double current, DoubleConsumer setter) {
+			if (value == current) {
+				return false;
+			}
+			setter.accept(value);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package jp.yamato373.fix.price;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.Setter;
+import quickfix.SessionID;
+import quickfix.field.MDReqID;
+import quickfix.fix44.MarketDataIncrementalRefresh;
+
+/**
+ * セッション毎、MDReqID毎のプライス購読
+ */
+@Getter
+public class Subscription {
+
+	private final SessionID sessionID;
+	private final String mDReqID;
+	private final List<String> symbols;
+
+	// 送信スレッドが使い回す。NoMDEntriesだけ差し替えて送信する
+	private final MarketDataIncrementalRefresh incrementalRefresh = new MarketDataIncrementalRefresh();
+
+	// 以下は送信スレッドのみが使う。送信待ちが溜まって間引いているか
+	@Setter
+	private boolean conflating;
+	// 間引いている間に送らなかった通貨ペア。追いついたら今の板をSnapshotFullRefreshで送る
+	private final Set<String> staleSymbols = new LinkedHashSet<>();
+	// 間引いたIncrementalRefreshの数
+	private long coalesced;
+
+	public Subscription(SessionID sessionID, String mDReqID, List<String> symbols) {
+		this.sessionID = sessionID;
+		this.mDReqID = mDReqID;
+		this.symbols = symbols;
+		incrementalRefresh.set(new MDReqID(mDReqID));
+	}
+
+	/**
+	 * 間引いたIncrementalRefreshを記録する
+	 */
+	void coalesce(List<String> symbols) {
+		staleSymbols.addAll(symbols);
+		coalesced++;
+	}
+}
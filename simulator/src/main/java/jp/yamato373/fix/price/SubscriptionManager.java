@@ -0,0 +1,53 @@
+package jp.yamato373.fix.price;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+
+import lombok.Value;
+import quickfix.SessionID;
+
+/**
+ * SessionIDとMDReqIDをキーにした購読の一覧。セッションスレッドから追加・削除され、送信スレッドから参照される。
+ */
+@Component
+public class SubscriptionManager {
+
+	private final ConcurrentMap<Key, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+	/**
+	 * @return 同じSessionIDとMDReqIDの購読が既にあればfalse
+	 */
+	public boolean add(Subscription subscription) {
+		return subscriptions.putIfAbsent(new Key(subscription.getSessionID(), subscription.getMDReqID()),
+				subscription) == null;
+	}
+
+	public boolean contains(SessionID sessionID, String mDReqID) {
+		return subscriptions.containsKey(new Key(sessionID, mDReqID));
+	}
+
+	public Subscription remove(SessionID sessionID, String mDReqID) {
+		return subscriptions.remove(new Key(sessionID, mDReqID));
+	}
+
+	public void removeAll(SessionID sessionID) {
+		subscriptions.keySet().removeIf(key -> key.getSessionID().equals(sessionID));
+	}
+
+	public Collection<Subscription> getSubscriptions() {
+		return subscriptions.values();
+	}
+
+	public int size() {
+		return subscriptions.size();
+	}
+
+	@Value
+	private static class Key {
+		SessionID sessionID;
+		String mDReqID;
+	}
+}
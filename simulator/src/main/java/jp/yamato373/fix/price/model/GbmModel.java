@@ -0,0 +1,66 @@
+package jp.yamato373.fix.price.model;
+
+import java.util.SplittableRandom;
+
+import jp.yamato373.fix.util.Gaussian;
+
+/**
+ * 幾何ブラウン運動。上限と下限の中間から始め、範囲外に出たら折り返す。
+ */
+class GbmModel implements PriceModel {
+
+	SplittableRandom random;
+	final double[] normals;
+	double price;
+
+	GbmModel(ModelParameters parameters, SplittableRandom random, int batchSize) {
+		this.random = random;
+		normals = new double[batchSize];
+		price = (parameters.getUpperLimit() + parameters.getLowerLimit()) / 2.0;
+	}
+
+	@Override
+	public void fill(ModelParameters parameters, long[] mids, double[] shocks, int count) {
+		double sigma = parameters.getVolatility();
+		double drift = (parameters.getDrift() - 0.5 * sigma * sigma) * parameters.getDt();
+		double diffusion = sigma * Math.sqrt(parameters.getDt());
+		Gaussian.fill(random, normals, count);
+		for (int i = 0; i < count; i++) {
+			price = reflect(price * Math.exp(drift + diffusion * normals[i]), parameters);
+			mids[i] = Math.round(price);
+			shocks[i] = Math.abs(normals[i]);
+		}
+	}
+
+	@Override
+	public void moveTo(ModelParameters parameters, long mid) {
+		price = Math.max(parameters.getLowerLimit(), Math.min(parameters.getUpperLimit(), mid));
+	}
+
+	@Override
+	public void reseed(SplittableRandom random) {
+		this.random = random;
+	}
+
+	@Override
+	public double[] getState() {
+		return new double[] { price };
+	}
+
+	@Override
+	public void setState(double[] state) {
+		price = state[0];
+	}
+
+	static double reflect(double price, ModelParameters parameters) {
+		double upper = parameters.getUpperLimit();
+		double lower = parameters.getLowerLimit();
+		if (price > upper) {
+			return Math.max(lower, 2 * upper - price);
+		}
+		if (price < lower) {
+			return Math.min(upper, 2 * lower - price);
+		}
+		return price;
+	}
+}
@@ -0,0 +1,38 @@
+package jp.yamato373.fix.price.model;
+
+import java.util.SplittableRandom;
+
+import jp.yamato373.fix.util.Gaussian;
+
+/**
+ * Mertonのジャンプ拡散。幾何ブラウン運動に、年jumpIntensity回の頻度で対数正規の大きさのジャンプを加える。
+ * ジャンプしたティックは変動が大きいのでスプレッドも大きく広がる。
+ */
+class JumpDiffusionModel extends GbmModel {
+
+	JumpDiffusionModel(ModelParameters parameters, SplittableRandom random, int batchSize) {
+		super(parameters, random, batchSize);
+	}
+
+	@Override
+	public void fill(ModelParameters parameters, long[] mids, double[] shocks, int count) {
+		double sigma = parameters.getVolatility();
+		double dt = parameters.getDt();
+		double drift = (parameters.getDrift() - 0.5 * sigma * sigma) * dt;
+		double diffusion = sigma * Math.sqrt(dt);
+		double jumpProbability = parameters.getJumpIntensity() * dt;
+		Gaussian.fill(random, normals, count);
+		for (int i = 0; i < count; i++) {
+			double logReturn = drift + diffusion * normals[i];
+			double shock = Math.abs(normals[i]);
+			if (random.nextDouble() < jumpProbability) {
+				double jump = parameters.getJumpMean() + parameters.getJumpVolatility() * Gaussian.next(random);
+				logReturn += jump;
+				shock += diffusion > 0 ? Math.abs(jump) / diffusion : 0;
+			}
+			price = reflect(price * Math.exp(logReturn), parameters);
+			mids[i] = Math.round(price);
+			shocks[i] = shock;
+		}
+	}
+}
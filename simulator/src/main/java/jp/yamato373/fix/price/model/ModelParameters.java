@@ -0,0 +1,22 @@
+package jp.yamato373.fix.price.model;
+
+import lombok.Data;
+
+/**
+ * 価格モデルに渡す設定値。価格はポイント、率は年率で、dtは1ティックの時間(年)。
+ */
+@Data
+public class ModelParameters {
+	private long upperLimit;
+	private long lowerLimit;
+	private long spread;
+	// TRIANGLEの1ティックの値幅
+	private long move;
+	private double drift;
+	private double volatility;
+	private double meanReversion;
+	private double jumpIntensity;
+	private double jumpMean;
+	private double jumpVolatility;
+	private double dt;
+}
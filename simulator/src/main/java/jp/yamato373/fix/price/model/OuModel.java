@@ -0,0 +1,57 @@
+package jp.yamato373.fix.price.model;
+
+import java.util.SplittableRandom;
+
+import jp.yamato373.fix.util.Gaussian;
+
+/**
+ * Ornstein-Uhlenbeck過程。上限と下限の中間に平均回帰する。volatilityは平均価格に対する率。
+ */
+class OuModel implements PriceModel {
+
+	private SplittableRandom random;
+	private final double[] normals;
+	private double price;
+
+	OuModel(ModelParameters parameters, SplittableRandom random, int batchSize) {
+		this.random = random;
+		normals = new double[batchSize];
+		price = (parameters.getUpperLimit() + parameters.getLowerLimit()) / 2.0;
+	}
+
+	@Override
+	public void fill(ModelParameters parameters, long[] mids, double[] shocks, int count) {
+		double mean = (parameters.getUpperLimit() + parameters.getLowerLimit()) / 2.0;
+		double theta = Math.max(parameters.getMeanReversion(), 1e-9);
+		double dt = parameters.getDt();
+		// 厳密な離散化。dtが大きくても発散しない
+		double decay = Math.exp(-theta * dt);
+		double diffusion = parameters.getVolatility() * mean * Math.sqrt((1 - decay * decay) / (2 * theta));
+		Gaussian.fill(random, normals, count);
+		for (int i = 0; i < count; i++) {
+			price = GbmModel.reflect(mean + (price - mean) * decay + diffusion * normals[i], parameters);
+			mids[i] = Math.round(price);
+			shocks[i] = Math.abs(normals[i]);
+		}
+	}
+
+	@Override
+	public void moveTo(ModelParameters parameters, long mid) {
+		price = Math.max(parameters.getLowerLimit(), Math.min(parameters.getUpperLimit(), mid));
+	}
+
+	@Override
+	public void reseed(SplittableRandom random) {
+		this.random = random;
+	}
+
+	@Override
+	public double[] getState() {
+		return new double[] { price };
+	}
+
+	@Override
+	public void setState(double[] state) {
+		price = state[0];
+	}
+}
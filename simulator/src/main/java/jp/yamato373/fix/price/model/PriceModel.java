@@ -0,0 +1,50 @@
+package jp.yamato373.fix.price.model;
+
+import java.util.SplittableRandom;
+
+import jp.yamato373.fix.util.Settings;
+
+/**
+ * 通貨ペア1つ分の仲値の動き。ティックをまとめて生成し、状態(今の価格と乱数)は次の呼び出しに引き継ぐ。
+ * 価格は固定小数点の整数(ポイント)で、1スレッドから使う。
+ */
+public interface PriceModel {
+
+	/**
+	 * @param mids count件の仲値を書く
+	 * @param shocks count件の変動の大きさ(標準偏差で割った絶対値)を書く。スプレッドを広げるのに使う
+	 */
+	void fill(ModelParameters parameters, long[] mids, double[] shocks, int count);
+
+	/**
+	 * 今の価格をmidにする(窓開け)。上限と下限の範囲に収める。次のfillはmidから続ける
+	 */
+	void moveTo(ModelParameters parameters, long mid);
+
+	/**
+	 * 乱数を差し替える。次のfillから使う。クラスタでチェックポイントの区切り毎に呼ぶ
+	 */
+	default void reseed(SplittableRandom random) {
+	}
+
+	/**
+	 * @return 乱数以外の状態。{@link #setState(double[])}で戻せる
+	 */
+	double[] getState();
+
+	void setState(double[] state);
+
+	static PriceModel create(Settings.Model model, ModelParameters parameters, SplittableRandom random,
+			int batchSize) {
+		switch (model) {
+		case GBM:
+			return new GbmModel(parameters, random, batchSize);
+		case OU:
+			return new OuModel(parameters, random, batchSize);
+		case JUMP:
+			return new JumpDiffusionModel(parameters, random, batchSize);
+		default:
+			return new TriangleModel(parameters);
+		}
+	}
+}
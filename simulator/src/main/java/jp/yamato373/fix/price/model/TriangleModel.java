@@ -0,0 +1,48 @@
+package jp.yamato373.fix.price.model;
+
+/**
+ * 上限と下限の間をmoveずつ往復する。askが上限に着いたら下がり、bidが下限に着いたら上がる。
+ */
+class TriangleModel implements PriceModel {
+
+	private long mid;
+	private boolean down = true;
+
+	TriangleModel(ModelParameters parameters) {
+		long spread = parameters.getSpread();
+		mid = parameters.getUpperLimit() - spread + spread / 2;
+	}
+
+	@Override
+	public void fill(ModelParameters parameters, long[] mids, double[] shocks, int count) {
+		long spread = parameters.getSpread();
+		long move = parameters.getMove();
+		for (int i = 0; i < count; i++) {
+			mid += down ? -move : move;
+			long bid = mid - spread / 2;
+			if (parameters.getUpperLimit() <= bid + spread) {
+				down = true;
+			} else if (parameters.getLowerLimit() >= bid) {
+				down = false;
+			}
+			mids[i] = mid;
+			shocks[i] = 0;
+		}
+	}
+
+	@Override
+	public void moveTo(ModelParameters parameters, long mid) {
+		this.mid = Math.max(parameters.getLowerLimit(), Math.min(parameters.getUpperLimit(), mid));
+	}
+
+	@Override
+	public double[] getState() {
+		return new double[] { mid, down ? 1 : 0 };
+	}
+
+	@Override
+	public void setState(double[] state) {
+		mid = (long) state[0];
+		down = state[1] != 0;
+	}
+}
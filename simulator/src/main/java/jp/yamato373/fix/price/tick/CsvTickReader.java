@@ -0,0 +1,265 @@
+package jp.yamato373.fix.price.tick;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+import lombok.Getter;
+
+/**
+ * bid/askのCSV(.gzも可)を1行ずつ読む。固定サイズのバッファで少しずつ読むので、ファイル全体は読み込まない。
+ * 価格は文字列から直接固定小数点に変換する。
+ *
+ * <pre>
+ * 時刻,bid,ask[,bidSize,askSize]
+ * </pre>
+ *
+ * 時刻はエポックミリ秒、またはUTCの yyyy-MM-dd HH:mm:ss[.SSS] (日付と時刻の間はTでも可)。
+ * 価格は小数点以下scale桁に四捨五入し、空ならエラー。
+ * 先頭が数字でない行(ヘッダ)は読み飛ばす。
+ */
+public class CsvTickReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final int scale;
+	private final String name;
+	private boolean eof;
+	private long lineNumber;
+
+	// 現在の行。時刻はエポックナノ秒
+	@Getter
+	private long time;
+	@Getter
+	private long bidPx;
+	@Getter
+	private long askPx;
+	@Getter
+	private long bidSize;
+	@Getter
+	private long askSize;
+
+	@SuppressWarnings("resource")
+	public CsvTickReader(File file, int scale) throws IOException {
+		this.scale = scale;
+		this.name = file.getName();
+		FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		if (name.endsWith(".gz")) {
+			channel = Channels.newChannel(new GZIPInputStream(Channels.newInputStream(fileChannel), BUFFER_SIZE));
+		} else {
+			channel = fileChannel;
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * 次の行に進む
+	 *
+	 * @return 終端ならfalse
+	 */
+	public boolean next() throws IOException {
+		while (true) {
+			int end = findLineEnd();
+			if (end < 0) {
+				if (eof) {
+					if (!buffer.hasRemaining()) {
+						return false;
+					}
+					end = buffer.limit();
+				} else {
+					fill();
+					continue;
+				}
+			}
+
+			int start = buffer.position();
+			buffer.position(Math.min(end + 1, buffer.limit()));
+			lineNumber++;
+			if (end > start && isDigit(buffer.get(start)) && parse(start, end)) {
+				return true;
+			}
+		}
+	}
+
+	private int findLineEnd() {
+		for (int i = buffer.position(); i < buffer.limit(); i++) {
+			if (buffer.get(i) == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void fill() throws IOException {
+		buffer.compact();
+		if (!buffer.hasRemaining()) {
+			throw new IOException(name + ":" + (lineNumber + 1) + " line too long");
+		}
+		int read = channel.read(buffer);
+		if (read < 0) {
+			eof = true;
+		}
+		buffer.flip();
+	}
+
+	private boolean parse(int start, int end) throws IOException {
+		if (buffer.get(end - 1) == '\r') {
+			end--;
+		}
+		int comma = indexOf(',', start, end);
+		if (comma < 0) {
+			throw new IOException(name + ":" + lineNumber + " invalid line");
+		}
+		time = parseTime(start, comma);
+
+		int from = comma + 1;
+		comma = indexOf(',', from, end);
+		bidPx = parsePrice(from, comma < 0 ? end : comma);
+		if (comma < 0) {
+			throw new IOException(name + ":" + lineNumber + " ask not found");
+		}
+
+		from = comma + 1;
+		comma = indexOf(',', from, end);
+		askPx = parsePrice(from, comma < 0 ? end : comma);
+
+		bidSize = 0;
+		askSize = 0;
+		if (comma >= 0) {
+			from = comma + 1;
+			comma = indexOf(',', from, end);
+			bidSize = parseLong(from, comma < 0 ? end : comma);
+			if (comma >= 0) {
+				from = comma + 1;
+				comma = indexOf(',', from, end);
+				askSize = parseLong(from, comma < 0 ? end : comma);
+			}
+		}
+		return true;
+	}
+
+	private int indexOf(char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private long parseTime(int from, int to) throws IOException {
+		if (indexOf('-', from, to) < 0) {
+			return parseLong(from, to) * 1_000_000L;
+		}
+
+		// yyyy-MM-dd HH:mm:ss[.SSS]
+		if (to - from < 19) {
+			throw new IOException(name + ":" + lineNumber + " invalid time");
+		}
+		long year = parseLong(from, from + 4);
+		long month = parseLong(from + 5, from + 7);
+		long day = parseLong(from + 8, from + 10);
+		long hour = parseLong(from + 11, from + 13);
+		long minute = parseLong(from + 14, from + 16);
+		long second = parseLong(from + 17, from + 19);
+		long nanos = 0;
+		if (to > from + 20 && buffer.get(from + 19) == '.') {
+			int digits = 0;
+			for (int i = from + 20; i < to && digits < 9; i++, digits++) {
+				nanos = nanos * 10 + digit(i);
+			}
+			for (; digits < 9; digits++) {
+				nanos *= 10;
+			}
+		}
+		long epochDay = epochDay(year, month, day);
+		return ((epochDay * 24 + hour) * 60 + minute) * 60_000_000_000L + second * 1_000_000_000L + nanos;
+	}
+
+	/**
+	 * 1970-01-01からの日数(グレゴリオ暦)
+	 */
+	private static long epochDay(long year, long month, long day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * 小数点以下scale桁に丸める。丸めはFixedPoint.toLongと同じHALF_UP
+	 */
+	private long parsePrice(int from, int to) throws IOException {
+		boolean negative = from < to && buffer.get(from) == '-';
+		long value = 0;
+		int digits = 0;
+		int decimals = -1;
+		boolean roundUp = false;
+		for (int i = negative ? from + 1 : from; i < to; i++) {
+			if (buffer.get(i) == '.' && decimals < 0) {
+				decimals = 0;
+				continue;
+			}
+			int digit = digit(i);
+			digits++;
+			if (decimals < scale) {
+				value = value * 10 + digit;
+				if (decimals >= 0) {
+					decimals++;
+				}
+			} else if (decimals == scale) {
+				// 切り捨てる最初の桁で決まる
+				roundUp = digit >= 5;
+				decimals++;
+			}
+		}
+		if (digits == 0) {
+			throw new IOException(name + ":" + lineNumber + " price not found");
+		}
+		for (int i = Math.max(decimals, 0); i < scale; i++) {
+			value *= 10;
+		}
+		if (roundUp) {
+			value++;
+		}
+		return negative ? -value : value;
+	}
+
+	private long parseLong(int from, int to) throws IOException {
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == '.') {
+				break;
+			}
+			value = value * 10 + digit(i);
+		}
+		return value;
+	}
+
+	private int digit(int index) throws IOException {
+		byte b = buffer.get(index);
+		if (b < '0' || b > '9') {
+			throw new IOException(name + ":" + lineNumber + " invalid number");
+		}
+		return b - '0';
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
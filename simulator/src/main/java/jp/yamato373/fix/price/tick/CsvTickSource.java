@@ -0,0 +1,90 @@
+package jp.yamato373.fix.price.tick;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import jp.yamato373.fix.price.tick.TickReplayer.TickHandler;
+import lombok.Value;
+
+/**
+ * 通貨ペア毎のCSVを時刻順にマージして流す。各ファイルは{@link CsvTickReader}で少しずつ読むので、
+ * 何か月分のデータでもメモリはファイル数分のバッファしか使わない。
+ */
+public class CsvTickSource {
+
+	@Value
+	public static class CsvFile {
+		int symbolIndex;
+		File file;
+		int scale;
+	}
+
+	private final List<CsvFile> files;
+
+	public CsvTickSource(List<CsvFile> files) {
+		this.files = files;
+	}
+
+	/**
+	 * @param speed 実データの何倍速で流すか。0以下なら待たずに流す
+	 * @return 流した件数
+	 */
+	public long replay(double speed, TickHandler handler) throws IOException {
+		List<Cursor> cursors = new ArrayList<>();
+		PriorityQueue<Cursor> queue = new PriorityQueue<>(Comparator.comparingLong(cursor -> cursor.reader.getTime()));
+		try {
+			for (CsvFile file : files) {
+				Cursor cursor = new Cursor(file.getSymbolIndex(), new CsvTickReader(file.getFile(), file.getScale()));
+				cursors.add(cursor);
+				if (cursor.reader.next()) {
+					queue.add(cursor);
+				}
+			}
+
+			long count = 0;
+			long firstTime = 0;
+			long startNanoTime = System.nanoTime();
+			Cursor cursor;
+			while ((cursor = queue.poll()) != null && !Thread.currentThread().isInterrupted()) {
+				CsvTickReader reader = cursor.reader;
+				if (count == 0) {
+					firstTime = reader.getTime();
+				} else if (speed > 0) {
+					long deadline = startNanoTime + (long) ((reader.getTime() - firstTime) / speed);
+					long wait;
+					while ((wait = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+						LockSupport.parkNanos(wait);
+					}
+				}
+
+				handler.onTick(cursor.symbolIndex, reader.getBidPx(), reader.getAskPx(), reader.getBidSize(),
+						reader.getAskSize());
+				count++;
+				if (reader.next()) {
+					queue.add(cursor);
+				}
+			}
+			return count;
+		} finally {
+			for (Cursor cursor : cursors) {
+				cursor.reader.close();
+			}
+		}
+	}
+
+	private static class Cursor {
+
+		final int symbolIndex;
+		final CsvTickReader reader;
+
+		Cursor(int symbolIndex, CsvTickReader reader) {
+			this.symbolIndex = symbolIndex;
+			this.reader = reader;
+		}
+	}
+}
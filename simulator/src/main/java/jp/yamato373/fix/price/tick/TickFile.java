@@ -0,0 +1,98 @@
+package jp.yamato373.fix.price.tick;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * ティックファイルの形式。
+ *
+ * <pre>
+ * header: [int MAGIC][int VERSION][int 通貨ペア数]([int scale][short 長さ][通貨ペア名])...
+ * record: [long 時刻(エポックナノ秒)][int 通貨ペア番号][long bid][long ask][long bidSize][long askSize]
+ * </pre>
+ *
+ * 時刻が0のレコードで終端。レコードは固定長なので、ファイル全体を読み込まずに順に読める。
+ */
+public final class TickFile {
+
+	public static final int MAGIC = 0x5449434B;
+	public static final int VERSION = 1;
+	public static final int RECORD_SIZE = 8 + 4 + 8 * 4;
+
+	// マップする単位。レコード境界に揃える
+	public static final int RECORDS_PER_SEGMENT = 1 << 20;
+	public static final long SEGMENT_SIZE = (long) RECORD_SIZE * RECORDS_PER_SEGMENT;
+
+	private TickFile() {
+	}
+
+	@Value
+	public static class SymbolEntry {
+		String symbol;
+		int scale;
+	}
+
+	static ByteBuffer encodeHeader(List<SymbolEntry> symbols) {
+		int size = 12;
+		for (SymbolEntry entry : symbols) {
+			size += 6 + entry.getSymbol().getBytes(StandardCharsets.UTF_8).length;
+		}
+		ByteBuffer header = ByteBuffer.allocate(size);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(symbols.size());
+		for (SymbolEntry entry : symbols) {
+			byte[] bytes = entry.getSymbol().getBytes(StandardCharsets.UTF_8);
+			header.putInt(entry.getScale());
+			header.putShort((short) bytes.length);
+			header.put(bytes);
+		}
+		header.flip();
+		return header;
+	}
+
+	/**
+	 * channelの先頭からヘッダを読み、channelの位置をレコードの先頭に合わせる
+	 */
+	static List<SymbolEntry> readHeader(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(12);
+		readFully(channel, buffer, 0);
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("not a tick file");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported tick file version: " + version);
+		}
+		int count = buffer.getInt();
+
+		long position = 12;
+		List<SymbolEntry> symbols = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ByteBuffer entry = ByteBuffer.allocate(6);
+			readFully(channel, entry, position);
+			int scale = entry.getInt();
+			ByteBuffer name = ByteBuffer.allocate(entry.getShort());
+			readFully(channel, name, position + 6);
+			symbols.add(new SymbolEntry(new String(name.array(), StandardCharsets.UTF_8), scale));
+			position += 6 + name.capacity();
+		}
+		channel.position(position);
+		return symbols;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("unexpected end of tick file");
+			}
+		}
+		buffer.flip();
+	}
+}
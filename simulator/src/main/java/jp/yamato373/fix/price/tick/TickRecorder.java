@@ -0,0 +1,103 @@
+package jp.yamato373.fix.price.tick;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jp.yamato373.fix.price.tick.TickFile.SymbolEntry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ティックをメモリマップしたファイルに追記する。複数のレート生成スレッドから同時に呼ばれる。
+ * 書き込み位置はレコード単位でCASで確保するので、ロックを取るのはマップ領域を広げる時だけ。
+ */
+@Slf4j
+public class TickRecorder implements Closeable {
+
+	private final FileChannel channel;
+	private final long dataStart;
+	private final long baseNanos;
+	private final long startNanoTime;
+	private final AtomicLong next = new AtomicLong();
+
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+	@SuppressWarnings("resource")
+	public TickRecorder(File file, List<SymbolEntry> symbols) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null) {
+			dir.mkdirs();
+		}
+		channel = new RandomAccessFile(file, "rw").getChannel();
+		channel.truncate(0);
+		channel.write(TickFile.encodeHeader(symbols), 0);
+		dataStart = channel.size();
+
+		baseNanos = System.currentTimeMillis() * 1_000_000L;
+		startNanoTime = System.nanoTime();
+		log.info("ティック記録開始したよ！ " + file);
+	}
+
+	public void record(int symbolIndex, long bidPx, long askPx, long bidSize, long askSize) {
+		long index = next.getAndIncrement();
+		MappedByteBuffer segment;
+		try {
+			segment = segment((int) (index / TickFile.RECORDS_PER_SEGMENT));
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+			return;
+		}
+		int position = (int) (index % TickFile.RECORDS_PER_SEGMENT) * TickFile.RECORD_SIZE;
+		segment.putInt(position + 8, symbolIndex);
+		segment.putLong(position + 12, bidPx);
+		segment.putLong(position + 20, askPx);
+		segment.putLong(position + 28, bidSize);
+		segment.putLong(position + 36, askSize);
+		// 時刻は最後に書く。0のままなら読み込み側は終端とみなす
+		segment.putLong(position, baseNanos + System.nanoTime() - startNanoTime);
+	}
+
+	public long getCount() {
+		return next.get();
+	}
+
+	private MappedByteBuffer segment(int number) throws IOException {
+		MappedByteBuffer[] current = segments;
+		if (number < current.length) {
+			return current[number];
+		}
+		synchronized (this) {
+			current = segments;
+			if (number >= current.length) {
+				current = Arrays.copyOf(current, number + 1);
+				for (int i = segments.length; i <= number; i++) {
+					current[i] = channel.map(MapMode.READ_WRITE, dataStart + TickFile.SEGMENT_SIZE * i,
+							TickFile.SEGMENT_SIZE);
+				}
+				segments = current;
+			}
+			return current[number];
+		}
+	}
+
+	/**
+	 * 書き込みが全て終わってから呼ぶ
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+		segments = new MappedByteBuffer[0];
+		channel.truncate(dataStart + next.get() * TickFile.RECORD_SIZE);
+		channel.close();
+		log.info("ティック記録終了したよ！ " + next.get() + "件");
+	}
+}
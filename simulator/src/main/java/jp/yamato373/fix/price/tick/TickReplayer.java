@@ -0,0 +1,80 @@
+package jp.yamato373.fix.price.tick;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import jp.yamato373.fix.price.tick.TickFile.SymbolEntry;
+import lombok.Getter;
+
+/**
+ * {@link TickRecorder}が記録したファイルを再生する。ファイルは一定サイズずつマップして順に読むので、
+ * ファイルの大きさに関係なくヒープは使わない。
+ */
+public class TickReplayer implements Closeable {
+
+	public interface TickHandler {
+		void onTick(int symbolIndex, long bidPx, long askPx, long bidSize, long askSize);
+	}
+
+	private final FileChannel channel;
+	private final long dataStart;
+	@Getter
+	private final List<SymbolEntry> symbols;
+
+	@SuppressWarnings("resource")
+	public TickReplayer(File file) throws IOException {
+		channel = new RandomAccessFile(file, "r").getChannel();
+		symbols = TickFile.readHeader(channel);
+		dataStart = channel.position();
+	}
+
+	/**
+	 * @param speed 記録時の何倍速で再生するか。0以下なら待たずに再生する
+	 * @return 再生した件数
+	 */
+	public long replay(double speed, TickHandler handler) throws IOException {
+		long count = 0;
+		long firstTime = 0;
+		long startNanoTime = System.nanoTime();
+
+		long size = channel.size() - dataStart;
+		for (long offset = 0; offset < size; offset += TickFile.SEGMENT_SIZE) {
+			MappedByteBuffer segment = channel.map(MapMode.READ_ONLY, dataStart + offset,
+					Math.min(TickFile.SEGMENT_SIZE, size - offset));
+			for (int position = 0; position + TickFile.RECORD_SIZE <= segment.capacity();
+					position += TickFile.RECORD_SIZE) {
+				long time = segment.getLong(position);
+				if (time == 0 || Thread.currentThread().isInterrupted()) {
+					return count;
+				}
+
+				if (count == 0) {
+					firstTime = time;
+				} else if (speed > 0) {
+					long deadline = startNanoTime + (long) ((time - firstTime) / speed);
+					long wait;
+					while ((wait = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+						LockSupport.parkNanos(wait);
+					}
+				}
+
+				handler.onTick(segment.getInt(position + 8), segment.getLong(position + 12),
+						segment.getLong(position + 20), segment.getLong(position + 28), segment.getLong(position + 36));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,199 @@
+package jp.yamato373.fix.scenario;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jp.yamato373.fix.scenario.ScenarioEvent.Type;
+import jp.yamato373.fix.util.RandomSource;
+import jp.yamato373.fix.util.Settings;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.RejectLogon;
+import quickfix.SessionID;
+import quickfix.field.MsgType;
+
+/**
+ * シナリオで今効いている市場の状態。通貨ペア毎の状態と、注文とログオンのリジェクト。
+ * 変更はシナリオのスレッドだけが行い、効いているイベントから毎回作り直すので、イベントが重なっても終わった分だけ戻る。
+ * SPREAD, FREEZE, INDICATIVEは全セッションに効く(プライスは通貨ペア毎に1つなので)。
+ */
+@Component
+public class MarketConditions {
+
+	static final String DEFAULT_TEXT = "Scenario";
+
+	private final Map<String, SymbolCondition> symbols = new ConcurrentHashMap<>();
+
+	// 効いているSPREAD, FREEZE, INDICATIVE, REJECT, LOGOUT
+	private volatile List<ScenarioEvent> active = Collections.emptyList();
+	private volatile SessionRule[] rejectRules = new SessionRule[0];
+	private volatile SessionRule[] logonRules = new SessionRule[0];
+
+	private final RandomSource randomSource;
+	// セッションと注文処理スレッドの振り分けキー毎。同じキーは同じスレッドからしか使わない
+	private final ConcurrentMap<String, SplittableRandom> randoms = new ConcurrentHashMap<>();
+
+	@Autowired
+	public MarketConditions(Settings settings) {
+		randomSource = new RandomSource(settings.getSeed());
+	}
+
+	/**
+	 * @return symbolの状態。同じ通貨ペアには同じインスタンスを返す
+	 */
+	public SymbolCondition get(String symbol) {
+		SymbolCondition condition = symbols.get(symbol);
+		if (condition != null) {
+			return condition;
+		}
+		synchronized (this) {
+			return symbols.computeIfAbsent(symbol, key -> apply(new SymbolCondition(key), active));
+		}
+	}
+
+	public List<ScenarioEvent> getActive() {
+		return active;
+	}
+
+	/**
+	 * 効いているイベントを差し替えて、全通貨ペアの状態を作り直す
+	 */
+	synchronized void setActive(List<ScenarioEvent> events) {
+		active = Collections.unmodifiableList(new ArrayList<>(events));
+		symbols.values().forEach(condition -> apply(condition, active));
+		rejectRules = createRules(Type.REJECT);
+		logonRules = createRules(Type.LOGOUT);
+	}
+
+	private SessionRule[] createRules(Type type) {
+		List<SessionRule> rules = new ArrayList<>();
+		for (ScenarioEvent event : active) {
+			if (event.getType() == type) {
+				rules.add(new SessionRule(event, type == Type.REJECT));
+			}
+		}
+		return rules.toArray(new SessionRule[rules.size()]);
+	}
+
+	/**
+	 * 対象の通貨ペアの価格を飛ばす。元に戻す時はrevert
+	 */
+	void gap(ScenarioEvent event, boolean revert) {
+		for (SymbolCondition condition : symbols.values()) {
+			if (matches(event.getSymbols(), condition.getSymbol())) {
+				condition.addGap(revert ? event.getGap().negate() : event.getGap());
+			}
+		}
+	}
+
+	/**
+	 * 注文処理スレッドから呼ぶ
+	 *
+	 * @param partitionKey 呼び出す注文処理スレッドの振り分けキー
+	 * @return リジェクトするならそのText。しないならnull
+	 */
+	public String checkReject(SessionID sessionID, String symbol, String partitionKey) {
+		SessionRule[] rules = rejectRules;
+		for (SessionRule rule : rules) {
+			if (!rule.matches(sessionID, symbol)) {
+				continue;
+			}
+			if (rule.rate >= 1 || getRandom(sessionID, partitionKey).nextDouble() < rule.rate) {
+				return rule.text;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * fromAdminから呼ぶ。LOGOUTの間はログオンを受け付けない
+	 */
+	public void checkLogon(Message message, SessionID sessionID) throws FieldNotFound, RejectLogon {
+		if (!MsgType.LOGON.equals(message.getHeader().getString(MsgType.FIELD))) {
+			return;
+		}
+		for (SessionRule rule : logonRules) {
+			if (rule.matches(sessionID, null)) {
+				throw new RejectLogon(rule.text);
+			}
+		}
+	}
+
+	private SplittableRandom getRandom(SessionID sessionID, String partitionKey) {
+		String key = sessionID + "/" + partitionKey;
+		SplittableRandom random = randoms.get(key);
+		if (random == null) {
+			random = randoms.computeIfAbsent(key, k -> randomSource.create("MarketConditions/" + k));
+		}
+		return random;
+	}
+
+	private static SymbolCondition apply(SymbolCondition condition, List<ScenarioEvent> events) {
+		double spreadMultiplier = 1;
+		boolean frozen = false;
+		boolean indicative = false;
+		for (ScenarioEvent event : events) {
+			if (!matches(event.getSymbols(), condition.getSymbol())) {
+				continue;
+			}
+			switch (event.getType()) {
+			case SPREAD:
+				spreadMultiplier *= event.getMultiplier();
+				break;
+			case FREEZE:
+				frozen = true;
+				break;
+			case INDICATIVE:
+				indicative = true;
+				break;
+			default:
+				break;
+			}
+		}
+		condition.setSpreadMultiplier(spreadMultiplier);
+		condition.setFrozen(frozen);
+		condition.setIndicative(indicative);
+		return condition;
+	}
+
+	static boolean matches(List<String> targets, String value) {
+		return targets == null || targets.isEmpty() || targets.contains(value);
+	}
+
+	private static class SessionRule {
+
+		final Set<SessionID> sessions;
+		final List<String> symbols;
+		final double rate;
+		final String text;
+
+		/**
+		 * @param bySymbol 通貨ペアでも絞るか
+		 */
+		SessionRule(ScenarioEvent event, boolean bySymbol) {
+			if (event.getSessions() == null || event.getSessions().isEmpty()) {
+				sessions = null;
+			} else {
+				sessions = new HashSet<>();
+				event.getSessions().forEach(session -> sessions.add(new SessionID(session)));
+			}
+			symbols = bySymbol ? event.getSymbols() : null;
+			rate = event.getRate();
+			text = event.getText() != null ? event.getText() : DEFAULT_TEXT;
+		}
+
+		boolean matches(SessionID sessionID, String symbol) {
+			return (sessions == null || sessions.contains(sessionID)) && MarketConditions.matches(symbols, symbol);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package jp.yamato373.fix.scenario;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.yaml.snakeyaml.TypeDescription;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+
+import lombok.Data;
+
+/**
+ * 時刻を決めたイベントの並び。YAMLで書く
+ *
+ * <pre>
+ * events:
+ *   - at: 10000
+ *     duration: 3000
+ *     type: SPREAD
+ *     symbols: [USD/JPY]
+ *     multiplier: 20
+ *   - at: 15000
+ *     type: LOGOUT
+ *     sessions: ["FIX.4.4:OANDA_MD->YAMATO373"]
+ * </pre>
+ */
+@Data
+public class Scenario {
+
+	private List<ScenarioEvent> events = new ArrayList<>();
+
+	/**
+	 * @param file ファイルのパス。無ければクラスパスから探す
+	 */
+	public static Scenario load(String file) throws IOException {
+		Path path = Paths.get(file);
+		try (InputStream in = Files.exists(path) ? Files.newInputStream(path)
+				: Scenario.class.getClassLoader().getResourceAsStream(file)) {
+			if (in == null) {
+				throw new FileNotFoundException(file);
+			}
+			return load(in);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException 書式が正しくない時
+	 */
+	public static Scenario load(InputStream in) {
+		TypeDescription description = new TypeDescription(Scenario.class);
+		description.putListPropertyType("events", ScenarioEvent.class);
+		Constructor constructor = new Constructor(Scenario.class);
+		constructor.addTypeDescription(description);
+		Scenario scenario;
+		try {
+			scenario = (Scenario) new Yaml(constructor).load(in);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+		if (scenario == null) {
+			scenario = new Scenario();
+		}
+		scenario.getEvents().forEach(ScenarioEvent::validate);
+		return scenario;
+	}
+}
@@ -0,0 +1,54 @@
+package jp.yamato373.fix.scenario;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * シナリオの1イベント。atとdurationはシナリオ開始からのミリ秒。
+ * symbolsとsessionsが未設定なら全通貨ペア・全セッション。
+ */
+@Data
+public class ScenarioEvent {
+
+	private long at;
+	// 0より大きければその時間の後に元に戻す(GAPは逆に飛ばす)。0なら戻さない。
+	// LOGOUTはその間ログオンを断る。0なら断らない
+	private long duration;
+	private Type type;
+	private List<String> symbols;
+	// FIX.4.4:OANDA_MD->YAMATO373の形式
+	private List<String> sessions;
+	// SPREADのスプレッドの倍率
+	private double multiplier = 1;
+	// GAPの価格の飛び幅。マイナスなら下に飛ぶ
+	private BigDecimal gap;
+	// REJECTの注文をリジェクトする確率(0から1)
+	private double rate = 1;
+	// REJECTのText、LOGOUTの理由
+	private String text;
+
+	/**
+	 * SPREADはスプレッドを広げ、GAPは価格を飛ばし、FREEZEは配信を止め、INDICATIVEは気配値だけにする(プライス)。
+	 * REJECTは注文をリジェクトする(注文)。LOGOUTはセッションをログアウトさせる(両方)
+	 */
+	public enum Type {
+		SPREAD, GAP, FREEZE, INDICATIVE, REJECT, LOGOUT
+	}
+
+	void validate() {
+		check(type != null, "type is required");
+		check(at >= 0, type + ": at must not be negative");
+		check(duration >= 0, type + ": duration must not be negative");
+		check(type != Type.SPREAD || multiplier > 0, type + ": multiplier must be positive");
+		check(type != Type.GAP || gap != null, type + ": gap is required");
+		check(type != Type.REJECT || (rate >= 0 && rate <= 1), type + ": rate must be between 0 and 1");
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalArgumentException(message);
+		}
+	}
+}
@@ -0,0 +1,299 @@
+package jp.yamato373.fix.scenario;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import jp.yamato373.fix.cluster.Cluster;
+import jp.yamato373.fix.metrics.Metrics;
+import jp.yamato373.fix.order.OrderAcceptor;
+import jp.yamato373.fix.price.PriceAcceptor;
+import jp.yamato373.fix.price.RateGeneratWorker;
+import jp.yamato373.fix.util.Settings;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.Session;
+import quickfix.SessionID;
+
+/**
+ * シナリオを流す。全通貨ペア・全セッションのイベントを1スレッドで、開始時刻からのミリ秒で実行する。
+ * 時刻は開始時のnanoTimeからの絶対時刻で決めるので、前のイベントが遅れても後のイベントはずれない。
+ * 状態の変更は全てこのスレッドで行う。
+ */
+@Component
+@Slf4j
+public class ScenarioRunner {
+
+	// LOGOUTの後、ログアウトが済んだか見る間隔
+	private static final long LOGOUT_POLL_MILLIS = 100;
+
+	private ScheduledExecutorService exec;
+
+	private Run current;
+	// 予定時刻からの遅れの最大(マイクロ秒)
+	private volatile long maxLateMicros;
+
+	@Autowired
+	Settings settings;
+
+	@Autowired
+	MarketConditions marketConditions;
+
+	@Autowired
+	PriceAcceptor priceAcceptor;
+
+	@Autowired
+	OrderAcceptor orderAcceptor;
+
+	@Autowired
+	Metrics metrics;
+
+	@Autowired
+	Cluster cluster;
+
+	@Autowired
+	RateGeneratWorker rateGeneratWorker;
+
+	@PostConstruct
+	public void init() throws IOException {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+		// 最初のイベントがスレッドの起動で遅れないように
+		executor.prestartCoreThread();
+		exec = executor;
+		metrics.gauge("scenario.maxLateMicros", () -> maxLateMicros);
+		if (StringUtils.hasText(settings.getScenarioFile())) {
+			start(settings.getScenarioFile());
+		}
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		exec.shutdownNow();
+		exec.awaitTermination(1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 流しているシナリオがあれば止めてから、fileのシナリオを最初から流す
+	 */
+	public synchronized void start(String file) throws IOException {
+		Scenario scenario = Scenario.load(file);
+		validate(scenario);
+		cancel();
+		current = new Run(file, scenario);
+		current.start();
+	}
+
+	/**
+	 * シナリオはノード毎に流すので、クラスタでは値動きを変えるイベントを受け付けない。
+	 * GAPは生成の状態ごと動かしてチェックポイントにも残り、SPREADはそのノードのクォートだけ変わる。
+	 * GAPは価格モデルが飛ばすので、CSVと再生の通貨ペアには使えない
+	 */
+	private void validate(Scenario scenario) {
+		for (ScenarioEvent event : scenario.getEvents()) {
+			if (cluster.isEnabled()
+					&& (event.getType() == ScenarioEvent.Type.GAP || event.getType() == ScenarioEvent.Type.SPREAD)) {
+				throw new IllegalArgumentException(event.getType() + ": not allowed in cluster");
+			}
+			if (event.getType() == ScenarioEvent.Type.GAP) {
+				// 通貨ペアの指定が無ければ全通貨ペア
+				Iterable<String> symbols = event.getSymbols() == null || event.getSymbols().isEmpty()
+						? rateGeneratWorker.getSymbols() : event.getSymbols();
+				for (String symbol : symbols) {
+					if (!rateGeneratWorker.isGenerated(symbol)) {
+						throw new IllegalArgumentException("GAP: not a generated symbol: " + symbol);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 流しているシナリオを止めて、効いているイベントを全て戻す。GAPで飛ばした価格は戻さない
+	 */
+	public synchronized void cancel() {
+		if (current == null) {
+			return;
+		}
+		current.cancel();
+		current = null;
+	}
+
+	public synchronized Status getStatus() {
+		if (current == null) {
+			return new Status(null, false, 0, marketConditions.getActive());
+		}
+		return new Status(current.file, !current.finished,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - current.startNanos), marketConditions.getActive());
+	}
+
+	@Value
+	public static class Status {
+		String file;
+		boolean running;
+		// 開始からのミリ秒
+		long elapsed;
+		List<ScenarioEvent> active;
+	}
+
+	private class Run {
+
+		final String file;
+		final Scenario scenario;
+		final List<Future<?>> futures = new ArrayList<>();
+		// 以下はシナリオのスレッドだけが使う
+		final List<ScenarioEvent> active = new ArrayList<>();
+		final Set<Session> loggedOut = new HashSet<>();
+		long startNanos;
+		volatile boolean cancelled;
+		volatile boolean finished;
+
+		Run(String file, Scenario scenario) {
+			this.file = file;
+			this.scenario = scenario;
+		}
+
+		void start() {
+			startNanos = System.nanoTime();
+			long end = 0;
+			for (ScenarioEvent event : scenario.getEvents()) {
+				schedule(event.getAt(), () -> begin(event));
+				if (event.getDuration() > 0) {
+					schedule(event.getAt() + event.getDuration(), () -> end(event));
+				}
+				end = Math.max(end, event.getAt() + event.getDuration());
+			}
+			schedule(end, () -> {
+				finished = true;
+				log.info("シナリオ終わったよ！" + file);
+			});
+			log.info("シナリオ始めたよ！" + file + " events=" + scenario.getEvents().size());
+		}
+
+		void cancel() {
+			cancelled = true;
+			futures.forEach(future -> future.cancel(false));
+			// 実行中のイベントが終わってから戻す。戻し終わるまで待つ
+			Future<?> reverted = exec.submit(() -> {
+				active.clear();
+				marketConditions.setActive(active);
+				loggedOut.forEach(Session::logon);
+				loggedOut.clear();
+				log.info("シナリオ止めたよ！" + file);
+			});
+			try {
+				reverted.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+
+		private void schedule(long atMillis, Runnable task) {
+			long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(atMillis);
+			futures.add(exec.schedule(() -> {
+				if (cancelled) {
+					return;
+				}
+				long lateMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - deadline);
+				if (lateMicros > maxLateMicros) {
+					maxLateMicros = lateMicros;
+				}
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					log.error(e.getMessage(), e);
+				}
+			}, deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+		}
+
+		private void begin(ScenarioEvent event) {
+			log.info("イベント始めたよ！" + event);
+			switch (event.getType()) {
+			case GAP:
+				marketConditions.gap(event, false);
+				break;
+			case LOGOUT:
+				if (event.getDuration() > 0) {
+					active.add(event);
+					marketConditions.setActive(active);
+				}
+				logout(event);
+				break;
+			default:
+				active.add(event);
+				marketConditions.setActive(active);
+				break;
+			}
+		}
+
+		private void end(ScenarioEvent event) {
+			log.info("イベント戻したよ！" + event);
+			switch (event.getType()) {
+			case GAP:
+				marketConditions.gap(event, true);
+				break;
+			default:
+				active.remove(event);
+				marketConditions.setActive(active);
+				break;
+			}
+		}
+
+		/**
+		 * ログアウトを送る。送るのはQuickFIX/Jのタイマー(1秒毎)で、その間セッションは無効になる。
+		 * 無効のままだと次のログオンもすぐログアウトさせるので、済んだら有効に戻す。
+		 * durationの間のログオンはMarketConditionsが断る
+		 */
+		private void logout(ScenarioEvent event) {
+			String text = event.getText() != null ? event.getText() : MarketConditions.DEFAULT_TEXT;
+			forEachSession(event, session -> {
+				if (session.isLoggedOn()) {
+					session.logout(text);
+					loggedOut.add(session);
+					enableAfterLogout(session);
+				}
+			});
+		}
+
+		private void enableAfterLogout(Session session) {
+			if (cancelled || !loggedOut.contains(session)) {
+				return;
+			}
+			if (session.isLoggedOn()) {
+				exec.schedule(() -> enableAfterLogout(session), LOGOUT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				return;
+			}
+			session.logon();
+			loggedOut.remove(session);
+		}
+
+		private void forEachSession(ScenarioEvent event, Consumer<Session> action) {
+			List<SessionID> sessionIDs = new ArrayList<>(priceAcceptor.getSessions());
+			sessionIDs.addAll(orderAcceptor.getSessions());
+			for (SessionID sessionID : sessionIDs) {
+				if (MarketConditions.matches(event.getSessions(), sessionID.toString())) {
+					Session session = Session.lookupSession(sessionID);
+					if (session != null) {
+						action.accept(session);
+					}
+				}
+			}
+		}
+	}
+}
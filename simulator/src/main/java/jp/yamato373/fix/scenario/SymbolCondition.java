@@ -0,0 +1,43 @@
+package jp.yamato373.fix.scenario;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 通貨ペア毎のシナリオの状態。シナリオのスレッドが書き、レート生成・送信スレッドが読む。
+ * 読む側は通貨ペア毎に1度取得して持っておけば、ティック毎に探さなくてよい。
+ */
+@Getter
+@Setter(AccessLevel.PACKAGE)
+public class SymbolCondition {
+
+	private final String symbol;
+	// スプレッドの倍率
+	private volatile double spreadMultiplier = 1;
+	// 配信を止めているか
+	private volatile boolean frozen;
+	// 気配値だけで配信するか
+	private volatile boolean indicative;
+
+	@Getter(AccessLevel.NONE)
+	private final AtomicReference<BigDecimal> gap = new AtomicReference<>();
+
+	SymbolCondition(String symbol) {
+		this.symbol = symbol;
+	}
+
+	void addGap(BigDecimal value) {
+		gap.accumulateAndGet(value, (current, added) -> current != null ? current.add(added) : added);
+	}
+
+	/**
+	 * @return まだ反映していない価格の飛び幅。無ければnull
+	 */
+	public BigDecimal takeGap() {
+		return gap.getAndSet(null);
+	}
+}
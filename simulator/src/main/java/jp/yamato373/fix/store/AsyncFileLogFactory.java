@@ -0,0 +1,276 @@
+package jp.yamato373.fix.store;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.quickfixj.CharsetSupport;
+
+import lombok.extern.slf4j.Slf4j;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.FileLogFactory;
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+/**
+ * セッションスレッドではキューに積むだけで、書き込みは専用スレッドがまとめて行うファイルログ。
+ * キューが一杯の時は捨てて件数を数える。閉じる時は積まれている分を書いてからファイルを閉じる。
+ * セッションに紐付かないログはnameのファイルに書くので、アクセプタ毎に別の名前にする。
+ *
+ * <pre>
+ * FileLogPath=target/data/log
+ * AsyncLogQueueSize=65536
+ * </pre>
+ */
+@Slf4j
+public class AsyncFileLogFactory implements LogFactory, Closeable {
+
+	public static final String SETTING_ASYNC_LOG_QUEUE_SIZE = "AsyncLogQueueSize";
+
+	private static final int DEFAULT_QUEUE_SIZE = 65536;
+	private static final int BATCH_SIZE = 1024;
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HH:mm:ss.SSS")
+			.withZone(ZoneOffset.UTC);
+
+	private final String path;
+	private final String name;
+	private final BlockingQueue<Entry> queue;
+	private final LongAdder dropped = new LongAdder();
+	private final Thread writer;
+	private volatile boolean closed;
+
+	// 書き込みスレッドのみが使う
+	private final Set<AsyncFileLog> opened = new HashSet<>();
+
+	public AsyncFileLogFactory(SessionSettings settings, String name) throws ConfigError, FieldConvertError {
+		this.name = name;
+		path = settings.isSetting(FileLogFactory.SETTING_FILE_LOG_PATH)
+				? settings.getString(FileLogFactory.SETTING_FILE_LOG_PATH) : "target/data/log";
+		int queueSize = settings.isSetting(SETTING_ASYNC_LOG_QUEUE_SIZE)
+				? (int) settings.getLong(SETTING_ASYNC_LOG_QUEUE_SIZE) : DEFAULT_QUEUE_SIZE;
+		queue = new ArrayBlockingQueue<>(queueSize);
+
+		writer = new Thread(this::write, "AsyncFileLog-" + name);
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@Override
+	@Deprecated
+	public Log create() {
+		return new AsyncFileLog(name);
+	}
+
+	@Override
+	public Log create(SessionID sessionID) {
+		return new AsyncFileLog(sessionID.getBeginString() + "-" + sessionID.getSenderCompID() + "-"
+				+ sessionID.getTargetCompID());
+	}
+
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * 積まれている分を書き終えてから全ファイルを閉じる。以降のログは捨てる
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		writer.interrupt();
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void write() {
+		List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+		Set<AsyncFileLog> written = new HashSet<>();
+		boolean running = true;
+		while (running) {
+			try {
+				Entry first = queue.poll(1, TimeUnit.SECONDS);
+				if (first != null) {
+					batch.add(first);
+				}
+			} catch (InterruptedException e) {
+				running = false;
+			}
+			running &= !closed;
+			queue.drainTo(batch, running ? BATCH_SIZE - batch.size() : Integer.MAX_VALUE);
+			try {
+				for (Entry entry : batch) {
+					entry.log.write(entry);
+					written.add(entry.log);
+					opened.add(entry.log);
+				}
+				for (AsyncFileLog fileLog : written) {
+					fileLog.flush();
+				}
+			} catch (IOException | RuntimeException e) {
+				log.error(e.getMessage(), e);
+			} finally {
+				batch.clear();
+				written.clear();
+			}
+		}
+		for (AsyncFileLog fileLog : opened) {
+			try {
+				fileLog.close();
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+		log.info("非同期ログを閉じたよ！" + name + " 捨てた数=" + dropped.sum());
+	}
+
+	private enum Kind {
+		INCOMING, OUTGOING, EVENT, ERROR_EVENT, CLEAR
+	}
+
+	private static class Entry {
+
+		final AsyncFileLog log;
+		final Kind kind;
+		final long time;
+		final String text;
+
+		Entry(AsyncFileLog log, Kind kind, String text) {
+			this.log = log;
+			this.kind = kind;
+			this.time = System.currentTimeMillis();
+			this.text = text;
+		}
+	}
+
+	private class AsyncFileLog implements Log {
+
+		final File messagesFile;
+		final File eventFile;
+
+		// 以下は書き込みスレッドのみが使う
+		Writer messages;
+		Writer events;
+
+		AsyncFileLog(String prefix) {
+			File dir = new File(path);
+			dir.mkdirs();
+			messagesFile = new File(dir, prefix + ".messages.log");
+			eventFile = new File(dir, prefix + ".event.log");
+		}
+
+		@Override
+		public void clear() {
+			offer(Kind.CLEAR, null);
+		}
+
+		@Override
+		public void onIncoming(String message) {
+			offer(Kind.INCOMING, message);
+		}
+
+		@Override
+		public void onOutgoing(String message) {
+			offer(Kind.OUTGOING, message);
+		}
+
+		@Override
+		public void onEvent(String text) {
+			offer(Kind.EVENT, text);
+		}
+
+		@Override
+		public void onErrorEvent(String text) {
+			offer(Kind.ERROR_EVENT, text);
+		}
+
+		private void offer(Kind kind, String text) {
+			if (closed || !queue.offer(new Entry(this, kind, text))) {
+				dropped.increment();
+			}
+		}
+
+		void write(Entry entry) throws IOException {
+			switch (entry.kind) {
+			case CLEAR:
+				close();
+				messages = open(messagesFile, false);
+				events = open(eventFile, false);
+				return;
+			case INCOMING:
+			case OUTGOING:
+				if (messages == null) {
+					messages = open(messagesFile, true);
+				}
+				writeLine(messages, entry.time, entry.text);
+				return;
+			case ERROR_EVENT:
+				if (events == null) {
+					events = open(eventFile, true);
+				}
+				writeLine(events, entry.time, "ERROR: " + entry.text);
+				return;
+			default:
+				if (events == null) {
+					events = open(eventFile, true);
+				}
+				writeLine(events, entry.time, entry.text);
+			}
+		}
+
+		void flush() throws IOException {
+			if (messages != null) {
+				messages.flush();
+			}
+			if (events != null) {
+				events.flush();
+			}
+		}
+
+		void close() throws IOException {
+			if (messages != null) {
+				messages.close();
+				messages = null;
+			}
+			if (events != null) {
+				events.close();
+				events = null;
+			}
+		}
+
+		private Writer open(File file, boolean append) throws IOException {
+			return new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(file, append), CharsetSupport.getCharsetInstance()));
+		}
+
+		private void writeLine(Writer writer, long time, String text) throws IOException {
+			TIMESTAMP.formatTo(Instant.ofEpochMilli(time), writer);
+			writer.write(": ");
+			writer.write(text);
+			writer.write('\n');
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package jp.yamato373.fix.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+
+import org.quickfixj.CharsetSupport;
+
+import quickfix.MessageStore;
+
+/**
+ * メモリマップしたジャーナルファイルに送信メッセージを追記するメッセージストア。
+ * 書き込みはマップ領域へのコピーだけでfsyncはしないので、セッションスレッドがディスクを待つことはない。
+ * 再起動時はジャーナルを読み直して再送用の索引を作り直す。
+ *
+ * <pre>
+ * header : [int マジック][int 次の送信SeqNum][int 次の受信SeqNum][long 作成時刻]
+ * journal: [int SeqNum][int 長さ][メッセージ]... SeqNum=0で終端
+ * </pre>
+ * マジックが合わないヘッダは他の形式のファイルなので、上書きせずに例外にする。
+ */
+public class MappedFileStore implements MessageStore {
+
+	// "MMFS"
+	static final int MAGIC = 0x4d4d4653;
+
+	private static final int HEADER_SIZE = 20;
+	private static final int SENDER = 4;
+	private static final int TARGET = 8;
+	private static final int CREATION_TIME = 12;
+	private static final int RECORD_HEADER_SIZE = 8;
+	private static final int TERMINATOR_SIZE = 4;
+
+	private final Charset charset = CharsetSupport.getCharsetInstance();
+
+	private final FileChannel headerChannel;
+	private final FileChannel journalChannel;
+	private final MappedByteBuffer header;
+	private MappedByteBuffer journal;
+
+	// SeqNum毎のジャーナル内位置。-1は無し
+	private int[] positions = new int[1024];
+	private int position;
+
+	@SuppressWarnings("resource")
+	public MappedFileStore(File headerFile, File journalFile, int initialSize) throws IOException {
+		boolean newFile = !headerFile.exists() || headerFile.length() == 0;
+		if (!newFile && !hasMagic(headerFile)) {
+			throw new IOException("Not a mapped store header: " + headerFile);
+		}
+		headerChannel = new RandomAccessFile(headerFile, "rw").getChannel();
+		header = headerChannel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+		journalChannel = new RandomAccessFile(journalFile, "rw").getChannel();
+		journal = journalChannel.map(MapMode.READ_WRITE, 0, Math.max(initialSize, journalChannel.size()));
+
+		if (newFile) {
+			reset();
+		} else {
+			refresh();
+		}
+	}
+
+	private static boolean hasMagic(File headerFile) throws IOException {
+		if (headerFile.length() < HEADER_SIZE) {
+			return false;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(headerFile, "r")) {
+			return file.readInt() == MAGIC;
+		}
+	}
+
+	@Override
+	public synchronized boolean set(int sequence, String message) throws IOException {
+		byte[] bytes = message.getBytes(charset);
+		ensureCapacity(RECORD_HEADER_SIZE + bytes.length + TERMINATOR_SIZE);
+
+		journal.putInt(position, sequence);
+		journal.putInt(position + 4, bytes.length);
+		journal.position(position + RECORD_HEADER_SIZE);
+		journal.put(bytes);
+		index(sequence, position);
+		position += RECORD_HEADER_SIZE + bytes.length;
+		journal.putInt(position, 0);
+		return true;
+	}
+
+	@Override
+	public synchronized void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+		for (int sequence = startSequence; sequence <= endSequence && sequence < positions.length; sequence++) {
+			int recordPosition = positions[sequence];
+			if (recordPosition < 0) {
+				continue;
+			}
+			byte[] bytes = new byte[journal.getInt(recordPosition + 4)];
+			journal.position(recordPosition + RECORD_HEADER_SIZE);
+			journal.get(bytes);
+			messages.add(new String(bytes, charset));
+		}
+	}
+
+	@Override
+	public synchronized int getNextSenderMsgSeqNum() throws IOException {
+		return header.getInt(SENDER);
+	}
+
+	@Override
+	public synchronized int getNextTargetMsgSeqNum() throws IOException {
+		return header.getInt(TARGET);
+	}
+
+	@Override
+	public synchronized void setNextSenderMsgSeqNum(int next) throws IOException {
+		header.putInt(SENDER, next);
+	}
+
+	@Override
+	public synchronized void setNextTargetMsgSeqNum(int next) throws IOException {
+		header.putInt(TARGET, next);
+	}
+
+	@Override
+	public synchronized void incrNextSenderMsgSeqNum() throws IOException {
+		header.putInt(SENDER, header.getInt(SENDER) + 1);
+	}
+
+	@Override
+	public synchronized void incrNextTargetMsgSeqNum() throws IOException {
+		header.putInt(TARGET, header.getInt(TARGET) + 1);
+	}
+
+	@Override
+	public synchronized Date getCreationTime() throws IOException {
+		return new Date(header.getLong(CREATION_TIME));
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		header.putInt(0, MAGIC);
+		header.putInt(SENDER, 1);
+		header.putInt(TARGET, 1);
+		header.putLong(CREATION_TIME, System.currentTimeMillis());
+		Arrays.fill(positions, -1);
+		position = 0;
+		journal.putInt(0, 0);
+	}
+
+	@Override
+	public synchronized void refresh() throws IOException {
+		Arrays.fill(positions, -1);
+		position = 0;
+		while (position + RECORD_HEADER_SIZE <= journal.capacity()) {
+			int sequence = journal.getInt(position);
+			if (sequence <= 0) {
+				break;
+			}
+			index(sequence, position);
+			position += RECORD_HEADER_SIZE + journal.getInt(position + 4);
+		}
+	}
+
+	private void index(int sequence, int recordPosition) {
+		if (sequence >= positions.length) {
+			int length = positions.length;
+			positions = Arrays.copyOf(positions, Math.max(length * 2, sequence + 1));
+			Arrays.fill(positions, length, positions.length, -1);
+		}
+		positions[sequence] = recordPosition;
+	}
+
+	private void ensureCapacity(int size) throws IOException {
+		long required = (long) position + size;
+		if (required <= journal.capacity()) {
+			return;
+		}
+		long capacity = journal.capacity();
+		while (capacity < required) {
+			capacity *= 2;
+		}
+		if (capacity > Integer.MAX_VALUE) {
+			throw new IOException("journal is full: " + required + " bytes");
+		}
+		journal = journalChannel.map(MapMode.READ_WRITE, 0, capacity);
+	}
+}
@@ -0,0 +1,55 @@
+package jp.yamato373.fix.store;
+
+import java.io.File;
+import java.io.IOException;
+
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.FileStoreFactory;
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.RuntimeError;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+/**
+ * {@link MappedFileStore}を作る。FileStoreと同じディレクトリに置いても重ならないように拡張子を変えてある。
+ *
+ * <pre>
+ * FileStorePath=target/data/fix
+ * MappedStoreInitialSize=67108864
+ * </pre>
+ */
+public class MappedFileStoreFactory implements MessageStoreFactory {
+
+	public static final String SETTING_MAPPED_STORE_INITIAL_SIZE = "MappedStoreInitialSize";
+
+	static final String HEADER_SUFFIX = ".mmheader";
+	static final String JOURNAL_SUFFIX = ".mmjournal";
+
+	private static final int DEFAULT_INITIAL_SIZE = 64 * 1024 * 1024;
+
+	private final String path;
+	private final int initialSize;
+
+	public MappedFileStoreFactory(SessionSettings settings) throws ConfigError, FieldConvertError {
+		path = settings.isSetting(FileStoreFactory.SETTING_FILE_STORE_PATH)
+				? settings.getString(FileStoreFactory.SETTING_FILE_STORE_PATH) : "target/data/fix";
+		initialSize = settings.isSetting(SETTING_MAPPED_STORE_INITIAL_SIZE)
+				? (int) settings.getLong(SETTING_MAPPED_STORE_INITIAL_SIZE) : DEFAULT_INITIAL_SIZE;
+	}
+
+	@Override
+	public MessageStore create(SessionID sessionID) {
+		File dir = new File(path);
+		dir.mkdirs();
+		String prefix = sessionID.getBeginString() + "-" + sessionID.getSenderCompID() + "-"
+				+ sessionID.getTargetCompID();
+		try {
+			return new MappedFileStore(new File(dir, prefix + HEADER_SUFFIX), new File(dir, prefix + JOURNAL_SUFFIX),
+					initialSize);
+		} catch (IOException e) {
+			throw new RuntimeError(e);
+		}
+	}
+}
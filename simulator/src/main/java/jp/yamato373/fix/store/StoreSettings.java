@@ -0,0 +1,111 @@
+package jp.yamato373.fix.store;
+
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.FileLogFactory;
+import quickfix.FileStoreFactory;
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.MessageStoreFactory;
+import quickfix.SLF4JLogFactory;
+import quickfix.ScreenLogFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+/**
+ * .cfgの設定からメッセージストアとログの実装を選ぶ。
+ *
+ * <pre>
+ * MessageStoreType=FILE|MEMORY|MMAP
+ * LogType=SCREEN|FILE|ASYNC_FILE|SLF4J|NONE
+ * </pre>
+ */
+public final class StoreSettings {
+
+	public static final String SETTING_MESSAGE_STORE_TYPE = "MessageStoreType";
+	public static final String SETTING_LOG_TYPE = "LogType";
+
+	public enum MessageStoreType {
+		FILE, MEMORY, MMAP
+	}
+
+	public enum LogType {
+		SCREEN, FILE, ASYNC_FILE, SLF4J, NONE
+	}
+
+	private StoreSettings() {
+	}
+
+	public static MessageStoreFactory createMessageStoreFactory(SessionSettings settings)
+			throws ConfigError, FieldConvertError {
+		MessageStoreType type = MessageStoreType.FILE;
+		if (settings.isSetting(SETTING_MESSAGE_STORE_TYPE)) {
+			type = MessageStoreType.valueOf(settings.getString(SETTING_MESSAGE_STORE_TYPE).trim());
+		}
+
+		switch (type) {
+		case MEMORY:
+			return new MemoryStoreFactory();
+		case MMAP:
+			return new MappedFileStoreFactory(settings);
+		default:
+			return new FileStoreFactory(settings);
+		}
+	}
+
+	/**
+	 * @param name セッションに紐付かないログの名前。アクセプタ毎に変える
+	 */
+	public static LogFactory createLogFactory(SessionSettings settings, String name)
+			throws ConfigError, FieldConvertError {
+		LogType type = LogType.SCREEN;
+		if (settings.isSetting(SETTING_LOG_TYPE)) {
+			type = LogType.valueOf(settings.getString(SETTING_LOG_TYPE).trim());
+		}
+
+		switch (type) {
+		case FILE:
+			return new FileLogFactory(settings);
+		case ASYNC_FILE:
+			return new AsyncFileLogFactory(settings, name);
+		case SLF4J:
+			return new SLF4JLogFactory(settings);
+		case NONE:
+			return new NullLogFactory();
+		default:
+			return new ScreenLogFactory(true, true, true);
+		}
+	}
+
+	private static class NullLogFactory implements LogFactory {
+
+		private static final Log NULL_LOG = new Log() {
+			public void clear() {
+			}
+
+			public void onIncoming(String message) {
+			}
+
+			public void onOutgoing(String message) {
+			}
+
+			public void onEvent(String text) {
+			}
+
+			public void onErrorEvent(String text) {
+			}
+		};
+
+		@Override
+		@Deprecated
+		public Log create() {
+			return NULL_LOG;
+		}
+
+		@Override
+		public Log create(SessionID sessionID) {
+			return NULL_LOG;
+		}
+	}
+}
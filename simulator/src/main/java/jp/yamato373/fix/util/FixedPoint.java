@@ -0,0 +1,72 @@
+package jp.yamato373.fix.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 価格を小数点以下scale桁の整数(long)で扱うためのユーティリティ。
+ * BigDecimalとの変換は設定値の入出力時のみで、ティック処理ではlongのまま計算する。
+ */
+public final class FixedPoint {
+
+	public static final int MAX_SCALE = 9;
+
+	private static final double[] POW10 = new double[MAX_SCALE + 1];
+
+	static {
+		long pow = 1;
+		for (int i = 0; i <= MAX_SCALE; i++) {
+			POW10[i] = pow;
+			pow *= 10;
+		}
+	}
+
+	private FixedPoint() {
+	}
+
+	public static long toLong(BigDecimal value, int scale) {
+		checkScale(scale);
+		return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValue();
+	}
+
+	public static BigDecimal toBigDecimal(long value, int scale) {
+		checkScale(scale);
+		return BigDecimal.valueOf(value, scale);
+	}
+
+	public static double toDouble(long value, int scale) {
+		return value / POW10[scale];
+	}
+
+	/**
+	 * valueを10進の文字列でsbに足す。末尾の0と小数点は付けないので、{@link #toDouble}をFIXのフィールドにしたのと同じになる
+	 */
+	public static StringBuilder append(StringBuilder sb, long value, int scale) {
+		if (value < 0) {
+			sb.append('-');
+			value = -value;
+		}
+		long pow = (long) POW10[scale];
+		sb.append(value / pow);
+		long fraction = value % pow;
+		if (fraction == 0) {
+			return sb;
+		}
+		int digits = scale;
+		while (fraction % 10 == 0) {
+			fraction /= 10;
+			digits--;
+		}
+		sb.append('.');
+		for (long rest = (long) POW10[digits - 1]; rest > fraction; rest /= 10) {
+			sb.append('0');
+		}
+		return sb.append(fraction);
+	}
+
+	private static void checkScale(int scale) {
+		if (scale < 0 || scale > MAX_SCALE) {
+			throw new IllegalArgumentException("scale must be between 0 and " + MAX_SCALE + ": " + scale);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package jp.yamato373.fix.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * SplittableRandomから標準正規乱数を作る(Marsagliaの極座標法)。
+ */
+public final class Gaussian {
+
+	private Gaussian() {
+	}
+
+	public static double next(SplittableRandom random) {
+		double u;
+		double v;
+		double s;
+		do {
+			u = 2 * random.nextDouble() - 1;
+			v = 2 * random.nextDouble() - 1;
+			s = u * u + v * v;
+		} while (s >= 1 || s == 0);
+		return u * Math.sqrt(-2 * Math.log(s) / s);
+	}
+
+	/**
+	 * 1回の試行で2つ作れるので、まとめて作る方が速い
+	 */
+	public static void fill(SplittableRandom random, double[] normals, int count) {
+		int i = 0;
+		while (i < count) {
+			double u = 2 * random.nextDouble() - 1;
+			double v = 2 * random.nextDouble() - 1;
+			double s = u * u + v * v;
+			if (s >= 1 || s == 0) {
+				continue;
+			}
+			double multiplier = Math.sqrt(-2 * Math.log(s) / s);
+			normals[i++] = u * multiplier;
+			if (i < count) {
+				normals[i++] = v * multiplier;
+			}
+		}
+	}
+}
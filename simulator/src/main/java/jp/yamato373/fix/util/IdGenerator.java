@@ -0,0 +1,77 @@
+package jp.yamato373.fix.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 時刻(ミリ秒)・ノード番号・連番を詰めた64bitのID。スレッドセーフでロックしない。
+ *
+ * <pre>
+ * | 41bit 2017-01-01からのミリ秒 | 10bit ノード番号 | 12bit 連番 |
+ * </pre>
+ *
+ * 時刻が入るので再起動しても重複せず、ノード番号を変えれば複数のシミュレータでも重複しない。
+ * 1ミリ秒に4096個を超えたら次のミリ秒の分を先に使う(時計が戻った時も同じ)。先に使うのは時計の1秒先までで、
+ * 使い切ったら時計が進むまで待つ。起動時はそこまで使い済みとして始めるので、前回先に使った分とも重複しない。
+ */
+public class IdGenerator {
+
+	public static final int NODE_BITS = 10;
+	public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+	private static final int SEQUENCE_BITS = 12;
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+	private static final long EPOCH = 1483228800000L;
+	// 時計より先に使ってよい時間
+	static final long MAX_BORROW_MILLIS = 1000;
+
+	// 文字列にする時の作業用。IDは最大19桁
+	private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[19]);
+
+	private final long node;
+	private final LongSupplier clock;
+	// 最後に使った(時刻 << SEQUENCE_BITS) | 連番
+	private final AtomicLong state;
+
+	public IdGenerator(int nodeId) {
+		this(nodeId, System::currentTimeMillis);
+	}
+
+	IdGenerator(int nodeId, LongSupplier clock) {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("nodeId must be 0-" + MAX_NODE_ID + ": " + nodeId);
+		}
+		node = (long) nodeId << SEQUENCE_BITS;
+		this.clock = clock;
+		state = new AtomicLong((clock.getAsLong() - EPOCH + MAX_BORROW_MILLIS) << SEQUENCE_BITS);
+	}
+
+	public long next() {
+		while (true) {
+			long millis = clock.getAsLong() - EPOCH;
+			long current = state.get();
+			long next = Math.max(current + 1, millis << SEQUENCE_BITS);
+			if ((next >>> SEQUENCE_BITS) - millis > MAX_BORROW_MILLIS) {
+				Thread.yield();
+				continue;
+			}
+			if (state.compareAndSet(current, next)) {
+				return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node | (next & SEQUENCE_MASK);
+			}
+		}
+	}
+
+	/**
+	 * {@link #next()}を10進の文字列で返す。Long.toStringと違い、作るのは結果のStringだけ
+	 */
+	public String nextString() {
+		char[] buffer = BUFFERS.get();
+		long value = next();
+		int position = buffer.length;
+		do {
+			buffer[--position] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+		return new String(buffer, position, buffer.length - position);
+	}
+}
@@ -0,0 +1,80 @@
+package jp.yamato373.fix.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.Getter;
+
+/**
+ * 締め切り時刻で一定間隔を刻む。ミリ秒未満の間隔用で、1スレッドから使う。
+ * 締め切りは前回の締め切り+間隔なので、遅れた分は待たずに続けて返して取り戻す。
+ * catchUpLimitNanosより遅れたら取り戻すのを諦め、今から数え直す。
+ *
+ * <ul>
+ * <li>SPIN: 空回り。一番正確だがCPUを1つ使い切る</li>
+ * <li>YIELD: Thread.yield()しながら待つ</li>
+ * <li>PARK: parkNanosで寝る。寝過ごす分、最後の少しだけ空回りする</li>
+ * </ul>
+ */
+public class Pacer {
+
+	public enum WaitStrategy {
+		SPIN, YIELD, PARK
+	}
+
+	// parkNanosは数十マイクロ秒寝過ごすので、残りがこれ以下なら空回りする
+	private static final long PARK_SPIN_NANOS = 50000;
+
+	private final WaitStrategy waitStrategy;
+	private final long catchUpLimitNanos;
+
+	@Getter
+	private long intervalNanos;
+	private long deadline;
+
+	// 取り戻すのを諦めた回数
+	@Getter
+	private volatile long resets;
+
+	public Pacer(WaitStrategy waitStrategy, long intervalNanos, long catchUpLimitNanos) {
+		this.waitStrategy = waitStrategy;
+		this.intervalNanos = intervalNanos;
+		this.catchUpLimitNanos = catchUpLimitNanos;
+		deadline = System.nanoTime();
+	}
+
+	/**
+	 * 次の締め切りから間隔を変える
+	 */
+	public void setIntervalNanos(long intervalNanos) {
+		this.intervalNanos = Math.max(1, intervalNanos);
+	}
+
+	/**
+	 * 次の締め切りまで待つ。割り込まれたらすぐに返る
+	 */
+	public void awaitNext() {
+		deadline += intervalNanos;
+		long now = System.nanoTime();
+		if (now - deadline > catchUpLimitNanos) {
+			deadline = now;
+			resets++;
+			return;
+		}
+
+		long wait;
+		while ((wait = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+			switch (waitStrategy) {
+			case YIELD:
+				Thread.yield();
+				break;
+			case PARK:
+				if (wait > PARK_SPIN_NANOS) {
+					LockSupport.parkNanos(wait - PARK_SPIN_NANOS);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+	}
+}
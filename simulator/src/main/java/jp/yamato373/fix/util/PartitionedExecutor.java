@@ -0,0 +1,113 @@
+package jp.yamato373.fix.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * キー毎に決まったスレッドでタスクを実行する。同じキーのタスクは投入順に実行され、違うキーは並列に動く。
+ * キューは有界で、一杯なら{@link #execute(Object, Runnable)}がfalseを返す(待たない)。
+ */
+@Slf4j
+public class PartitionedExecutor {
+
+	@Value
+	public static class Stats {
+		int partitions;
+		int queueSize;
+		int[] queueDepths;
+		int[] maxQueueDepths;
+		long executed;
+		long rejected;
+	}
+
+	private final Partition[] partitions;
+	private final int queueSize;
+	private final LongAdder executed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * @param partitions 0以下ならCPUコア数
+	 */
+	public PartitionedExecutor(String name, int partitions, int queueSize) {
+		int size = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+		this.partitions = new Partition[size];
+		this.queueSize = queueSize;
+		for (int i = 0; i < size; i++) {
+			this.partitions[i] = new Partition(name + "-" + i, queueSize);
+			this.partitions[i].start();
+		}
+	}
+
+	/**
+	 * @return キューが一杯で受け付けられなければfalse
+	 */
+	public boolean execute(Object key, Runnable task) {
+		int h = key != null ? key.hashCode() : 0;
+		h ^= h >>> 16;
+		Partition partition = partitions[(h & Integer.MAX_VALUE) % partitions.length];
+		if (!partition.queue.offer(task)) {
+			rejected.increment();
+			return false;
+		}
+		int depth = partition.queue.size();
+		if (depth > partition.maxQueueDepth) {
+			partition.maxQueueDepth = depth;
+		}
+		return true;
+	}
+
+	public Stats getStats() {
+		int[] queueDepths = new int[partitions.length];
+		int[] maxQueueDepths = new int[partitions.length];
+		for (int i = 0; i < partitions.length; i++) {
+			queueDepths[i] = partitions[i].queue.size();
+			maxQueueDepths[i] = partitions[i].maxQueueDepth;
+		}
+		return new Stats(partitions.length, queueSize, queueDepths, maxQueueDepths, executed.sum(), rejected.sum());
+	}
+
+	public void shutdown() throws InterruptedException {
+		for (Partition partition : partitions) {
+			partition.interrupt();
+		}
+		for (Partition partition : partitions) {
+			partition.join(TimeUnit.SECONDS.toMillis(1));
+		}
+	}
+
+	private class Partition extends Thread {
+
+		final BlockingQueue<Runnable> queue;
+		// 目安なので同期しない
+		volatile int maxQueueDepth;
+
+		Partition(String name, int queueSize) {
+			super(name);
+			setDaemon(true);
+			queue = new ArrayBlockingQueue<>(queueSize);
+		}
+
+		@Override
+		public void run() {
+			while (!isInterrupted()) {
+				Runnable task;
+				try {
+					task = queue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					log.error(e.getMessage(), e);
+				}
+				executed.increment();
+			}
+		}
+	}
+}
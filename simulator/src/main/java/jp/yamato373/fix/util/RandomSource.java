@@ -0,0 +1,53 @@
+package jp.yamato373.fix.util;
+
+import java.util.SplittableRandom;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * シードから用途(キー)毎に独立した乱数を作る。セッションやスレッド毎に別の乱数を使えば取り合いにならず、
+ * キーが同じなら何度でも同じ系列になるので、スレッドの数や順番によらず再現できる。
+ * シードが0なら起動毎に決めてログに出す。
+ */
+@Slf4j
+public class RandomSource {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	@Getter
+	private final long seed;
+
+	public RandomSource(long seed) {
+		this.seed = seed != 0 ? seed : new SplittableRandom().nextLong();
+		log.info("乱数のシードは" + this.seed + "だよ！");
+	}
+
+	/**
+	 * @return keyの乱数。1スレッドから使う
+	 */
+	public SplittableRandom create(String key) {
+		return new SplittableRandom(mix(seed + GOLDEN_GAMMA * key.hashCode()));
+	}
+
+	/**
+	 * @return keyのindex番目の乱数。keyとindexが同じなら何度でも同じ系列
+	 */
+	public SplittableRandom create(String key, long index) {
+		return new SplittableRandom(seed(key, index));
+	}
+
+	/**
+	 * @return {@link #create(String, long)}の乱数のシード。{@link SplitMix64}に入れ直して使い回す用
+	 */
+	public long seed(String key, long index) {
+		return mix(mix(seed + GOLDEN_GAMMA * key.hashCode()) + GOLDEN_GAMMA * index);
+	}
+
+	// SplitMix64の仕上げ。近いシードでも違う系列にする
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,145 @@
+package jp.yamato373.fix.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * 起動時の設定(application.yml)。実行中に変えられる値は{@link SettingsStore}の版から読む。
+ */
+@Component
+@ConfigurationProperties(prefix = "settings")
+@Data
+public class Settings {
+	private String cp;
+	private String symbol;
+	private int sendInterval;
+	private String indicativeText;
+	private BigDecimal upperLimit;
+	private BigDecimal lowerLimit;
+	private BigDecimal spread;
+	private BigDecimal move;
+	// 価格モデル。以下の率は年率
+	private Model model = Model.TRIANGLE;
+	private double drift;
+	private double volatility = 0.1;
+	// OUの平均回帰の速さ。平均は上限と下限の中間
+	private double meanReversion = 50;
+	// JUMPの1年あたりのジャンプ回数と、ジャンプの大きさ(対数)の平均と標準偏差
+	private double jumpIntensity = 1000;
+	private double jumpMean;
+	private double jumpVolatility = 0.002;
+	// 変動の大きさ(標準偏差単位)1あたりにスプレッドを広げる割合と、広げる上限(倍)
+	private double spreadWidening;
+	private double maxSpreadMultiplier = 10;
+	// 何ティック分まとめて生成するか
+	private int tickBatchSize = 256;
+	// プライス側の乱数(レート生成、気配値・数量変更)のシード。0なら起動毎に変わる
+	private long seed;
+	private long rateGenerateInterval;
+	// レート生成の待ち方。SCHEDULEDは通貨ペア毎にrateGenerateInterval(ミリ秒)毎に生成する。
+	// SPIN, YIELD, PARKは1スレッドで全通貨ペアを順番に生成し、ティック毎に配信する
+	private Pacing pacing = Pacing.SCHEDULED;
+	// SPIN, YIELD, PARKの時の全通貨ペア合計の毎秒ティック数。0以下ならrateGenerateIntervalから決める
+	private long ticksPerSecond;
+	// 遅れを取り戻す上限(ミリ秒)。これより遅れたら今から数え直す
+	private long pacingCatchUpLimit = 1000;
+	// 価格の小数点以下桁数
+	private int scale = 3;
+	private long size = 1000000;
+	// 板の段数と段の間隔。間隔が未設定なら価格の最小単位
+	private int depth = 1;
+	private BigDecimal depthStep;
+	// 0以下ならCPUコア数
+	private int generatorThreads;
+	private List<SymbolSettings> symbols = new ArrayList<>();
+	// 生成したティックを記録するファイル。空なら記録しない
+	private String recordFile;
+	// 再生するティックファイル。指定するとレート生成の代わりに再生する
+	private String replayFile;
+	// 再生速度(倍)。CSVにも使う。0以下なら待たずに再生する
+	private double replaySpeed = 1;
+	private boolean replayLoop;
+	// メトリクスをログに出す間隔(秒)。0以下なら出さない
+	private long metricsLogInterval = 60;
+	// 起動時に流すシナリオ(YAML)。空なら流さない
+	private String scenarioFile;
+	// 複数ノードで動かす時の設定。nodesが空なら1台で動かす
+	private ClusterSettings cluster = new ClusterSettings();
+
+	/**
+	 * TRIANGLEは上限と下限の間を往復、GBMは幾何ブラウン運動、OUは平均回帰、JUMPはジャンプ拡散
+	 */
+	public enum Model {
+		TRIANGLE, GBM, OU, JUMP
+	}
+
+	public enum Pacing {
+		SCHEDULED, SPIN, YIELD, PARK
+	}
+
+	/**
+	 * 通貨ペア毎の設定。未設定の項目は全体の設定値を使う。
+	 */
+	@Data
+	public static class SymbolSettings {
+		private String symbol;
+		private BigDecimal upperLimit;
+		private BigDecimal lowerLimit;
+		private BigDecimal spread;
+		private BigDecimal move;
+		private Integer scale;
+		private Integer depth;
+		private BigDecimal depthStep;
+		private Model model;
+		private Double drift;
+		private Double volatility;
+		private Double meanReversion;
+		private Double jumpIntensity;
+		private Double jumpMean;
+		private Double jumpVolatility;
+		private Double spreadWidening;
+		// bid/askのCSV(.gzも可)。指定するとレート生成の代わりにCSVを流す
+		private String csvFile;
+	}
+
+	/**
+	 * クラスタの設定。全ノードで同じにして、nodeIdだけ変える(--settings.cluster.nodeId=1)
+	 */
+	@Data
+	public static class ClusterSettings {
+		// このノードのnodesの添字
+		private int nodeId;
+		// 全ノード共通の時刻の起点(2026-10-18T00:00:00Z)。レートはここから生成し直して揃える
+		private String epoch;
+		// このティック数毎に乱数を作り直してチェックポイントを書く。起動時は最後のチェックポイントから生成し直す
+		private long checkpointTicks = 36000;
+		// 全ノードで共有するディレクトリにすること。ノード毎だと新しいノードはepochから生成し直すことになる
+		private String checkpointDir = "target/data/cluster";
+		// 起動時に生成し直すティック数の上限。超えるなら起動しない。0ならcheckpointTicks
+		private long maxCatchUpTicks;
+		private List<NodeSettings> nodes = new ArrayList<>();
+		// セッションの割り当て。無いセッションはセッションIDのハッシュで決める
+		private List<Assignment> assignments = new ArrayList<>();
+	}
+
+	@Data
+	public static class NodeSettings {
+		private String host;
+		// 0ならprice.cfg, order.cfgのポート
+		private int pricePort;
+		private int orderPort;
+	}
+
+	@Data
+	public static class Assignment {
+		// FIX.4.4:OANDA_MD->YAMATO373の形式
+		private String session;
+		private int node;
+	}
+}
@@ -0,0 +1,119 @@
+package jp.yamato373.fix.util;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+
+import lombok.Builder;
+import lombok.Value;
+import quickfix.SessionID;
+
+/**
+ * 実行中に変えられる設定の版。作った後は変更しない。変更は{@link SettingsStore}が新しい版を作って差し替える。
+ * 読む側は版が変わった時(参照が変わった時)だけ値を読み直す。
+ */
+@Value
+@Builder(toBuilder = true)
+public class SettingsSnapshot {
+
+	long version;
+	int sendInterval;
+	long rateGenerateInterval;
+	long ticksPerSecond;
+	long size;
+	double maxSpreadMultiplier;
+	String indicativeText;
+	// 通貨ペア共通の値。全項目が入っている(depthStepは未設定ならnull)
+	SymbolValues defaults;
+	// 通貨ペア毎の上書き。設定した項目だけ入っている
+	Map<String, SymbolValues> symbols;
+	// セッション毎の上書き。JSONではSessionIDは文字列になる
+	Map<SessionID, SessionValues> sessions;
+
+	/**
+	 * @return 通貨ペアの値。上書きが無い項目は共通の値
+	 */
+	public SymbolValues getSymbol(String symbol) {
+		return defaults.merge(symbols.get(symbol));
+	}
+
+	/**
+	 * @return セッションの上書き。無ければnull
+	 */
+	public SessionValues getSession(SessionID sessionID) {
+		return sessions.get(sessionID);
+	}
+
+	/**
+	 * 通貨ペア毎に変えられる値。nullは未設定
+	 */
+	@Value
+	@Builder(toBuilder = true)
+	@JsonDeserialize(builder = SymbolValues.SymbolValuesBuilder.class)
+	public static class SymbolValues {
+		BigDecimal upperLimit;
+		BigDecimal lowerLimit;
+		BigDecimal spread;
+		BigDecimal move;
+		Double drift;
+		Double volatility;
+		Double meanReversion;
+		Double jumpIntensity;
+		Double jumpMean;
+		Double jumpVolatility;
+		Double spreadWidening;
+		BigDecimal depthStep;
+
+		/**
+		 * @return overrideで設定されている項目をoverrideの値にしたもの
+		 */
+		public SymbolValues merge(SymbolValues override) {
+			if (override == null) {
+				return this;
+			}
+			return new SymbolValues(
+					override.upperLimit != null ? override.upperLimit : upperLimit,
+					override.lowerLimit != null ? override.lowerLimit : lowerLimit,
+					override.spread != null ? override.spread : spread,
+					override.move != null ? override.move : move,
+					override.drift != null ? override.drift : drift,
+					override.volatility != null ? override.volatility : volatility,
+					override.meanReversion != null ? override.meanReversion : meanReversion,
+					override.jumpIntensity != null ? override.jumpIntensity : jumpIntensity,
+					override.jumpMean != null ? override.jumpMean : jumpMean,
+					override.jumpVolatility != null ? override.jumpVolatility : jumpVolatility,
+					override.spreadWidening != null ? override.spreadWidening : spreadWidening,
+					override.depthStep != null ? override.depthStep : depthStep);
+		}
+
+		@JsonPOJOBuilder(withPrefix = "")
+		public static class SymbolValuesBuilder {
+		}
+	}
+
+	/**
+	 * セッション毎に変えられる値。nullは.cfgの値
+	 */
+	@Value
+	@Builder(toBuilder = true)
+	@JsonDeserialize(builder = SessionValues.SessionValuesBuilder.class)
+	public static class SessionValues {
+		// 送信待ちがこのバイト数を超えたら間引く(プライス)
+		Long conflationThresholdBytes;
+		// 約定遅延。ExecutionLatencyと同じ書式で、全通貨ペアに使う(注文)
+		String executionLatency;
+
+		public SessionValues merge(SessionValues override) {
+			return new SessionValues(
+					override.conflationThresholdBytes != null ? override.conflationThresholdBytes
+							: conflationThresholdBytes,
+					override.executionLatency != null ? override.executionLatency : executionLatency);
+		}
+
+		@JsonPOJOBuilder(withPrefix = "")
+		public static class SessionValuesBuilder {
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package jp.yamato373.fix.util;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jp.yamato373.fix.util.Settings.SymbolSettings;
+import jp.yamato373.fix.util.SettingsSnapshot.SessionValues;
+import jp.yamato373.fix.util.SettingsSnapshot.SymbolValues;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.mina.acceptor.DynamicAcceptorSessionProvider;
+
+/**
+ * 実行中の設定の置き場。起動時は{@link Settings}から作り、変更の度に新しい版を作って差し替える。
+ * 変更は検証してから丸ごと差し替えるので、読む側が変更途中の値を見ることはない。
+ * 読む側はgetSnapshot()を1回読むだけでロックは取らない。
+ */
+@Component
+@Slf4j
+public class SettingsStore {
+
+	private volatile SettingsSnapshot snapshot;
+
+	// 差し替える前の検証。エンジン毎に自分の使う値を検証し、だめならIllegalArgumentExceptionを投げる
+	private final List<Consumer<SettingsSnapshot>> validators = new CopyOnWriteArrayList<>();
+
+	// 設定できるセッション。.cfgのセクションで、動的セッションのテンプレートは*がどの値にも合う
+	private final List<SessionID> sessionPatterns = new CopyOnWriteArrayList<>();
+
+	@Autowired
+	public SettingsStore(Settings settings) {
+		Map<String, SymbolValues> symbols = new LinkedHashMap<>();
+		if (settings.getSymbols().isEmpty()) {
+			symbols.put(settings.getSymbol(), SymbolValues.builder().build());
+		}
+		for (SymbolSettings symbolSettings : settings.getSymbols()) {
+			symbols.put(symbolSettings.getSymbol(), SymbolValues.builder()
+					.upperLimit(symbolSettings.getUpperLimit())
+					.lowerLimit(symbolSettings.getLowerLimit())
+					.spread(symbolSettings.getSpread())
+					.move(symbolSettings.getMove())
+					.drift(symbolSettings.getDrift())
+					.volatility(symbolSettings.getVolatility())
+					.meanReversion(symbolSettings.getMeanReversion())
+					.jumpIntensity(symbolSettings.getJumpIntensity())
+					.jumpMean(symbolSettings.getJumpMean())
+					.jumpVolatility(symbolSettings.getJumpVolatility())
+					.spreadWidening(symbolSettings.getSpreadWidening())
+					.depthStep(symbolSettings.getDepthStep())
+					.build());
+		}
+
+		snapshot = SettingsSnapshot.builder()
+				.version(1)
+				.sendInterval(settings.getSendInterval())
+				.rateGenerateInterval(settings.getRateGenerateInterval())
+				.ticksPerSecond(settings.getTicksPerSecond())
+				.size(settings.getSize())
+				.maxSpreadMultiplier(settings.getMaxSpreadMultiplier())
+				.indicativeText(settings.getIndicativeText())
+				.defaults(SymbolValues.builder()
+						.upperLimit(settings.getUpperLimit())
+						.lowerLimit(settings.getLowerLimit())
+						.spread(settings.getSpread())
+						.move(settings.getMove())
+						.drift(settings.getDrift())
+						.volatility(settings.getVolatility())
+						.meanReversion(settings.getMeanReversion())
+						.jumpIntensity(settings.getJumpIntensity())
+						.jumpMean(settings.getJumpMean())
+						.jumpVolatility(settings.getJumpVolatility())
+						.spreadWidening(settings.getSpreadWidening())
+						.depthStep(settings.getDepthStep())
+						.build())
+				.symbols(Collections.unmodifiableMap(symbols))
+				.sessions(Collections.emptyMap())
+				.build();
+	}
+
+	public SettingsSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public void addValidator(Consumer<SettingsSnapshot> validator) {
+		validators.add(validator);
+	}
+
+	/**
+	 * sessionSettingsのセッションを{@link #updateSession(SessionID, SessionValues)}で設定できるようにする
+	 */
+	public void addSessions(SessionSettings sessionSettings) {
+		for (Iterator<SessionID> it = sessionSettings.sectionIterator(); it.hasNext();) {
+			sessionPatterns.add(it.next());
+		}
+	}
+
+	public synchronized SettingsSnapshot update(SettingsUpdate update) {
+		SettingsSnapshot current = snapshot;
+		SettingsSnapshot.SettingsSnapshotBuilder builder = current.toBuilder();
+		if (update.getSendInterval() != null) {
+			builder.sendInterval(update.getSendInterval());
+		}
+		if (update.getRateGenerateInterval() != null) {
+			builder.rateGenerateInterval(update.getRateGenerateInterval());
+		}
+		if (update.getTicksPerSecond() != null) {
+			builder.ticksPerSecond(update.getTicksPerSecond());
+		}
+		if (update.getSize() != null) {
+			builder.size(update.getSize());
+		}
+		if (update.getMaxSpreadMultiplier() != null) {
+			builder.maxSpreadMultiplier(update.getMaxSpreadMultiplier());
+		}
+		if (update.getIndicativeText() != null) {
+			builder.indicativeText(update.getIndicativeText());
+		}
+		builder.defaults(current.getDefaults().merge(update.getDefaults()));
+		return publish(builder);
+	}
+
+	public synchronized SettingsSnapshot updateSymbol(String symbol, SymbolValues values) {
+		SettingsSnapshot current = snapshot;
+		SymbolValues override = current.getSymbols().get(symbol);
+		if (override == null) {
+			throw new IllegalArgumentException("Unknown symbol: " + symbol);
+		}
+		Map<String, SymbolValues> symbols = new LinkedHashMap<>(current.getSymbols());
+		symbols.put(symbol, override.merge(values));
+		return publish(current.toBuilder().symbols(Collections.unmodifiableMap(symbols)));
+	}
+
+	public synchronized SettingsSnapshot updateSession(SessionID sessionID, SessionValues values) {
+		if (!isKnownSession(sessionID)) {
+			throw new IllegalArgumentException("Unknown session: " + sessionID);
+		}
+		SettingsSnapshot current = snapshot;
+		SessionValues override = current.getSession(sessionID);
+		Map<SessionID, SessionValues> sessions = new HashMap<>(current.getSessions());
+		sessions.put(sessionID, override != null ? override.merge(values) : values);
+		return publish(current.toBuilder().sessions(Collections.unmodifiableMap(sessions)));
+	}
+
+	private boolean isKnownSession(SessionID sessionID) {
+		for (SessionID pattern : sessionPatterns) {
+			if (matches(pattern.getBeginString(), sessionID.getBeginString())
+					&& matches(pattern.getSenderCompID(), sessionID.getSenderCompID())
+					&& matches(pattern.getSenderSubID(), sessionID.getSenderSubID())
+					&& matches(pattern.getSenderLocationID(), sessionID.getSenderLocationID())
+					&& matches(pattern.getTargetCompID(), sessionID.getTargetCompID())
+					&& matches(pattern.getTargetSubID(), sessionID.getTargetSubID())
+					&& matches(pattern.getTargetLocationID(), sessionID.getTargetLocationID())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean matches(String pattern, String value) {
+		return DynamicAcceptorSessionProvider.WILDCARD.equals(pattern) || pattern.equals(value);
+	}
+
+	private SettingsSnapshot publish(SettingsSnapshot.SettingsSnapshotBuilder builder) {
+		SettingsSnapshot next = builder.version(snapshot.getVersion() + 1).build();
+		validate(next);
+		validators.forEach(validator -> validator.accept(next));
+		snapshot = next;
+		log.info("設定を変えたよ！ version=" + next.getVersion());
+		return next;
+	}
+
+	private void validate(SettingsSnapshot next) {
+		check(next.getSendInterval() > 0, "sendInterval must be positive");
+		check(next.getRateGenerateInterval() > 0, "rateGenerateInterval must be positive");
+		check(next.getTicksPerSecond() >= 0, "ticksPerSecond must not be negative");
+		check(next.getSize() > 0, "size must be positive");
+		check(next.getMaxSpreadMultiplier() >= 1, "maxSpreadMultiplier must be at least 1");
+		for (String symbol : next.getSymbols().keySet()) {
+			// CSVや再生の通貨ペアは値動きの設定が無いことがある。未設定の項目は検証しない
+			SymbolValues values = next.getSymbol(symbol);
+			BigDecimal lowerLimit = values.getLowerLimit();
+			BigDecimal upperLimit = values.getUpperLimit();
+			check(lowerLimit == null || upperLimit == null || lowerLimit.compareTo(upperLimit) < 0,
+					symbol + ": lowerLimit must be less than upperLimit");
+			check(values.getSpread() == null || values.getSpread().signum() >= 0,
+					symbol + ": spread must not be negative");
+			check(values.getMove() == null || values.getMove().signum() >= 0, symbol + ": move must not be negative");
+			checkNotNegative(values.getVolatility(), symbol + ": volatility must not be negative");
+			checkNotNegative(values.getMeanReversion(), symbol + ": meanReversion must not be negative");
+			checkNotNegative(values.getJumpIntensity(), symbol + ": jumpIntensity must not be negative");
+			checkNotNegative(values.getJumpVolatility(), symbol + ": jumpVolatility must not be negative");
+			checkNotNegative(values.getSpreadWidening(), symbol + ": spreadWidening must not be negative");
+			BigDecimal depthStep = values.getDepthStep();
+			check(depthStep == null || depthStep.signum() > 0, symbol + ": depthStep must be positive");
+		}
+		for (Map.Entry<SessionID, SessionValues> entry : next.getSessions().entrySet()) {
+			Long threshold = entry.getValue().getConflationThresholdBytes();
+			check(threshold == null || threshold >= 0,
+					entry.getKey() + ": conflationThresholdBytes must not be negative");
+		}
+	}
+
+	private static void checkNotNegative(Double value, String message) {
+		check(value == null || value >= 0, message);
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalArgumentException(message);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package jp.yamato373.fix.util;
+
+import jp.yamato373.fix.util.SettingsSnapshot.SymbolValues;
+import lombok.Data;
+
+/**
+ * 全体の設定の変更。nullの項目は変えない
+ */
+@Data
+public class SettingsUpdate {
+	private Integer sendInterval;
+	private Long rateGenerateInterval;
+	private Long ticksPerSecond;
+	private Long size;
+	private Double maxSpreadMultiplier;
+	private String indicativeText;
+	// 通貨ペア共通の値
+	private SymbolValues defaults;
+}
@@ -0,0 +1,46 @@
+package jp.yamato373.fix.util;
+
+/**
+ * シードを入れ直せる乱数。同じシードのSplittableRandomと同じ系列になる。
+ * ティック毎にシードを決め直す所で、毎回SplittableRandomを作らずに使い回す。1スレッドから使う
+ */
+public class SplitMix64 {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long seed;
+
+	public SplitMix64(long seed) {
+		this.seed = seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @return 0以上bound未満。SplittableRandom.nextInt(int)と同じ
+	 */
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		int r = mix32(nextSeed());
+		int m = bound - 1;
+		if ((bound & m) == 0) {
+			return r & m;
+		}
+		for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1) {
+		}
+		return r;
+	}
+
+	private long nextSeed() {
+		return seed += GOLDEN_GAMMA;
+	}
+
+	private static int mix32(long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+}
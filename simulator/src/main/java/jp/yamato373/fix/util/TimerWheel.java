@@ -0,0 +1,136 @@
+package jp.yamato373.fix.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ハッシュ式のタイマーホイール。1本のスレッドがtick毎にバケツを1つ進めて期限の来たタスクを実行する。
+ * 登録はキューに積むだけ、実行もバケツを見るだけなので、何万件載っていても重くならない。
+ * タスクはホイールのスレッドで動くので、重い処理は別スレッドに渡すこと。
+ */
+@Slf4j
+public class TimerWheel {
+
+	private final long tickNanos;
+	// バケツ毎の連結リスト。同じtickのタスクは登録順に実行する
+	private final Node[] heads;
+	private final Node[] tails;
+	private final int mask;
+	private final Queue<Node> incoming = new ConcurrentLinkedQueue<>();
+	private final AtomicLong pending = new AtomicLong();
+	private final Thread worker;
+	private final long startNanoTime;
+
+	/**
+	 * @param wheelSize 2の累乗に切り上げる
+	 */
+	public TimerWheel(String name, long tick, TimeUnit unit, int wheelSize) {
+		tickNanos = Math.max(1, unit.toNanos(tick));
+		int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+		heads = new Node[size];
+		tails = new Node[size];
+		mask = size - 1;
+		startNanoTime = System.nanoTime();
+		worker = new Thread(this::run, name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	public void schedule(long delay, TimeUnit unit, Runnable task) {
+		pending.incrementAndGet();
+		incoming.add(new Node(System.nanoTime() + unit.toNanos(delay), task));
+	}
+
+	/**
+	 * まだ実行していないタスクの数
+	 */
+	public long getPending() {
+		return pending.get();
+	}
+
+	public void stop() throws InterruptedException {
+		worker.interrupt();
+		worker.join(TimeUnit.SECONDS.toMillis(1));
+	}
+
+	private void run() {
+		long tick = 0;
+		while (!Thread.currentThread().isInterrupted()) {
+			long deadline = startNanoTime + (tick + 1) * tickNanos;
+			long wait;
+			while ((wait = deadline - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+			}
+
+			transfer(tick);
+			expire(tick);
+			tick++;
+		}
+	}
+
+	private void transfer(long currentTick) {
+		Node node;
+		while ((node = incoming.poll()) != null) {
+			long ticks = Math.max(currentTick, (node.deadline - startNanoTime) / tickNanos);
+			node.rounds = (ticks - currentTick) >> Integer.numberOfTrailingZeros(heads.length);
+			int index = (int) (ticks & mask);
+			if (tails[index] == null) {
+				heads[index] = node;
+			} else {
+				tails[index].next = node;
+			}
+			tails[index] = node;
+		}
+	}
+
+	private void expire(long tick) {
+		int index = (int) (tick & mask);
+		Node previous = null;
+		Node node = heads[index];
+		while (node != null) {
+			Node next = node.next;
+			if (node.rounds > 0) {
+				node.rounds--;
+				previous = node;
+			} else {
+				if (previous == null) {
+					heads[index] = next;
+				} else {
+					previous.next = next;
+				}
+				if (tails[index] == node) {
+					tails[index] = previous;
+				}
+				node.next = null;
+				pending.decrementAndGet();
+				try {
+					node.task.run();
+				} catch (RuntimeException e) {
+					log.error(e.getMessage(), e);
+				}
+			}
+			node = next;
+		}
+	}
+
+	private static class Node {
+
+		final long deadline;
+		final Runnable task;
+		long rounds;
+		Node next;
+
+		Node(long deadline, Runnable task) {
+			this.deadline = deadline;
+			this.task = task;
+		}
+	}
+}
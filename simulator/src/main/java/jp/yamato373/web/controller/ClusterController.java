@@ -0,0 +1,33 @@
+package jp.yamato373.web.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import jp.yamato373.fix.cluster.Cluster;
+import quickfix.SessionID;
+
+/**
+ * クラスタのノードと、セッションを受けるノード
+ */
+@RestController
+public class ClusterController {
+
+	@Autowired
+	Cluster cluster;
+
+	@RequestMapping(value = "/cluster", method = RequestMethod.GET)
+	public Cluster.Status getCluster() {
+		return cluster.getStatus();
+	}
+
+	/**
+	 * セッションはFIX.4.4:OANDA_MD->YAMATO373の形式
+	 */
+	@RequestMapping(value = "/cluster/sessions/{sessionID:.+}", method = RequestMethod.GET)
+	public Cluster.Placement getPlacement(@PathVariable("sessionID") String sessionID) {
+		return cluster.getPlacement(new SessionID(sessionID));
+	}
+}
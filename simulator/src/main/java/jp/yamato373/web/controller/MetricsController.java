@@ -0,0 +1,20 @@
+package jp.yamato373.web.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import jp.yamato373.fix.metrics.Metrics;
+
+@RestController
+public class MetricsController {
+
+	@Autowired
+	Metrics metrics;
+
+	@RequestMapping(value = "/metrics", method = RequestMethod.GET)
+	public Metrics.Snapshot getMetrics() {
+		return metrics.getSnapshot();
+	}
+}
@@ -0,0 +1,27 @@
+package jp.yamato373.web.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import jp.yamato373.fix.OutboundValidator;
+import jp.yamato373.fix.order.OrderApplication;
+import jp.yamato373.fix.util.PartitionedExecutor;
+
+@RestController
+public class OrderController {
+
+	@Autowired
+	OrderApplication orderApplication;
+
+	@RequestMapping(value = "/order/validation", method = RequestMethod.GET)
+	public OutboundValidator.Stats getValidation() {
+		return orderApplication.getOutboundValidator().getStats();
+	}
+
+	@RequestMapping(value = "/order/partitions", method = RequestMethod.GET)
+	public PartitionedExecutor.Stats getPartitions() {
+		return orderApplication.getOrderExecutor().getStats();
+	}
+}
@@ -0,0 +1,21 @@
+package jp.yamato373.web.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import jp.yamato373.fix.OutboundValidator;
+import jp.yamato373.fix.price.PriceApplication;
+
+@RestController
+public class PriceController {
+
+	@Autowired
+	PriceApplication priceApplication;
+
+	@RequestMapping(value = "/price/validation", method = RequestMethod.GET)
+	public OutboundValidator.Stats getValidation() {
+		return priceApplication.getOutboundValidator().getStats();
+	}
+}
\ No newline at end of file
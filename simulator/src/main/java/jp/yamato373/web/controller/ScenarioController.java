@@ -0,0 +1,50 @@
+package jp.yamato373.web.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import jp.yamato373.fix.scenario.ScenarioRunner;
+
+/**
+ * シナリオの開始・停止と、今効いているイベント
+ */
+@RestController
+public class ScenarioController {
+
+	@Autowired
+	ScenarioRunner scenarioRunner;
+
+	@RequestMapping(value = "/scenario", method = RequestMethod.GET)
+	public ScenarioRunner.Status getScenario() {
+		return scenarioRunner.getStatus();
+	}
+
+	/**
+	 * fileはサーバー上のパス
+	 */
+	@RequestMapping(value = "/scenario/start", method = RequestMethod.POST)
+	public ScenarioRunner.Status start(@RequestParam("file") String file) throws IOException {
+		scenarioRunner.start(file);
+		return scenarioRunner.getStatus();
+	}
+
+	@RequestMapping(value = "/scenario/stop", method = RequestMethod.POST)
+	public ScenarioRunner.Status stop() {
+		scenarioRunner.cancel();
+		return scenarioRunner.getStatus();
+	}
+
+	@ExceptionHandler({ IllegalArgumentException.class, IOException.class })
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public String handleBadScenario(Exception e) {
+		return e.toString();
+	}
+}
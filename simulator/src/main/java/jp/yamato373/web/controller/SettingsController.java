@@ -0,0 +1,62 @@
+package jp.yamato373.web.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import jp.yamato373.fix.util.SettingsSnapshot;
+import jp.yamato373.fix.util.SettingsSnapshot.SessionValues;
+import jp.yamato373.fix.util.SettingsSnapshot.SymbolValues;
+import jp.yamato373.fix.util.SettingsStore;
+import jp.yamato373.fix.util.SettingsUpdate;
+import quickfix.SessionID;
+
+/**
+ * 実行中の設定の参照と変更。変更は送った項目だけで、結果の版を返す
+ */
+@RestController
+public class SettingsController {
+
+	@Autowired
+	SettingsStore settingsStore;
+
+	@RequestMapping(value = "/settings", method = RequestMethod.GET)
+	public SettingsSnapshot getSettings() {
+		return settingsStore.getSnapshot();
+	}
+
+	@RequestMapping(value = "/settings", method = RequestMethod.PUT)
+	public SettingsSnapshot putSettings(@RequestBody SettingsUpdate update) {
+		return settingsStore.update(update);
+	}
+
+	/**
+	 * 通貨ペアはUSD/JPYなら/settings/symbols/USD/JPY
+	 */
+	@RequestMapping(value = "/settings/symbols/{base}/{quote}", method = RequestMethod.PUT)
+	public SettingsSnapshot putSymbolSettings(@PathVariable("base") String base,
+			@PathVariable("quote") String quote, @RequestBody SymbolValues values) {
+		return settingsStore.updateSymbol(base + "/" + quote, values);
+	}
+
+	/**
+	 * セッションはFIX.4.4:OANDA_MD->YAMATO373の形式
+	 */
+	@RequestMapping(value = "/settings/sessions/{sessionID:.+}", method = RequestMethod.PUT)
+	public SettingsSnapshot putSessionSettings(@PathVariable("sessionID") String sessionID,
+			@RequestBody SessionValues values) {
+		return settingsStore.updateSession(new SessionID(sessionID), values);
+	}
+
+	@ExceptionHandler(IllegalArgumentException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public String handleIllegalArgument(IllegalArgumentException e) {
+		return e.getMessage();
+	}
+}
@@ -0,0 +1,74 @@
+package jp.yamato373.fix.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void smallValuesAreExact() {
+		for (long value = 0; value < 128; value++) {
+			int index = LatencyHistogram.index(value);
+			assertEquals(value, index);
+			assertEquals(value, LatencyHistogram.upperBound(index));
+		}
+	}
+
+	@Test
+	public void bucketsAreContiguous() {
+		// バケツの最大値+1は次のバケツの最初の値
+		for (int index = 0; index < 2000; index++) {
+			long upper = LatencyHistogram.upperBound(index);
+			assertEquals(index, LatencyHistogram.index(upper));
+			assertEquals(index + 1, LatencyHistogram.index(upper + 1));
+		}
+	}
+
+	@Test
+	public void relativeErrorIsWithinOneSixtyFourth() {
+		for (long value = 128; value < (1L << 40); value = value * 3 / 2 + 7) {
+			long upper = LatencyHistogram.upperBound(LatencyHistogram.index(value));
+			assertTrue(value + " -> " + upper, upper >= value);
+			assertTrue(value + " -> " + upper, upper - value <= value / 64);
+		}
+	}
+
+	@Test
+	public void outOfRangeValuesAreClamped() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-1);
+		histogram.record(Long.MAX_VALUE);
+
+		LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(2, snapshot.getCount());
+		assertEquals(0, snapshot.getP50(), 0);
+		assertEquals(((1L << 40) - 1) / 1000.0, snapshot.getMax(), 0);
+	}
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getSnapshot().getCount());
+
+		// 1〜1000マイクロ秒を1つずつ
+		for (long micros = 1; micros <= 1000; micros++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+
+		LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(500.5, snapshot.getMean(), 0.001);
+		assertEquals(500, snapshot.getP50(), 500 / 64.0);
+		assertEquals(900, snapshot.getP90(), 900 / 64.0);
+		assertEquals(990, snapshot.getP99(), 990 / 64.0);
+		assertEquals(999, snapshot.getP999(), 999 / 64.0);
+		assertEquals(1000, snapshot.getMax(), 0);
+
+		// バケツの最大値が記録した最大値を超えても、最大値を返す
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(1000));
+		assertTrue(histogram.getSnapshot().getP999() <= 1000);
+	}
+}
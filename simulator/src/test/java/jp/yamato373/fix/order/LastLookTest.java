@@ -0,0 +1,82 @@
+package jp.yamato373.fix.order;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import jp.yamato373.fix.price.Quote;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.SessionSettings;
+
+public class LastLookTest {
+
+	@Test
+	public void rejectsOnlyAdverseMovesBeyondTolerance() throws Exception {
+		LastLook lastLook = lastLook("LastLookHoldMillis=5\nLastLookTolerancePoints=3\n"
+				+ "LastLookTolerancePoints.EUR/USD=10\n");
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(5), lastLook.getHoldNanos());
+		assertTrue(lastLook.isEnabled("USD/JPY"));
+
+		// 買いはaskが上がると不利
+		assertNull(lastLook.check(quote("USD/JPY", 110000, 110007), true, 110004));
+		assertEquals(LastLook.REJECT_TEXT, lastLook.check(quote("USD/JPY", 110000, 110008), true, 110004));
+		assertNull(lastLook.check(quote("USD/JPY", 109000, 109004), true, 110004));
+		// 売りはbidが下がると不利
+		assertNull(lastLook.check(quote("USD/JPY", 109997, 110001), false, 110000));
+		assertEquals(LastLook.REJECT_TEXT, lastLook.check(quote("USD/JPY", 109996, 110000), false, 110000));
+		// 通貨ペア毎の許容幅
+		assertNull(lastLook.check(quote("EUR/USD", 112330, 112340), false, 112340));
+		assertEquals(LastLook.REJECT_TEXT, lastLook.check(quote("EUR/USD", 112329, 112340), false, 112340));
+		// まだ配信していなければ見ない
+		assertNull(lastLook.check(null, true, 110004));
+	}
+
+	@Test
+	public void onlyConfiguredSymbolsAreChecked() throws Exception {
+		LastLook lastLook = lastLook("LastLookHoldMillis=5\nLastLookTolerancePoints.EUR/USD=10\n");
+		assertTrue(lastLook.isEnabled("EUR/USD"));
+		assertFalse(lastLook.isEnabled("USD/JPY"));
+
+		assertFalse(lastLook("LastLookHoldMillis=5\n").isEnabled("USD/JPY"));
+	}
+
+	@Test
+	public void holdMustBeShorterThanHistory() throws Exception {
+		LastLook lastLook = lastLook("LastLookHoldMillis=5\nLastLookTolerancePoints=3\n");
+		lastLook.validate(TimeUnit.MILLISECONDS.toNanos(6));
+		try {
+			lastLook.validate(TimeUnit.MILLISECONDS.toNanos(5));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("LastLookHoldMillis must be shorter than the quote history (5ms)", e.getMessage());
+		}
+
+		// 見ないなら履歴は要らない
+		lastLook("LastLookHoldMillis=5\n").validate(0);
+	}
+
+	@Test(expected = FieldConvertError.class)
+	public void rejectsInvalidTolerance() throws Exception {
+		lastLook("LastLookTolerancePoints=three\n");
+	}
+
+	private static LastLook lastLook(String cfg) throws ConfigError, FieldConvertError {
+		String text = "[default]\n" + cfg;
+		return new LastLook(new SessionSettings(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))));
+	}
+
+	private static Quote quote(String symbol, long bidPx, long askPx) {
+		Quote quote = new Quote();
+		quote.setSymbol(symbol);
+		quote.setBidPx(bidPx);
+		quote.setAskPx(askPx);
+		quote.setBidSize(1000000);
+		quote.setAskSize(1000000);
+		return quote;
+	}
+}
@@ -0,0 +1,258 @@
+package jp.yamato373.fix.order;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import jp.yamato373.fix.price.PriceStore;
+import jp.yamato373.fix.price.Quote;
+import jp.yamato373.fix.price.Rate;
+import jp.yamato373.fix.price.RateGeneratWorker.TickListener;
+import jp.yamato373.fix.util.PartitionedExecutor;
+import quickfix.SessionID;
+import quickfix.field.OrdType;
+import quickfix.field.Side;
+import quickfix.field.TimeInForce;
+
+public class MatchingEngineTest {
+
+	private static final String SYMBOL = "USD/JPY";
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "OANDA", "YAMATO373");
+
+	private MatchingEngine matchingEngine;
+	private PriceStore priceStore;
+	private TickListener tickListener;
+	private final List<Execution> executions = new ArrayList<>();
+
+	// 配信済みのクォート。nullならまだ配信していない
+	private Quote published;
+	private int orderID;
+
+	@Before
+	public void setUp() {
+		priceStore = mock(PriceStore.class);
+		when(priceStore.read(eq(SYMBOL), any(Quote.class)))
+				.thenAnswer(invocation -> published == null ? null
+						: copy(published, invocation.getArgumentAt(1, Quote.class)));
+
+		matchingEngine = new MatchingEngine();
+		matchingEngine.priceStore = priceStore;
+		matchingEngine.init();
+		matchingEngine.setExecutionHandler(new MatchingEngine.ExecutionHandler() {
+
+			@Override
+			public void onNew(Execution execution) {
+				executions.add(execution);
+			}
+
+			@Override
+			public void onTrade(Execution execution) {
+				executions.add(execution);
+			}
+
+			@Override
+			public void onCanceled(Execution execution) {
+				executions.add(execution);
+			}
+		});
+
+		ArgumentCaptor<TickListener> captor = ArgumentCaptor.forClass(TickListener.class);
+		verify(priceStore).addListener(captor.capture());
+		tickListener = captor.getValue();
+	}
+
+	@Test
+	public void marketOrderFillsUpToQuoteSizeAndCancelsRest() {
+		publish(110000, 110004, 1000000, 1000000);
+		matchingEngine.setSlippagePoints(1);
+
+		Order order = order(Side.BUY, OrdType.MARKET, TimeInForce.IMMEDIATE_OR_CANCEL, 3000000, 0);
+		matchingEngine.submit(order);
+
+		assertTypes(Execution.Type.TRADE, Execution.Type.CANCELED);
+		Execution trade = executions.get(0);
+		assertEquals(1000000, trade.getLastQty());
+		assertEquals(110005, trade.getLastPx());
+		assertEquals(2000000, trade.getLeavesQty());
+		assertEquals(2000000, executions.get(1).getLeavesQty());
+		assertNull(executions.get(1).getClOrdID());
+	}
+
+	@Test
+	public void sizeTakenOnSameQuoteIsNotAvailableAgain() {
+		publish(110000, 110004, 1000000, 1500000);
+
+		matchingEngine.submit(order(Side.BUY, OrdType.LIMIT, TimeInForce.IMMEDIATE_OR_CANCEL, 1000000, 110004));
+		matchingEngine.submit(order(Side.BUY, OrdType.LIMIT, TimeInForce.IMMEDIATE_OR_CANCEL, 1000000, 110004));
+
+		assertTypes(Execution.Type.TRADE, Execution.Type.TRADE, Execution.Type.CANCELED);
+		assertEquals(1000000, executions.get(0).getLastQty());
+		assertEquals(500000, executions.get(1).getLastQty());
+
+		// クォートが変わればまた約定できる
+		executions.clear();
+		publish(110000, 110004, 1000000, 1500000);
+		matchingEngine.submit(order(Side.BUY, OrdType.LIMIT, TimeInForce.IMMEDIATE_OR_CANCEL, 1000000, 110004));
+		assertTypes(Execution.Type.TRADE);
+	}
+
+	@Test
+	public void slippageDoesNotCrossLimitPrice() {
+		publish(110000, 110004, 1000000, 1000000);
+		matchingEngine.setSlippagePoints(3);
+
+		matchingEngine.submit(order(Side.SELL, OrdType.LIMIT, TimeInForce.IMMEDIATE_OR_CANCEL, 1000000, 109999));
+
+		assertTypes(Execution.Type.TRADE);
+		assertEquals(109999, executions.get(0).getLastPx());
+	}
+
+	@Test
+	public void fillOrKillIsCanceledUnlessFullyFilled() {
+		publish(110000, 110004, 1000000, 1000000);
+
+		Order order = order(Side.BUY, OrdType.LIMIT, TimeInForce.FILL_OR_KILL, 2000000, 110010);
+		matchingEngine.submit(order);
+
+		assertTypes(Execution.Type.CANCELED);
+		assertEquals(0, order.getCumQty());
+	}
+
+	@Test
+	public void noFillBeforeFirstQuote() {
+		matchingEngine.submit(order(Side.BUY, OrdType.MARKET, TimeInForce.IMMEDIATE_OR_CANCEL, 1000000, 0));
+		Order limit = order(Side.BUY, OrdType.LIMIT, TimeInForce.GOOD_TILL_CANCEL, 1000000, 110004);
+		matchingEngine.submit(limit);
+
+		assertTypes(Execution.Type.CANCELED, Execution.Type.NEW);
+		assertTrue(matchingEngine.contains(SESSION_ID, limit.getClOrdID(), SYMBOL));
+	}
+
+	@Test
+	public void restingOrdersMatchByPriceThenTimeOnTick() {
+		publish(110000, 110004, 1000000, 1000000);
+		Order first = order(Side.BUY, OrdType.LIMIT, TimeInForce.DAY, 1000000, 109990);
+		Order second = order(Side.BUY, OrdType.LIMIT, TimeInForce.DAY, 1000000, 109990);
+		Order better = order(Side.BUY, OrdType.LIMIT, TimeInForce.DAY, 1000000, 109995);
+		matchingEngine.submit(first);
+		matchingEngine.submit(second);
+		matchingEngine.submit(better);
+		assertTypes(Execution.Type.NEW, Execution.Type.NEW, Execution.Type.NEW);
+
+		executions.clear();
+		tick(109980, 109984, 1000000, 1500000);
+
+		assertTypes(Execution.Type.TRADE, Execution.Type.TRADE);
+		assertSame(better, executions.get(0).getOrder());
+		assertEquals(109995, executions.get(0).getLastPx());
+		assertSame(first, executions.get(1).getOrder());
+		assertEquals(500000, executions.get(1).getLastQty());
+		assertEquals(500000, executions.get(1).getLeavesQty());
+		assertFalse(matchingEngine.contains(SESSION_ID, better.getClOrdID(), SYMBOL));
+		assertTrue(matchingEngine.contains(SESSION_ID, first.getClOrdID(), SYMBOL));
+
+		// レートが届かなければ約定しない
+		executions.clear();
+		tick(110000, 110004, 1000000, 1000000);
+		assertTrue(executions.isEmpty());
+	}
+
+	@Test
+	public void tickIsMatchedOnOrderThread() {
+		PartitionedExecutor executor = mock(PartitionedExecutor.class);
+		List<Runnable> tasks = new ArrayList<>();
+		when(executor.execute(eq(SYMBOL), any(Runnable.class)))
+				.thenAnswer(invocation -> tasks.add(invocation.getArgumentAt(1, Runnable.class)));
+		matchingEngine.setTickExecutor(executor);
+
+		publish(110000, 110004, 1000000, 1000000);
+		Order order = order(Side.BUY, OrdType.LIMIT, TimeInForce.DAY, 1000000, 109990);
+		matchingEngine.submit(order);
+		executions.clear();
+
+		// 動く前の配信はまとめて1つ。最新のクォートで約定する
+		tick(109995, 109999, 1000000, 1000000);
+		tick(109980, 109984, 1000000, 1000000);
+		assertTrue(executions.isEmpty());
+		assertEquals(1, tasks.size());
+
+		tasks.get(0).run();
+		assertTypes(Execution.Type.TRADE);
+		assertEquals(109990, executions.get(0).getLastPx());
+
+		tick(109970, 109974, 1000000, 1000000);
+		assertEquals(2, tasks.size());
+	}
+
+	@Test
+	public void cancel() {
+		publish(110000, 110004, 1000000, 1000000);
+		Order order = order(Side.SELL, OrdType.LIMIT, TimeInForce.DAY, 1000000, 110100);
+		matchingEngine.submit(order);
+		executions.clear();
+
+		assertSame(order, matchingEngine.cancel(SESSION_ID, order.getClOrdID(), SYMBOL, "C1"));
+		assertTypes(Execution.Type.CANCELED);
+		assertEquals("C1", executions.get(0).getClOrdID());
+		assertNull(matchingEngine.cancel(SESSION_ID, order.getClOrdID(), SYMBOL, "C2"));
+
+		// 取り消した注文は約定しない
+		executions.clear();
+		tick(110200, 110204, 1000000, 1000000);
+		assertTrue(executions.isEmpty());
+	}
+
+	private Order order(char side, char ordType, char timeInForce, long orderQty, long price) {
+		String id = Integer.toString(++orderID);
+		return new Order(SESSION_ID, id, "O" + id, null, SYMBOL, side, ordType, timeInForce, orderQty, price, 3);
+	}
+
+	private void publish(long bidPx, long askPx, long bidSize, long askSize) {
+		Quote quote = new Quote();
+		quote.setSymbol(SYMBOL);
+		quote.setScale(3);
+		quote.setBidPx(bidPx);
+		quote.setAskPx(askPx);
+		quote.setBidSize(bidSize);
+		quote.setAskSize(askSize);
+		quote.setSeqNum(published == null ? 1 : published.getSeqNum() + 1);
+		published = quote;
+	}
+
+	/**
+	 * 配信してリスナーに通知する
+	 */
+	private void tick(long bidPx, long askPx, long bidSize, long askSize) {
+		publish(bidPx, askPx, bidSize, askSize);
+		Rate rate = mock(Rate.class);
+		when(rate.getSymbol()).thenReturn(SYMBOL);
+		when(rate.read(any(Quote.class)))
+				.thenAnswer(invocation -> copy(published, invocation.getArgumentAt(0, Quote.class)));
+		tickListener.onTick(rate);
+	}
+
+	private static Quote copy(Quote from, Quote to) {
+		to.setSymbol(from.getSymbol());
+		to.setScale(from.getScale());
+		to.setBidPx(from.getBidPx());
+		to.setAskPx(from.getAskPx());
+		to.setBidSize(from.getBidSize());
+		to.setAskSize(from.getAskSize());
+		to.setSeqNum(from.getSeqNum());
+		return to;
+	}
+
+	private void assertTypes(Execution.Type... types) {
+		List<Execution.Type> actual = new ArrayList<>();
+		executions.forEach(execution -> actual.add(execution.type));
+		assertEquals(Arrays.asList(types), actual);
+	}
+}
@@ -0,0 +1,71 @@
+package jp.yamato373.fix.order;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import jp.yamato373.fix.price.Quote;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.SessionSettings;
+
+public class QuoteCheckerTest {
+
+	@Test
+	public void nothingIsCheckedByDefault() throws Exception {
+		QuoteChecker quoteChecker = quoteChecker("");
+		assertNull(quoteChecker.check(null, true, true, 0));
+		assertNull(quoteChecker.check(quote(0, 110000, 110004, 0, 0), true, false, 120000));
+	}
+
+	@Test
+	public void noPriceBeforeFirstQuote() throws Exception {
+		assertEquals("No price", quoteChecker("OffMarketPoints=500\n").check(null, true, true, 0));
+	}
+
+	@Test
+	public void stalePrice() throws Exception {
+		QuoteChecker quoteChecker = quoteChecker("MaxQuoteAgeMillis=10000\n");
+		long now = System.currentTimeMillis();
+		assertNull(quoteChecker.check(quote(now - 1000, 110000, 110004, 1, 1), true, true, 0));
+		assertEquals("Stale price", quoteChecker.check(quote(now - 60000, 110000, 110004, 1, 1), true, true, 0));
+	}
+
+	@Test
+	public void indicativePriceOnOrderSide() throws Exception {
+		QuoteChecker quoteChecker = quoteChecker("RejectIndicative=Y\n");
+		Quote quote = quote(0, 110000, 110004, 1000000, 0);
+		assertEquals("Indicative price", quoteChecker.check(quote, true, true, 0));
+		assertNull(quoteChecker.check(quote, false, true, 0));
+	}
+
+	@Test
+	public void offMarketLimitOnly() throws Exception {
+		QuoteChecker quoteChecker = quoteChecker("OffMarketPoints=500\n");
+		Quote quote = quote(0, 110000, 110004, 1000000, 1000000);
+		assertNull(quoteChecker.check(quote, true, false, 110504));
+		assertEquals("Off market", quoteChecker.check(quote, true, false, 110505));
+		assertEquals("Off market", quoteChecker.check(quote, false, false, 109499));
+		// 成行は価格を見ない
+		assertNull(quoteChecker.check(quote, true, true, 0));
+	}
+
+	private static QuoteChecker quoteChecker(String cfg) throws ConfigError, FieldConvertError {
+		String text = "[default]\n" + cfg;
+		return new QuoteChecker(new SessionSettings(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))));
+	}
+
+	private static Quote quote(long time, long bidPx, long askPx, long bidSize, long askSize) {
+		Quote quote = new Quote();
+		quote.setSymbol("USD/JPY");
+		quote.setTime(time);
+		quote.setBidPx(bidPx);
+		quote.setAskPx(askPx);
+		quote.setBidSize(bidSize);
+		quote.setAskSize(askSize);
+		return quote;
+	}
+}
@@ -0,0 +1,128 @@
+package jp.yamato373.fix.price;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jp.yamato373.fix.util.SplitMix64;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDUpdateAction;
+
+public class DepthBookTest {
+
+	private static final long STEP = 5;
+
+	private DepthBook book;
+	private SplitMix64 random;
+
+	@Before
+	public void setUp() {
+		book = new DepthBook("USD/JPY", 3, 3);
+		// サイズは引き継ぎ、変える時は(1+1)*100000*(段+1)
+		random = mock(SplitMix64.class);
+		when(random.nextInt(10)).thenReturn(1);
+	}
+
+	@Test
+	public void firstUpdateSendsAllLevels() {
+		update(110000, 110004, false);
+
+		assertTrue(book.isBuilt());
+		assertDeltas(
+				"NEW BID 110000 1000000 top",
+				"NEW BID 109995 400000",
+				"NEW BID 109990 600000",
+				"NEW OFFER 110004 2000000 top",
+				"NEW OFFER 110009 400000",
+				"NEW OFFER 110014 600000");
+		assertEquals(3, book.getBids().getCount());
+		assertEquals(109990, book.getBids().getPrice(2));
+		assertEquals(110004, book.getOffers().getPrice(0));
+	}
+
+	@Test
+	public void onlyChangedLevelsAreSent() {
+		update(110000, 110004, false);
+		update(110000, 110004, false);
+		assertDeltas();
+
+		// 1段上がる。前回2段目以降に有った価格はサイズを引き継ぐ
+		update(110005, 110009, false);
+		assertDeltas(
+				"NEW BID 110005 1000000 top",
+				"CHANGE BID 110000 400000",
+				"DELETE BID 109990 600000",
+				"DELETE OFFER 110004 2000000",
+				"CHANGE OFFER 110009 2000000 top",
+				"NEW OFFER 110019 600000");
+		assertEquals(110000, book.getBids().getPrice(1));
+		assertEquals(400000, book.getBids().getSize(1));
+	}
+
+	@Test
+	public void indicativeChangesTopOnly() {
+		update(110000, 110004, false);
+		update(110000, 110004, true);
+
+		assertTrue(book.isIndicative());
+		assertDeltas("CHANGE BID 110000 0 top", "CHANGE OFFER 110004 0 top");
+
+		update(110000, 110004, false);
+		assertDeltas("CHANGE BID 110000 1000000 top", "CHANGE OFFER 110004 2000000 top");
+	}
+
+	@Test
+	public void levelsStopAtZero() {
+		update(5, 9, false);
+
+		assertEquals(1, book.getBids().getCount());
+		assertEquals(3, book.getOffers().getCount());
+	}
+
+	@Test
+	public void streamedOncePerChange() {
+		assertFalse(book.markStreamed());
+
+		update(110000, 110004, false);
+		assertTrue(book.markStreamed());
+		assertFalse(book.markStreamed());
+
+		// 変わらなければ送り直しても初めてではない
+		update(110000, 110004, false);
+		assertFalse(book.markStreamed());
+
+		update(110001, 110005, false);
+		book.hold();
+		assertEquals(0, book.getDeltaCount());
+		assertTrue(book.markStreamed());
+	}
+
+	private void update(long bidPx, long askPx, boolean indicative) {
+		Quote quote = new Quote();
+		quote.setSymbol("USD/JPY");
+		quote.setScale(3);
+		quote.setBidPx(bidPx);
+		quote.setAskPx(askPx);
+		quote.setBidSize(1000000);
+		quote.setAskSize(2000000);
+		book.update(quote, STEP, indicative, random);
+	}
+
+	private void assertDeltas(String... expected) {
+		List<String> actual = new ArrayList<>();
+		for (int i = 0; i < book.getDeltaCount(); i++) {
+			String action = book.getDeltaAction(i) == MDUpdateAction.NEW ? "NEW"
+					: book.getDeltaAction(i) == MDUpdateAction.CHANGE ? "CHANGE" : "DELETE";
+			String type = book.getDeltaType(i) == MDEntryType.BID ? "BID" : "OFFER";
+			actual.add(action + " " + type + " " + book.getDeltaPx(i) + " " + book.getDeltaSize(i)
+					+ (book.isDeltaTop(i) ? " top" : ""));
+		}
+		assertEquals(Arrays.asList(expected), actual);
+	}
+}
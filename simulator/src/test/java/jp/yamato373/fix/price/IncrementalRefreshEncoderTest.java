@@ -0,0 +1,83 @@
+package jp.yamato373.fix.price;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jp.yamato373.fix.scenario.MarketConditions;
+import jp.yamato373.fix.util.FixedPoint;
+import jp.yamato373.fix.util.RandomSource;
+import jp.yamato373.fix.util.Settings;
+import jp.yamato373.fix.util.SettingsStore;
+import quickfix.StringField;
+
+public class IncrementalRefreshEncoderTest {
+
+	private final Map<String, Rate> rates = new LinkedHashMap<>();
+	private IncrementalRefreshEncoder encoder;
+
+	@Before
+	public void setUp() {
+		Settings settings = new Settings();
+		settings.setDepth(3);
+		settings.setIndicativeText("Indicative");
+		rates.put("USD/JPY", new Rate(0, "USD/JPY", 3));
+		rates.put("EUR/USD", new Rate(1, "EUR/USD", 5));
+
+		RateGeneratWorker rateGeneratWorker = mock(RateGeneratWorker.class);
+		when(rateGeneratWorker.getSymbols()).thenReturn(rates.keySet());
+		when(rateGeneratWorker.getRate(anyString())).thenAnswer(invocation -> rates.get(invocation.getArguments()[0]));
+		when(rateGeneratWorker.getRandomSource()).thenReturn(new RandomSource(1));
+
+		encoder = new IncrementalRefreshEncoder();
+		encoder.rateGeneratWorker = rateGeneratWorker;
+		encoder.settings = settings;
+		encoder.settingsStore = new SettingsStore(settings);
+		encoder.marketConditions = new MarketConditions(settings);
+		encoder.priceStore = mock(PriceStore.class);
+	}
+
+	@Test
+	public void noMDEntriesMatchesMessage() {
+		List<String> symbols = Arrays.asList("USD/JPY", "EUR/USD");
+		long tick = 0;
+		for (int cycle = 0; cycle < 50; cycle++) {
+			// 動かない周期も混ぜる
+			if (cycle % 5 != 4) {
+				tick++;
+				rates.get("USD/JPY").update(110000 + tick % 7 * 3, 110004 + tick % 7 * 3, 1000000, 2000000, tick);
+				rates.get("EUR/USD").update(112340 - tick % 3 * 10, 112350, 1500000, 1000000, tick);
+			}
+			encoder.nextCycle();
+
+			StringField noMDEntries = encoder.getNoMDEntries(symbols);
+			String message = encoder.getIncrementalRefresh(symbols).toString();
+			if (noMDEntries == null) {
+				assertFalse(message, message.contains("\u0001268="));
+				continue;
+			}
+			int start = message.indexOf("\u0001268=") + "\u0001268=".length();
+			int end = message.indexOf("\u000110=", start);
+			assertEquals(message.substring(start, end), noMDEntries.getValue());
+			assertSame(noMDEntries, encoder.getNoMDEntries(symbols));
+		}
+	}
+
+	@Test
+	public void appendFixedPoint() {
+		assertEquals("124", FixedPoint.append(new StringBuilder(), 124000, 3).toString());
+		assertEquals("110.004", FixedPoint.append(new StringBuilder(), 110004, 3).toString());
+		assertEquals("1.1234", FixedPoint.append(new StringBuilder(), 112340, 5).toString());
+		assertEquals("0.00012", FixedPoint.append(new StringBuilder(), 12, 5).toString());
+		assertEquals("-0.5", FixedPoint.append(new StringBuilder(), -500, 3).toString());
+		assertEquals("0", FixedPoint.append(new StringBuilder(), 0, 3).toString());
+		assertEquals("7", FixedPoint.append(new StringBuilder(), 7, 0).toString());
+	}
+}
@@ -0,0 +1,69 @@
+package jp.yamato373.fix.price;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PriceStoreTest {
+
+	private static final String SYMBOL = "USD/JPY";
+
+	private PriceStore priceStore;
+	private int ticks;
+
+	@Before
+	public void setUp() {
+		RateGeneratWorker rateGeneratWorker = mock(RateGeneratWorker.class);
+		when(rateGeneratWorker.getSymbols()).thenReturn(Collections.singleton(SYMBOL));
+		when(rateGeneratWorker.getRate(SYMBOL)).thenReturn(new Rate(0, SYMBOL, 3));
+
+		priceStore = new PriceStore();
+		priceStore.rateGeneratWorker = rateGeneratWorker;
+		priceStore.init();
+		priceStore.addListener(rate -> ticks++);
+	}
+
+	@Test
+	public void nothingBeforeFirstPublish() {
+		assertNull(priceStore.read(SYMBOL, new Quote()));
+		assertNull(priceStore.read("EUR/USD", new Quote()));
+	}
+
+	@Test
+	public void sameQuoteDoesNotAdvanceSeqNum() {
+		priceStore.publish(quote(110000, 110004, 1000000), false);
+		priceStore.publish(quote(110000, 110004, 1000000), false);
+
+		assertEquals(1, priceStore.read(SYMBOL, new Quote()).getSeqNum());
+		assertEquals(1, ticks);
+
+		priceStore.publish(quote(110001, 110005, 1000000), false);
+		assertEquals(2, priceStore.read(SYMBOL, new Quote()).getSeqNum());
+		assertEquals(2, ticks);
+	}
+
+	@Test
+	public void indicativeIsWrittenWithZeroSize() {
+		priceStore.publish(quote(110000, 110004, 1000000), false);
+		priceStore.publish(quote(110000, 110004, 1000000), true);
+
+		Quote quote = priceStore.read(SYMBOL, new Quote());
+		assertEquals(2, quote.getSeqNum());
+		assertEquals(0, quote.getBidSize());
+		assertEquals(0, quote.getAskSize());
+	}
+
+	private static Quote quote(long bidPx, long askPx, long size) {
+		Quote quote = new Quote();
+		quote.setSymbol(SYMBOL);
+		quote.setBidPx(bidPx);
+		quote.setAskPx(askPx);
+		quote.setBidSize(size);
+		quote.setAskSize(size);
+		return quote;
+	}
+}
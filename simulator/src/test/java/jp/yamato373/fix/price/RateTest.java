@@ -0,0 +1,65 @@
+package jp.yamato373.fix.price;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class RateTest {
+
+	@Test
+	public void readReturnsLatest() {
+		Rate rate = new Rate(0, "USD/JPY", 3);
+		rate.update(110000, 110004, 1000000, 2000000, 7);
+
+		Quote quote = rate.read(new Quote());
+		assertEquals("USD/JPY", quote.getSymbol());
+		assertEquals(110000, quote.getBidPx());
+		assertEquals(110004, quote.getAskPx());
+		assertEquals(2000000, quote.getAskSize());
+		assertEquals(1, quote.getSeqNum());
+		assertEquals(7, quote.getTick());
+	}
+
+	@Test
+	public void readAtFindsQuoteAtThatTime() {
+		Rate rate = new Rate(0, "USD/JPY", 3);
+		long before = nextNanoTime();
+		assertNull(rate.readAt(before, new Quote()));
+
+		rate.update(110000, 110004, 1000000, 1000000);
+		long at = nextNanoTime();
+		for (int i = 1; i < Rate.HISTORY_SIZE; i++) {
+			rate.update(110000 + i, 110004 + i, 1000000, 1000000);
+		}
+
+		Quote quote = rate.readAt(at, new Quote());
+		assertEquals(1, quote.getSeqNum());
+		assertEquals(110000, quote.getBidPx());
+		// 最初の更新より前には無かった
+		assertNull(rate.readAt(before, new Quote()));
+		assertEquals(Rate.HISTORY_SIZE, rate.readAt(System.nanoTime(), new Quote()).getSeqNum());
+	}
+
+	@Test
+	public void readAtIsNullWhenHistoryOverflowed() {
+		Rate rate = new Rate(0, "USD/JPY", 3);
+		rate.update(110000, 110004, 1000000, 1000000);
+		long at = nextNanoTime();
+		for (int i = 1; i <= Rate.HISTORY_SIZE; i++) {
+			rate.update(110000 + i, 110004 + i, 1000000, 1000000);
+		}
+
+		// 一番古い履歴もatより後で、atの時点のレートは溢れている
+		assertNull(rate.readAt(at, new Quote()));
+	}
+
+	/**
+	 * 次の更新の時刻が返す時刻より後になるように、System.nanoTime()が進むまで待つ
+	 */
+	private static long nextNanoTime() {
+		long now = System.nanoTime();
+		while (System.nanoTime() == now) {
+		}
+		return now;
+	}
+}
@@ -0,0 +1,108 @@
+package jp.yamato373.fix.price.tick;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CsvTickReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readsTimesPricesAndSizes() throws IOException {
+		File file = write("ticks.csv", "time,bid,ask,bidSize,askSize\n"
+				+ "1500000000123,110.001,110.005\r\n"
+				+ "2017-07-14 02:40:00.5,110.002,110.006,1000000,2000000\n"
+				+ "2017-07-14T02:40:01,110,110.01\n");
+		try (CsvTickReader reader = new CsvTickReader(file, 3)) {
+			assertTrue(reader.next());
+			assertEquals(1500000000123_000_000L, reader.getTime());
+			assertEquals(110001, reader.getBidPx());
+			assertEquals(110005, reader.getAskPx());
+			assertEquals(0, reader.getBidSize());
+
+			assertTrue(reader.next());
+			assertEquals(1500000000_500_000_000L, reader.getTime());
+			assertEquals(110002, reader.getBidPx());
+			assertEquals(1000000, reader.getBidSize());
+			assertEquals(2000000, reader.getAskSize());
+
+			assertTrue(reader.next());
+			assertEquals(1500000001_000_000_000L, reader.getTime());
+			assertEquals(110000, reader.getBidPx());
+			assertEquals(110010, reader.getAskPx());
+
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void pricesAreRoundedHalfUp() throws IOException {
+		File file = write("ticks.csv", "1,110.0014,110.0015\n2,-0.0005,110.00049999\n3,0.9995,1.2\n");
+		try (CsvTickReader reader = new CsvTickReader(file, 3)) {
+			assertTrue(reader.next());
+			assertEquals(110001, reader.getBidPx());
+			assertEquals(110002, reader.getAskPx());
+
+			assertTrue(reader.next());
+			assertEquals(-1, reader.getBidPx());
+			assertEquals(110000, reader.getAskPx());
+
+			assertTrue(reader.next());
+			assertEquals(1000, reader.getBidPx());
+			assertEquals(1200, reader.getAskPx());
+		}
+	}
+
+	@Test
+	public void emptyPriceIsRejected() throws IOException {
+		assertInvalid("1,,110.005\n", "ticks.csv:1 price not found");
+		assertInvalid("1,110.001,\n", "ticks.csv:1 price not found");
+		assertInvalid("1,110.0x1,110.005\n", "ticks.csv:1 invalid number");
+		assertInvalid("1,110.001\n", "ticks.csv:1 ask not found");
+	}
+
+	@Test
+	public void readsGzipAcrossBuffers() throws IOException {
+		File file = new File(folder.getRoot(), "ticks.csv.gz");
+		int lines = 20000;
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+			for (int i = 0; i < lines; i++) {
+				out.write((i + ",110." + (i % 1000) + ",110.5\n").getBytes(StandardCharsets.US_ASCII));
+			}
+		}
+		try (CsvTickReader reader = new CsvTickReader(file, 3)) {
+			for (int i = 0; i < lines; i++) {
+				assertTrue(reader.next());
+				assertEquals(i * 1_000_000L, reader.getTime());
+			}
+			assertFalse(reader.next());
+		}
+	}
+
+	private void assertInvalid(String text, String message) throws IOException {
+		try (CsvTickReader reader = new CsvTickReader(write("ticks.csv", text), 3)) {
+			reader.next();
+			fail();
+		} catch (IOException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+
+	private File write(String name, String text) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+}
@@ -0,0 +1,98 @@
+package jp.yamato373.fix.price.tick;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jp.yamato373.fix.price.tick.TickFile.SymbolEntry;
+
+public class TickFileTest {
+
+	private static final List<SymbolEntry> SYMBOLS = Arrays.asList(new SymbolEntry("USD/JPY", 3),
+			new SymbolEntry("EUR/USD", 5));
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void recordedTicksAreReplayedInOrder() throws IOException {
+		File file = folder.newFile("ticks.tick");
+		try (TickRecorder recorder = new TickRecorder(file, SYMBOLS)) {
+			recorder.record(0, 110000, 110004, 1000000, 2000000);
+			recorder.record(1, 112340, 112350, 1500000, 500000);
+			recorder.record(0, 110001, 110005, 1000000, 2000000);
+			assertEquals(3, recorder.getCount());
+		}
+		// 閉じたらレコードの分だけに切り詰める
+		assertEquals(header() + 3 * TickFile.RECORD_SIZE, file.length());
+
+		try (TickReplayer replayer = new TickReplayer(file)) {
+			assertEquals(SYMBOLS, replayer.getSymbols());
+			List<String> ticks = new ArrayList<>();
+			long count = replayer.replay(0, (symbolIndex, bidPx, askPx, bidSize, askSize) -> ticks
+					.add(symbolIndex + " " + bidPx + " " + askPx + " " + bidSize + " " + askSize));
+
+			assertEquals(3, count);
+			assertEquals(Arrays.asList("0 110000 110004 1000000 2000000", "1 112340 112350 1500000 500000",
+					"0 110001 110005 1000000 2000000"), ticks);
+		}
+	}
+
+	@Test
+	public void concurrentRecordsAreAllKept() throws Exception {
+		File file = folder.newFile("ticks.tick");
+		int threads = 4;
+		int perThread = 20000;
+		try (TickRecorder recorder = new TickRecorder(file, SYMBOLS)) {
+			List<Thread> list = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int symbolIndex = t % 2;
+				int thread = t;
+				list.add(new Thread(() -> {
+					for (int i = 0; i < perThread; i++) {
+						recorder.record(symbolIndex, thread, i, 0, 0);
+					}
+				}));
+			}
+			list.forEach(Thread::start);
+			for (Thread thread : list) {
+				thread.join();
+			}
+		}
+
+		int[] next = new int[threads];
+		try (TickReplayer replayer = new TickReplayer(file)) {
+			long count = replayer.replay(0, (symbolIndex, bidPx, askPx, bidSize, askSize) -> {
+				assertEquals(bidPx % 2, symbolIndex);
+				// スレッド毎には記録した順
+				assertEquals(next[(int) bidPx]++, askPx);
+			});
+			assertEquals(threads * perThread, count);
+		}
+	}
+
+	@Test
+	public void rejectsOtherFiles() throws IOException {
+		File file = folder.newFile("ticks.csv");
+		Files.write(file.toPath(), "1500000000000,110.001,110.005\n".getBytes("US-ASCII"));
+		try {
+			new TickReplayer(file).close();
+			fail();
+		} catch (IOException e) {
+			assertEquals("not a tick file", e.getMessage());
+		}
+	}
+
+	private static int header() {
+		return TickFile.encodeHeader(SYMBOLS).remaining();
+	}
+}
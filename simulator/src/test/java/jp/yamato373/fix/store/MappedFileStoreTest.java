@@ -0,0 +1,107 @@
+package jp.yamato373.fix.store;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File headerFile;
+	private File journalFile;
+
+	@Before
+	public void setUp() {
+		headerFile = new File(folder.getRoot(), "session" + MappedFileStoreFactory.HEADER_SUFFIX);
+		journalFile = new File(folder.getRoot(), "session" + MappedFileStoreFactory.JOURNAL_SUFFIX);
+	}
+
+	@Test
+	public void newStoreStartsAtOne() throws IOException {
+		MappedFileStore store = new MappedFileStore(headerFile, journalFile, 1024);
+
+		assertEquals(1, store.getNextSenderMsgSeqNum());
+		assertEquals(1, store.getNextTargetMsgSeqNum());
+		assertEquals(Arrays.asList(), get(store, 1, 10));
+	}
+
+	@Test
+	public void messagesAndSeqNumsSurviveReopen() throws IOException {
+		MappedFileStore store = new MappedFileStore(headerFile, journalFile, 1024);
+		store.set(1, "first");
+		store.set(2, "second");
+		store.set(4, "fourth");
+		store.setNextSenderMsgSeqNum(5);
+		store.incrNextTargetMsgSeqNum();
+		long creationTime = store.getCreationTime().getTime();
+
+		MappedFileStore reopened = new MappedFileStore(headerFile, journalFile, 1024);
+
+		assertEquals(5, reopened.getNextSenderMsgSeqNum());
+		assertEquals(2, reopened.getNextTargetMsgSeqNum());
+		assertEquals(creationTime, reopened.getCreationTime().getTime());
+		assertEquals(Arrays.asList("first", "second", "fourth"), get(reopened, 1, 10));
+		assertEquals(Arrays.asList("second"), get(reopened, 2, 3));
+	}
+
+	@Test
+	public void journalGrowsBeyondInitialSize() throws IOException {
+		MappedFileStore store = new MappedFileStore(headerFile, journalFile, 64);
+		List<String> messages = new ArrayList<>();
+		for (int sequence = 1; sequence <= 2000; sequence++) {
+			String message = "8=FIX.4.4\u00019=10\u000134=" + sequence + "\u000110=000\u0001";
+			store.set(sequence, message);
+			messages.add(message);
+		}
+
+		assertEquals(messages, get(store, 1, 2000));
+		assertEquals(messages, get(new MappedFileStore(headerFile, journalFile, 64), 1, 2000));
+	}
+
+	@Test
+	public void resetDropsMessages() throws IOException {
+		MappedFileStore store = new MappedFileStore(headerFile, journalFile, 1024);
+		store.set(1, "first");
+		store.setNextSenderMsgSeqNum(2);
+
+		store.reset();
+
+		assertEquals(1, store.getNextSenderMsgSeqNum());
+		assertEquals(Arrays.asList(), get(store, 1, 10));
+		assertEquals(Arrays.asList(), get(new MappedFileStore(headerFile, journalFile, 1024), 1, 10));
+	}
+
+	@Test
+	public void rejectsHeaderWithoutMagic() throws IOException {
+		// FileStoreの.headerと同じくテキストのSeqNum
+		byte[] bytes = "0000000000000000000000000012,0000000000000000000000000034".getBytes("US-ASCII");
+		Files.write(headerFile.toPath(), bytes);
+
+		try {
+			new MappedFileStore(headerFile, journalFile, 1024);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Not a mapped store header"));
+		}
+		// 上書きしない
+		assertArrayEquals(bytes, Files.readAllBytes(headerFile.toPath()));
+	}
+
+	private static List<String> get(MappedFileStore store, int startSequence, int endSequence) throws IOException {
+		List<String> messages = new ArrayList<>();
+		store.get(startSequence, endSequence, messages);
+		return messages;
+	}
+}
@@ -0,0 +1,80 @@
+package jp.yamato373.fix.util;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class IdGeneratorTest {
+
+	// 2017-07-14T02:40:00Z
+	private final AtomicLong clock = new AtomicLong(1500000000000L);
+
+	@Test
+	public void idsIncreaseAndCarryNodeId() {
+		IdGenerator idGenerator = new IdGenerator(5, clock::get);
+		long previous = idGenerator.next();
+		for (int i = 0; i < 10000; i++) {
+			if (i % 1000 == 0) {
+				clock.addAndGet(1);
+			}
+			long id = idGenerator.next();
+			assertTrue(id > previous);
+			assertEquals(5, id >>> 12 & IdGenerator.MAX_NODE_ID);
+			previous = id;
+		}
+		assertEquals(Long.toString(previous + 1), idGenerator.nextString());
+	}
+
+	@Test
+	public void restartDoesNotRepeatBorrowedIds() {
+		IdGenerator idGenerator = new IdGenerator(0, clock::get);
+		// 先に使える分を使い切る
+		clock.addAndGet(IdGenerator.MAX_BORROW_MILLIS);
+		Set<Long> ids = new HashSet<>();
+		long last = 0;
+		for (int i = 0; i < borrowable(); i++) {
+			last = idGenerator.next();
+			assertTrue(ids.add(last));
+		}
+
+		clock.addAndGet(1);
+		IdGenerator restarted = new IdGenerator(0, clock::get);
+		assertTrue(restarted.next() > last);
+	}
+
+	@Test
+	public void borrowingIsBounded() throws InterruptedException {
+		IdGenerator idGenerator = new IdGenerator(0, clock::get);
+		clock.addAndGet(IdGenerator.MAX_BORROW_MILLIS);
+		for (int i = 0; i < borrowable(); i++) {
+			idGenerator.next();
+		}
+
+		// 先に使える分が無いので時計が進むまで待つ
+		long[] id = new long[1];
+		Thread thread = new Thread(() -> id[0] = idGenerator.next());
+		thread.start();
+		thread.join(200);
+		assertTrue(thread.isAlive());
+		clock.addAndGet(1);
+		thread.join(1000);
+		assertFalse(thread.isAlive());
+		assertTrue(id[0] != 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNodeIdOutOfRange() {
+		new IdGenerator(IdGenerator.MAX_NODE_ID + 1);
+	}
+
+	/**
+	 * 起動からMAX_BORROW_MILLIS進んだ時に使えるID。起動時に使い済みにしたミリ秒の残りと、その先MAX_BORROW_MILLIS分
+	 */
+	private static int borrowable() {
+		return (int) (4095 + 4096 * IdGenerator.MAX_BORROW_MILLIS);
+	}
+}
@@ -0,0 +1,86 @@
+package jp.yamato373.fix.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jp.yamato373.fix.util.SettingsSnapshot.SessionValues;
+import jp.yamato373.fix.util.SettingsSnapshot.SymbolValues;
+import quickfix.ConfigError;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+public class SettingsStoreTest {
+
+	private SettingsStore settingsStore;
+
+	@Before
+	public void setUp() throws ConfigError {
+		// CSVの通貨ペアのように値動きの設定が無い
+		Settings settings = new Settings();
+		settings.setSymbol("USD/JPY");
+		settings.setSendInterval(1000);
+		settings.setRateGenerateInterval(100);
+		settings.setSize(1000000);
+		settingsStore = new SettingsStore(settings);
+
+		String cfg = "[session]\n"
+				+ "BeginString=FIX.4.4\nSenderCompID=OANDA\nTargetCompID=YAMATO373\n"
+				+ "[session]\n"
+				+ "BeginString=FIX.4.4\nSenderCompID=OANDA_MD\nTargetCompID=*\nAcceptorTemplate=Y\n";
+		settingsStore.addSessions(new SessionSettings(new ByteArrayInputStream(cfg.getBytes(StandardCharsets.US_ASCII))));
+	}
+
+	@Test
+	public void unsetValuesAreNotValidated() {
+		SettingsSnapshot snapshot = settingsStore.updateSymbol("USD/JPY",
+				SymbolValues.builder().lowerLimit(new BigDecimal("100")).build());
+		assertEquals(2, snapshot.getVersion());
+		assertNull(snapshot.getSymbol("USD/JPY").getUpperLimit());
+
+		snapshot = settingsStore.updateSymbol("USD/JPY", SymbolValues.builder().upperLimit(new BigDecimal("120")).build());
+		assertEquals(3, snapshot.getVersion());
+	}
+
+	@Test
+	public void invalidValuesAreRejected() {
+		settingsStore.updateSymbol("USD/JPY", SymbolValues.builder().lowerLimit(new BigDecimal("100")).build());
+		assertRejected(() -> settingsStore.updateSymbol("USD/JPY",
+				SymbolValues.builder().upperLimit(new BigDecimal("90")).build()),
+				"USD/JPY: lowerLimit must be less than upperLimit");
+		assertRejected(() -> settingsStore.updateSymbol("USD/JPY",
+				SymbolValues.builder().spread(new BigDecimal("-0.001")).build()),
+				"USD/JPY: spread must not be negative");
+		assertRejected(() -> settingsStore.updateSymbol("EUR/USD", SymbolValues.builder().build()),
+				"Unknown symbol: EUR/USD");
+		// 失敗した変更は残らない
+		assertEquals(2, settingsStore.getSnapshot().getVersion());
+	}
+
+	@Test
+	public void onlyConfiguredSessionsCanBeUpdated() {
+		SessionValues values = SessionValues.builder().conflationThresholdBytes(1024L).build();
+		settingsStore.updateSession(new SessionID("FIX.4.4", "OANDA", "YAMATO373"), values);
+		// 動的セッションのテンプレート
+		settingsStore.updateSession(new SessionID("FIX.4.4", "OANDA_MD", "ANYONE"), values);
+		assertEquals(2, settingsStore.getSnapshot().getSessions().size());
+
+		assertRejected(() -> settingsStore.updateSession(new SessionID("FIX.4.4", "OANDA", "ANYONE"), values),
+				"Unknown session: FIX.4.4:OANDA->ANYONE");
+		assertEquals(2, settingsStore.getSnapshot().getSessions().size());
+	}
+
+	private static void assertRejected(Runnable update, String message) {
+		try {
+			update.run();
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package jp.yamato373.fix.util;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class SplitMix64Test {
+
+	@Test
+	public void sameSequenceAsSplittableRandom() {
+		RandomSource randomSource = new RandomSource(42);
+		SplitMix64 random = new SplitMix64(0);
+		for (long tick = 0; tick < 100; tick++) {
+			SplittableRandom expected = randomSource.create("key", tick);
+			random.setSeed(randomSource.seed("key", tick));
+			for (int i = 0; i < 20; i++) {
+				// 2の累乗とそれ以外
+				int bound = i % 2 == 0 ? 16 : 10 + i;
+				assertEquals(expected.nextInt(bound), random.nextInt(bound));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNonPositiveBound() {
+		new SplitMix64(1).nextInt(0);
+	}
+}
@@ -0,0 +1,58 @@
+package jp.yamato373.fix.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TimerWheelTest {
+
+	// 1ミリ秒毎に8バケツなので、8ミリ秒より先は何周か待つ
+	private final TimerWheel timerWheel = new TimerWheel("TimerWheelTest", 1, TimeUnit.MILLISECONDS, 8);
+
+	@After
+	public void tearDown() throws InterruptedException {
+		timerWheel.stop();
+	}
+
+	@Test
+	public void tasksRunInDeadlineOrderAndNeverEarly() throws InterruptedException {
+		long[] delays = { 30, 3, 12, 0, 7, 21, 3 };
+		List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch latch = new CountDownLatch(delays.length);
+		for (int i = 0; i < delays.length; i++) {
+			int task = i;
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delays[i]);
+			timerWheel.schedule(delays[i], TimeUnit.MILLISECONDS, () -> {
+				assertTrue(System.nanoTime() - deadline >= 0);
+				order.add(task);
+				latch.countDown();
+			});
+		}
+		assertEquals(delays.length, timerWheel.getPending());
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		// 同じ期限は登録順
+		assertEquals(Arrays.asList(3, 1, 6, 4, 2, 5, 0), order);
+		assertEquals(0, timerWheel.getPending());
+	}
+
+	@Test
+	public void failingTaskDoesNotStopWheel() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		timerWheel.schedule(1, TimeUnit.MILLISECONDS, () -> {
+			throw new IllegalStateException("test");
+		});
+		timerWheel.schedule(2, TimeUnit.MILLISECONDS, latch::countDown);
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(0, timerWheel.getPending());
+	}
+}
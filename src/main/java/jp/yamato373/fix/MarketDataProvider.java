@@ -1,7 +0,0 @@
-package jp.yamato373.fix;
-
-public interface MarketDataProvider {
-
-    double getBid(String symbol);
-    double getAsk(String symbol);
-}